@@ -0,0 +1,35 @@
+package com.example.task5;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of benchmarks.jar. Takes the usual JMH command line and always adds the
+ * gc profiler (unless it is already given), so every result reports the allocation rate next to the throughput.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the benchmarks selected on the command line.
+     *
+     * @param args JMH command line options, e.g. "FilterParserBenchmark -p rows=10000"
+     * @throws RunnerException if a benchmark fails
+     * @throws CommandLineOptionException if the options are invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        boolean hasGcProfiler = commandLine.getProfilers().stream()
+                .anyMatch(profiler -> profiler.getKlass().equals(GCProfiler.class.getName())
+                        || profiler.getKlass().equals("gc"));
+        if (!hasGcProfiler) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
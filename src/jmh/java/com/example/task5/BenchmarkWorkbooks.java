@@ -0,0 +1,72 @@
+package com.example.task5;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates the synthetic workbooks the benchmarks run on. Each workbook has a header row and
+ * mixed numeric and string columns: ID, Name, Price, Qty (10% empty) and Sku.
+ * Workbooks are generated once per size into target/jmh-data and reused by later runs.
+ */
+public class BenchmarkWorkbooks {
+
+    /**
+     * The folder the generated workbooks are kept in.
+     */
+    private static final Path DATA_DIR = Paths.get("target", "jmh-data");
+
+    /**
+     * The name prefixes of the Name column.
+     */
+    private static final String[] NAMES = {"Apples", "Bananas", "Cherries", "Oranges", "Coconuts", "apricot", "Mango"};
+
+    /**
+     * Gets a generated workbook with the given number of data rows, generating it on first use.
+     *
+     * @param rows the number of data rows
+     * @return the path to the workbook
+     * @throws IOException if the workbook can't be written
+     */
+    public static synchronized Path get(int rows) throws IOException {
+        Path path = DATA_DIR.resolve("rows-" + rows + ".xlsx");
+        if (Files.exists(path)) {
+            return path;
+        }
+        Files.createDirectories(DATA_DIR);
+        Path partial = DATA_DIR.resolve("rows-" + rows + ".xlsx.part");
+
+        Random random = new Random(42);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try (OutputStream out = Files.newOutputStream(partial)) {
+            Sheet sheet = workbook.createSheet("Data");
+            Row header = sheet.createRow(0);
+            String[] columns = {"ID", "Name", "Price", "Qty", "Sku"};
+            for (int i = 0; i < columns.length; i++) {
+                header.createCell(i).setCellValue(columns[i]);
+            }
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellValue(NAMES[random.nextInt(NAMES.length)] + random.nextInt(50));
+                row.createCell(2).setCellValue(random.nextInt(20000));
+                if (random.nextInt(10) > 0) {
+                    row.createCell(3).setCellValue(random.nextInt(20));
+                }
+                row.createCell(4).setCellValue("SKU" + random.nextInt(5000));
+            }
+            workbook.write(out);
+        } finally {
+            workbook.close();
+        }
+        Files.move(partial, path);
+        return path;
+    }
+}
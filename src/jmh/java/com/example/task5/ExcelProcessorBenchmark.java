@@ -0,0 +1,211 @@
+package com.example.task5;
+
+import com.example.task5.columnar.SheetCache;
+import com.example.task5.utils.AverageTracker;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.FilterParser;
+import com.example.task5.utils.ProcessingOptions;
+import com.example.task5.utils.ScanStats;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the whole-sheet operations of {@link ExcelProcessor}: reading the header map,
+ * filtering and copying the rows of a loaded sheet, and the full processExcel run from
+ * file to file. Scores are whole operations per second; divide by the row count for rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExcelProcessorBenchmark {
+
+    /**
+     * The filter of the filtering benchmarks, matching about a third of the rows.
+     */
+    private static final String FILTER = "price > 10000 and (qty < 10 or name startsWith a)";
+
+    /**
+     * The index of the averaged column (Price).
+     */
+    private static final int AVG_COLUMN = 2;
+
+    /**
+     * A generated workbook on disk, for the benchmarks that read files.
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        /**
+         * The number of data rows.
+         */
+        @Param({"10000", "100000", "1000000"})
+        public int rows;
+
+        /**
+         * The path to the workbook.
+         */
+        public String path;
+
+        /**
+         * The output file of processExcel.
+         */
+        public String outputPath;
+
+        /**
+         * The compiled filter.
+         */
+        public FilterNode filter;
+
+        /**
+         * A warm sheet cache for the cached processExcel benchmark.
+         */
+        public SheetCache cache;
+
+        /**
+         * Generates the workbook and compiles the filter.
+         * @throws IOException if the workbook can't be generated or read
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            path = BenchmarkWorkbooks.get(rows).toString();
+            outputPath = Files.createTempFile("benchmark-output", ".xlsx").toString();
+            filter = FilterParser.from(FILTER, ExcelProcessor.getHeadersMap(path));
+            cache = new SheetCache(1);
+            cache.get(path);
+        }
+
+        /**
+         * Deletes the output file.
+         * @throws IOException if the file can't be deleted
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(Path.of(outputPath));
+        }
+    }
+
+    /**
+     * A generated sheet loaded with POI, for filterAndCopyRows.
+     */
+    @State(Scope.Benchmark)
+    public static class LoadedSheet {
+
+        /**
+         * The number of data rows. POI rows of larger sheets don't fit a reasonable heap.
+         */
+        @Param({"10000", "100000"})
+        public int loadedRows;
+
+        /**
+         * The loaded input sheet.
+         */
+        public Sheet sheet;
+
+        /**
+         * The compiled filter.
+         */
+        public FilterNode filter;
+
+        /**
+         * The workbook holding the sheet.
+         */
+        private Workbook workbook;
+
+        /**
+         * Loads the sheet and compiles the filter.
+         * @throws IOException if the workbook can't be generated or read
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            try (InputStream in = new FileInputStream(BenchmarkWorkbooks.get(loadedRows).toFile())) {
+                workbook = new XSSFWorkbook(in);
+            }
+            sheet = workbook.getSheetAt(0);
+            filter = FilterParser.from(FILTER, ExcelProcessor.getHeadersMap(sheet));
+        }
+
+        /**
+         * Releases the workbook.
+         * @throws IOException if the workbook can't be closed
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            workbook.close();
+        }
+    }
+
+    /**
+     * Reads the header map by streaming only the first row.
+     * @param input the workbook
+     * @return the header map
+     * @throws IOException if the workbook can't be read
+     */
+    @Benchmark
+    public Map<String, Integer> getHeadersMap(Input input) throws IOException {
+        return ExcelProcessor.getHeadersMap(input.path);
+    }
+
+    /**
+     * Filters a loaded sheet into a streaming output sheet that is discarded afterwards.
+     * @param loaded the loaded sheet
+     * @return the average tracker
+     * @throws IOException if the output can't be released
+     */
+    @Benchmark
+    public AverageTracker filterAndCopyRows(LoadedSheet loaded) throws IOException {
+        try (SXSSFWorkbook output = new SXSSFWorkbook(100)) {
+            AverageTracker tracker = ExcelProcessor.filterAndCopyRows(loaded.sheet, output.createSheet("Filtered"),
+                    1, loaded.filter, AVG_COLUMN, null, null, new ScanStats());
+            return tracker;
+        }
+    }
+
+    /**
+     * Runs processExcel with streaming input and output, from file to file.
+     * @param input the workbook
+     */
+    @Benchmark
+    public void processExcelStreaming(Input input) {
+        ProcessingOptions options = new ProcessingOptions();
+        options.setStreamingInput(true);
+        options.setStreamingOutput(true);
+        ExcelProcessor.processExcel(input.path, input.outputPath, input.filter, AVG_COLUMN, options);
+    }
+
+    /**
+     * Runs processExcel against a warm columnar sheet cache, with streaming output.
+     * @param input the workbook
+     */
+    @Benchmark
+    public void processExcelCached(Input input) {
+        ProcessingOptions options = new ProcessingOptions();
+        options.setSheetCache(input.cache);
+        options.setStreamingOutput(true);
+        ExcelProcessor.processExcel(input.path, input.outputPath, input.filter, AVG_COLUMN, options);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.task5;
+
+import com.example.task5.columnar.ColumnarSheet;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.FilterParser;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks filter compilation and per-row filter evaluation, on POI rows and on columnar sheets.
+ * The evaluation benchmarks test one row per operation, so the scores are rows per second and
+ * the gc profiler's "gc.alloc.rate.norm" is the allocation per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilterParserBenchmark {
+
+    /**
+     * The header map the expressions are compiled against.
+     */
+    private static final Map<String, Integer> HEADERS = new HashMap<>();
+
+    static {
+        HEADERS.put("id", 0);
+        HEADERS.put("name", 1);
+        HEADERS.put("price", 2);
+        HEADERS.put("qty", 3);
+        HEADERS.put("sku", 4);
+    }
+
+    /**
+     * Gets the text of a benchmark expression.
+     * @param kind "simple" (one comparison), "compound" (and/or/not with string clauses) or "inList" (1000 values)
+     * @return the expression text
+     */
+    private static String expressionText(String kind) {
+        if (kind.equals("simple")) {
+            return "price > 1000";
+        }
+        if (kind.equals("compound")) {
+            return "price > 1000 and (qty < 5 or not name startsWith a) and name contains (an, rr)";
+        }
+        StringBuilder list = new StringBuilder("sku in (");
+        for (int i = 0; i < 1000; i++) {
+            list.append(i == 0 ? "SKU" : ", SKU").append(i * 5);
+        }
+        return list.append(')').toString();
+    }
+
+    /**
+     * The filter expressions of the benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class Expressions {
+
+        /**
+         * The kind of expression.
+         */
+        @Param({"simple", "compound", "inList"})
+        public String expression;
+
+        /**
+         * The expression text.
+         */
+        public String text;
+
+        /**
+         * Builds the expression text.
+         */
+        @Setup
+        public void setUp() {
+            text = expressionText(expression);
+        }
+    }
+
+    /**
+     * A generated sheet, loaded as POI rows and as a columnar sheet, with a compiled filter.
+     */
+    @State(Scope.Benchmark)
+    public static class Rows {
+
+        /**
+         * The number of data rows. POI rows of larger sheets don't fit a reasonable heap.
+         */
+        @Param({"10000", "100000"})
+        public int rows;
+
+        /**
+         * The kind of expression.
+         */
+        @Param({"simple", "compound", "inList"})
+        public String expression;
+
+        /**
+         * The compiled filter.
+         */
+        public FilterNode filter;
+
+        /**
+         * The data rows as POI rows.
+         */
+        public Row[] poiRows;
+
+        /**
+         * The sheet in columnar form.
+         */
+        public ColumnarSheet columnar;
+
+        /**
+         * The workbook holding the POI rows.
+         */
+        private Workbook workbook;
+
+        /**
+         * Loads the sheet and compiles the filter.
+         * @throws IOException if the workbook can't be generated or read
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            filter = FilterParser.from(expressionText(expression), HEADERS);
+
+            String path = BenchmarkWorkbooks.get(rows).toString();
+            try (InputStream in = new FileInputStream(path)) {
+                workbook = new XSSFWorkbook(in);
+            }
+            Sheet sheet = workbook.getSheetAt(0);
+            List<Row> dataRows = new ArrayList<>();
+            for (Row row : sheet) {
+                if (row.getRowNum() > 0) {
+                    dataRows.add(row);
+                }
+            }
+            poiRows = dataRows.toArray(new Row[0]);
+            columnar = ColumnarSheet.load(path);
+        }
+
+        /**
+         * Releases the workbook.
+         * @throws IOException if the workbook can't be closed
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            workbook.close();
+        }
+    }
+
+    /**
+     * The position of the next row to test, per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /**
+         * The next row index.
+         */
+        public int next;
+    }
+
+    /**
+     * Compiles a filter expression.
+     * @param expressions the expression
+     * @return the compiled filter
+     */
+    @Benchmark
+    public FilterNode compile(Expressions expressions) {
+        return FilterParser.from(expressions.text, HEADERS);
+    }
+
+    /**
+     * Tests one POI row.
+     * @param rows the rows and filter
+     * @param cursor the row position
+     * @return the filter result
+     */
+    @Benchmark
+    public boolean testPoiRow(Rows rows, Cursor cursor) {
+        int index = cursor.next;
+        cursor.next = index + 1 == rows.poiRows.length ? 0 : index + 1;
+        return rows.filter.test(rows.poiRows[index]);
+    }
+
+    /**
+     * Tests one columnar row.
+     * @param rows the rows and filter
+     * @param cursor the row position
+     * @return the filter result
+     */
+    @Benchmark
+    public boolean testColumnarRow(Rows rows, Cursor cursor) {
+        int index = cursor.next;
+        cursor.next = index + 1 == rows.columnar.getRowCount() ? 0 : index + 1;
+        return rows.filter.test(rows.columnar, index);
+    }
+}
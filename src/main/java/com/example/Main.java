@@ -1,24 +1,71 @@
 package com.example;
 
+import com.example.task1.FileReverser;
 import com.example.task1.StringReverser;
 import com.example.task2.WordFrequencyCounter;
 import com.example.task3.ArrayListLoopTest;
 import com.example.task4.FindDuplicateChars;
 import com.example.task5.ExcelProcessor;
+import com.example.task5.QueryServer;
+import com.example.task5.WatchFolderService;
+import com.example.task5.columnar.SheetCache;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.FilterNodes;
 import com.example.task5.utils.FilterParser;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.example.task5.utils.ProcessingOptions;
+import com.example.task5.utils.SortSpec;
 
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.function.Predicate;
 
 public class Main {
+    /**
+     * Keeps parsed input sheets between menu runs, so repeated filters skip parsing.
+     * Sheets are also snapshotted next to the workbook, so later runs skip parsing too.
+     */
+    private static final SheetCache SHEET_CACHE = new SheetCache(4, true);
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--watch")) {
+            watchDataFolder();
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--count-words")) {
+            WordFrequencyCounter.countWordsInFiles(args[1]);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--top-words")) {
+            WordFrequencyCounter.countTopWordsInFiles(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 20,
+                    args.length > 3 ? Double.parseDouble(args[3]) : 0.0001);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--duplicate-chars")) {
+            FindDuplicateChars.findDuplicateCharsInFile(args[1]);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("--reverse-file")) {
+            reverseFile(args[1], args[2], args.length > 3 && args[3].equals("lines"));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--ngrams")) {
+            WordFrequencyCounter.countNGramsInFile(args[1], args.length > 2 ? Integer.parseInt(args[2]) : 2,
+                    args.length > 3 ? Long.parseLong(args[3]) : 2);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--stream-words")) {
+            WordFrequencyCounter.countWordsInStream(System.in,
+                    Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 60),
+                    args.length > 2 ? Integer.parseInt(args[2]) : 10);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serveDataFolder(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         boolean running = true;
 
@@ -59,20 +106,28 @@ public class Main {
                     break;
                 case 5:
                     try {
-                        Workbook workbook = new XSSFWorkbook(new FileInputStream("data/input.xlsx"));
-                        Sheet sheet = workbook.getSheetAt(0);
-                        Map<String, Integer> headerMap = ExcelProcessor.getHeadersMap(sheet);
-                        workbook.close();
+                        Map<String, Integer> headerMap = SHEET_CACHE.get("data/input.xlsx").getHeadersMap();
 
-                        System.out.println("Enter filter (e.g price > 100 or name startsWith A):");
+                        System.out.println("Enter filter (e.g price > 100, name startsWith A, name contains (app, ban), sku in (SKU1, SKU2), price > 100 and (id < 3 or not name startsWith A), price > 100 order by price desc limit 10, sku in data/prices.xlsx:sku):");
                         String userFilter = scanner.nextLine();
 
-                        Predicate<Row> filter = FilterParser.from(userFilter, headerMap);
+                        ProcessingOptions options = new ProcessingOptions();
+                        int orderBy = SortSpec.findClause(userFilter);
+                        if (orderBy >= 0) {
+                            options.setSortSpec(SortSpec.parse(userFilter.substring(orderBy), headerMap));
+                            userFilter = userFilter.substring(0, orderBy);
+                        }
+
                         String inputPath = "data/input.xlsx";
                         String outputPath = "data/output.xlsx";
                         int avgColumnKey = 2; // Hello Methodia, change according to your input file (MUST BE NUMERIC COLUMN)
-                        ExcelProcessor.processExcel("data/input.xlsx", "data/output.xlsx", filter,
-                                headerMap.getOrDefault("price", avgColumnKey));
+                        options.setSheetCache(SHEET_CACHE);
+                        options.setStreamingOutput(true);
+                        try (FilterNode filter = userFilter.trim().isEmpty() ? FilterNodes.TRUE
+                                : FilterParser.from(userFilter, headerMap)) {
+                            ExcelProcessor.processExcel("data/input.xlsx", "data/output.xlsx", filter,
+                                    headerMap.getOrDefault("price", avgColumnKey), options);
+                        }
                     } catch (IOException e) {
                         System.out.println("Error: " + e.getMessage());
                     }
@@ -88,4 +143,63 @@ public class Main {
         }
         scanner.close();
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the watch-folder daemon over data/ until the process is stopped: every saved filter
+     * of data/filters.properties is applied to every workbook, with the results in data/out/.
+     */
+    private static void watchDataFolder() {
+        try {
+            int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            WatchFolderService service = new WatchFolderService(Paths.get("data"), Paths.get("data", "out"),
+                    Paths.get("data", "filters.properties"), workers, 500);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    service.close();
+                } catch (IOException e) {
+                    System.out.println("Error: " + e.getMessage());
+                }
+            }));
+            service.run();
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reverses a UTF-8 file of any size, its content by grapheme cluster or the order of its lines.
+     *
+     * @param input the input file
+     * @param output the output file
+     * @param lines true to reverse the order of the lines, false to reverse the whole content
+     */
+    private static void reverseFile(String input, String output, boolean lines) {
+        try {
+            if (lines) {
+                FileReverser.reverseLines(Paths.get(input), Paths.get(output));
+            } else {
+                FileReverser.reverseContent(Paths.get(input), Paths.get(output));
+            }
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the HTTP query service over data/ until the process is stopped, with parsed sheets
+     * kept in the shared sheet cache, e.g. GET /query?filter=price%20%3E%20100&amp;column=price&amp;format=json.
+     *
+     * @param port the port to listen on
+     */
+    private static void serveDataFolder(int port) {
+        try {
+            QueryServer server = new QueryServer(Paths.get("data"), port,
+                    Runtime.getRuntime().availableProcessors(), SHEET_CACHE);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.out.println("Serving data/ on http://localhost:" + server.getPort() + "/query");
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.task1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reverses UTF-8 files of any size, either their whole content or the order of their lines (like tac).
+ *
+ * The input is memory-mapped a window at a time and walked from the end, and the output is written
+ * through a direct buffer to a {@link FileChannel}, so heap use doesn't depend on the file size.
+ * Content is reversed by grapheme cluster like {@link StringReverser#reverse}: the file is cut into
+ * chunks at positions that are certainly cluster boundaries, never inside a multi-byte character,
+ * and each chunk is decoded, reversed and encoded on its own. Malformed bytes become U+FFFD.
+ * Lines are copied as bytes, which is safe because a newline byte never occurs inside a
+ * UTF-8 multi-byte character.
+ */
+public class FileReverser {
+
+    /**
+     * The size of the mapped windows and content chunks.
+     */
+    static final int WINDOW_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * How far before a chunk start to look for a cluster boundary.
+     */
+    private static final int BOUNDARY_SEARCH = 64 * 1024;
+
+    /**
+     * The size of the output buffer.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The UTF-8 byte order mark, which stays at the start of reversed content.
+     */
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    /**
+     * Writes the content of a file reversed by grapheme cluster.
+     *
+     * @param input the UTF-8 file to reverse
+     * @param output the file to write, replaced if it exists
+     * @throws IOException if a file can't be read or written
+     */
+    public static void reverseContent(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             Output out = new Output(output)) {
+            long size = in.size();
+            long first = hasByteOrderMark(in, size) ? BYTE_ORDER_MARK.length : 0;
+            if (first > 0) {
+                out.put(ByteBuffer.wrap(BYTE_ORDER_MARK));
+            }
+
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            // UTF-8 never takes fewer bytes than UTF-16 chars, so a chunk always fits.
+            CharBuffer chars = CharBuffer.allocate(WINDOW_SIZE + BOUNDARY_SEARCH);
+            char[] reversed = new char[chars.capacity()];
+
+            long end = size;
+            while (end > first) {
+                long regionStart = Math.max(first, end - WINDOW_SIZE - BOUNDARY_SEARCH);
+                MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, regionStart, end - regionStart);
+                int start = end - WINDOW_SIZE <= first ? 0 : chunkStart(region, (int) (end - WINDOW_SIZE - regionStart));
+
+                ByteBuffer chunk = region.duplicate();
+                chunk.position(start);
+                chars.clear();
+                decoder.reset();
+                decoder.decode(chunk, chars, true);
+                decoder.flush(chars);
+                chars.flip();
+
+                StringReverser.reverse(chars, reversed);
+                encoder.reset();
+                CharBuffer source = CharBuffer.wrap(reversed, 0, chars.remaining());
+                out.encode(encoder, source);
+                end = regionStart + start;
+            }
+        }
+    }
+
+    /**
+     * Writes the lines of a file in reverse order. Every output line ends with a newline, including the
+     * first one when the input doesn't end with one. Line endings are kept, so CRLF files stay CRLF.
+     *
+     * @param input the UTF-8 file whose lines to reverse
+     * @param output the file to write, replaced if it exists
+     * @throws IOException if a file can't be read or written
+     */
+    public static void reverseLines(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             Output out = new Output(output)) {
+            long size = in.size();
+            if (size == 0) {
+                return;
+            }
+            Window scan = new Window(in, size);
+            Window copy = new Window(in, size);
+
+            long lineEnd = scan.get(size - 1) == '\n' ? size - 1 : size;
+            long position = lineEnd;
+            while (position > 0) {
+                scan.cover(position - 1);
+                ByteBuffer buffer = scan.buffer;
+                int i = (int) (position - 1 - scan.start);
+                while (i >= 0 && buffer.get(i) != '\n') {
+                    i--;
+                }
+                if (i < 0) {
+                    position = scan.start;
+                    continue;
+                }
+                long newline = scan.start + i;
+                copyLine(copy, newline + 1, lineEnd, out);
+                lineEnd = newline;
+                position = newline;
+            }
+            copyLine(copy, 0, lineEnd, out);
+        }
+    }
+
+    /**
+     * Finds a cluster boundary at or before a position of a region: the start of a UTF-8 character
+     * that certainly begins a new grapheme cluster. If there is none (a single cluster longer than the
+     * search distance), the nearest character start is used. If the only character start is the start
+     * of the region, the whole region is one chunk; the char buffer has room for it.
+     *
+     * @param region the mapped bytes
+     * @param target the position to start searching at
+     * @return the position of the boundary, or 0 for the whole region
+     */
+    private static int chunkStart(ByteBuffer region, int target) {
+        int fallback = characterStart(region, target);
+        int position = fallback;
+        while (position > 0) {
+            int previous = characterStart(region, position - 1);
+            if (GraphemeClusters.isBoundary(decode(region, previous), decode(region, position))) {
+                return position;
+            }
+            position = previous;
+        }
+        return fallback;
+    }
+
+    /**
+     * Finds the start of the UTF-8 character holding a byte, stepping over continuation bytes.
+     * @param bytes the bytes
+     * @param position the position of the byte
+     * @return the position of the first byte of the character
+     */
+    private static int characterStart(ByteBuffer bytes, int position) {
+        int start = position;
+        while (start > 0 && position - start < 3 && (bytes.get(start) & 0xC0) == 0x80) {
+            start--;
+        }
+        return (bytes.get(start) & 0xC0) == 0x80 ? position : start;
+    }
+
+    /**
+     * Decodes the UTF-8 character starting at a position, leniently.
+     * @param bytes the bytes
+     * @param position the position of the first byte
+     * @return the code point, or U+FFFD if the bytes are malformed
+     */
+    private static int decode(ByteBuffer bytes, int position) {
+        int lead = bytes.get(position) & 0xFF;
+        int length = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 0;
+        if (length == 0 || position + length > bytes.limit()) {
+            return 0xFFFD;
+        }
+        int codePoint = length == 1 ? lead : lead & (0x7F >> length);
+        for (int i = 1; i < length; i++) {
+            int next = bytes.get(position + i) & 0xFF;
+            if ((next & 0xC0) != 0x80) {
+                return 0xFFFD;
+            }
+            codePoint = codePoint << 6 | next & 0x3F;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Checks whether a file starts with the UTF-8 byte order mark.
+     * @param in the file
+     * @param size the size of the file
+     * @return true if it does
+     * @throws IOException if the file can't be read
+     */
+    private static boolean hasByteOrderMark(FileChannel in, long size) throws IOException {
+        if (size < BYTE_ORDER_MARK.length) {
+            return false;
+        }
+        ByteBuffer start = ByteBuffer.allocate(BYTE_ORDER_MARK.length);
+        in.read(start, 0);
+        start.flip();
+        return start.equals(ByteBuffer.wrap(BYTE_ORDER_MARK));
+    }
+
+    /**
+     * Copies a line and a newline to the output.
+     * @param copy the window to read the line through
+     * @param from the first byte of the line
+     * @param to the byte after the line, without its newline
+     * @param out the output
+     * @throws IOException if the file can't be read or written
+     */
+    private static void copyLine(Window copy, long from, long to, Output out) throws IOException {
+        while (from < to) {
+            copy.cover(from);
+            ByteBuffer bytes = copy.buffer.duplicate();
+            bytes.position((int) (from - copy.start));
+            bytes.limit((int) Math.min(to - copy.start, bytes.limit()));
+            from += bytes.remaining();
+            out.put(bytes);
+        }
+        out.put((byte) '\n');
+    }
+
+    /**
+     * A read-only mapping of an aligned window of a file, moved as positions outside it are needed.
+     */
+    private static class Window {
+
+        /**
+         * The file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The size of the file.
+         */
+        private final long size;
+
+        /**
+         * The mapped bytes of the window.
+         */
+        private MappedByteBuffer buffer;
+
+        /**
+         * The file position of the first byte of the window, or -1 before the first mapping.
+         */
+        private long start = -1;
+
+        Window(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        /**
+         * Maps the window holding a position, unless it is already mapped.
+         * @param position the file position
+         * @throws IOException if the file can't be mapped
+         */
+        void cover(long position) throws IOException {
+            if (start < 0 || position < start || position >= start + buffer.limit()) {
+                start = position / WINDOW_SIZE * WINDOW_SIZE;
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+            }
+        }
+
+        /**
+         * Reads a byte.
+         * @param position the file position
+         * @return the byte
+         * @throws IOException if the file can't be mapped
+         */
+        byte get(long position) throws IOException {
+            cover(position);
+            return buffer.get((int) (position - start));
+        }
+    }
+
+    /**
+     * A file written through a direct buffer.
+     */
+    private static class Output implements AutoCloseable {
+
+        /**
+         * The file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The bytes not written yet.
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+        Output(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * Appends bytes.
+         * @param bytes the bytes, consumed
+         * @throws IOException if the file can't be written
+         */
+        void put(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(bytes.remaining(), buffer.remaining());
+                ByteBuffer part = bytes.duplicate();
+                part.limit(part.position() + count);
+                buffer.put(part);
+                bytes.position(bytes.position() + count);
+            }
+        }
+
+        /**
+         * Appends a byte.
+         * @param b the byte
+         * @throws IOException if the file can't be written
+         */
+        void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put(b);
+        }
+
+        /**
+         * Appends chars encoded by an encoder.
+         * @param encoder the encoder, reset
+         * @param chars the chars, consumed
+         * @throws IOException if the file can't be written
+         */
+        void encode(CharsetEncoder encoder, CharBuffer chars) throws IOException {
+            CoderResult result;
+            while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+                flush();
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                flush();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the file.
+         * @throws IOException if the file can't be written
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
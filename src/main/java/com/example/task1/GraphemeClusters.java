@@ -0,0 +1,239 @@
+package com.example.task1;
+
+/**
+ * Finds the boundaries of extended grapheme clusters: the user-perceived characters of a text.
+ *
+ * Follows the rules of Unicode Standard Annex #29: CR LF, Hangul syllable sequences, combining
+ * and spacing marks, emoji modifiers and tag sequences, emoji joined by ZERO WIDTH JOINER, and
+ * pairs of regional indicators (flags) stay together. Character properties come from
+ * {@link Character#getType}, so the rules work the same on every JDK version, unlike
+ * {@link java.text.BreakIterator}, which splits emoji sequences before JDK 20.
+ * Prepend characters are rare and not joined to the following character.
+ */
+final class GraphemeClusters {
+
+    /**
+     * ZERO WIDTH JOINER, which glues emoji into a single pictograph.
+     */
+    private static final int ZWJ = 0x200D;
+
+    /**
+     * Hangul leading consonant (choseong).
+     */
+    private static final int HANGUL_L = 1;
+
+    /**
+     * Hangul vowel (jungseong).
+     */
+    private static final int HANGUL_V = 2;
+
+    /**
+     * Hangul trailing consonant (jongseong).
+     */
+    private static final int HANGUL_T = 3;
+
+    /**
+     * Precomposed Hangul syllable without a trailing consonant.
+     */
+    private static final int HANGUL_LV = 4;
+
+    /**
+     * Precomposed Hangul syllable with a trailing consonant.
+     */
+    private static final int HANGUL_LVT = 5;
+
+    private GraphemeClusters() {
+    }
+
+    /**
+     * Finds the end of the grapheme cluster starting at an index.
+     *
+     * @param text the text
+     * @param start the first char of the cluster, less than the text length
+     * @return the index after the cluster
+     */
+    static int next(CharSequence text, int start) {
+        int length = text.length();
+        int previous = Character.codePointAt(text, start);
+        int end = start + Character.charCount(previous);
+        if (previous == '\r') {
+            return end < length && text.charAt(end) == '\n' ? end + 1 : end;
+        }
+        if (isControl(previous)) {
+            return end;
+        }
+
+        // Pictograph followed only by extenders, so a ZWJ after it joins the next pictograph.
+        boolean pictographic = isPictographic(previous);
+        int regionalIndicators = isRegionalIndicator(previous) ? 1 : 0;
+        while (end < length) {
+            char c = text.charAt(end);
+            if (c < 0x80) {
+                // ASCII never extends a cluster (CR LF is handled above).
+                break;
+            }
+            int current = Character.codePointAt(text, end);
+            boolean joined;
+            if (isExtend(current) || current == ZWJ) {
+                joined = true;
+            } else if (previous == ZWJ && pictographic && isPictographic(current)) {
+                joined = true;
+            } else if (regionalIndicators == 1 && isRegionalIndicator(previous) && isRegionalIndicator(current)) {
+                joined = true;
+                regionalIndicators++;
+            } else {
+                joined = joinsHangul(hangulType(previous), hangulType(current));
+            }
+            if (!joined) {
+                break;
+            }
+            if (!isExtend(current) && current != ZWJ) {
+                pictographic = isPictographic(current);
+            }
+            previous = current;
+            end += Character.charCount(current);
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether there is a cluster boundary between two code points whatever comes before them.
+     * Joiners and regional indicator pairs depend on earlier code points, so they count as no boundary.
+     *
+     * @param before the first code point
+     * @param after the second code point
+     * @return true if the two code points are certainly in different clusters
+     */
+    static boolean isBoundary(int before, int after) {
+        if (before == '\r' && after == '\n') {
+            return false;
+        }
+        if (isControl(before) || isControl(after)) {
+            return true;
+        }
+        if (isExtend(after) || after == ZWJ || before == ZWJ) {
+            return false;
+        }
+        if (isRegionalIndicator(before) && isRegionalIndicator(after)) {
+            return false;
+        }
+        return !joinsHangul(hangulType(before), hangulType(after));
+    }
+
+    /**
+     * Checks whether a code point always stands alone: controls, line and paragraph separators, lone
+     * surrogates, and format characters other than joiners and tags.
+     * @param codePoint the code point
+     * @return true if it is a control
+     */
+    private static boolean isControl(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.CONTROL:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+            case Character.SURROGATE:
+                return true;
+            case Character.FORMAT:
+                return codePoint != ZWJ && codePoint != 0x200C && !isTag(codePoint);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether a code point extends the preceding character: marks, ZERO WIDTH NON-JOINER,
+     * emoji skin tone modifiers, tags, halfwidth katakana sound marks, and the Thai and Lao SARA AM
+     * vowels, which are letters (Lo) but spacing marks for cluster breaking.
+     * @param codePoint the code point
+     * @return true if it is an extender or spacing mark
+     */
+    private static boolean isExtend(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+                return true;
+            default:
+                return codePoint == 0x200C || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF) || isTag(codePoint)
+                        || codePoint == 0xFF9E || codePoint == 0xFF9F || codePoint == 0x0E33 || codePoint == 0x0EB3;
+        }
+    }
+
+    /**
+     * Checks whether a code point is a tag character, used in emoji tag sequences such as subdivision flags.
+     * @param codePoint the code point
+     * @return true if it is a tag
+     */
+    private static boolean isTag(int codePoint) {
+        return codePoint >= 0xE0020 && codePoint <= 0xE007F;
+    }
+
+    /**
+     * Checks whether a code point is a regional indicator letter, two of which form a flag.
+     * @param codePoint the code point
+     * @return true if it is a regional indicator
+     */
+    private static boolean isRegionalIndicator(int codePoint) {
+        return codePoint >= 0x1F1E6 && codePoint <= 0x1F1FF;
+    }
+
+    /**
+     * Checks whether a code point is an emoji pictograph that can be joined by ZWJ, approximated by the
+     * symbol blocks holding the Extended_Pictographic characters.
+     * @param codePoint the code point
+     * @return true if it is pictographic
+     */
+    private static boolean isPictographic(int codePoint) {
+        if (codePoint >= 0x1F000) {
+            return codePoint <= 0x1FAFF && !isRegionalIndicator(codePoint)
+                    && !(codePoint >= 0x1F3FB && codePoint <= 0x1F3FF);
+        }
+        return (codePoint >= 0x2600 && codePoint <= 0x27BF) || (codePoint >= 0x2300 && codePoint <= 0x23FF)
+                || (codePoint >= 0x2190 && codePoint <= 0x21FF) || (codePoint >= 0x2B00 && codePoint <= 0x2BFF)
+                || codePoint == 0xA9 || codePoint == 0xAE || codePoint == 0x203C || codePoint == 0x2049
+                || codePoint == 0x2122 || codePoint == 0x2139 || codePoint == 0x3030 || codePoint == 0x303D
+                || codePoint == 0x3297 || codePoint == 0x3299;
+    }
+
+    /**
+     * Gets the Hangul syllable type of a code point.
+     * @param codePoint the code point
+     * @return one of the HANGUL_ constants, or 0 if it is not a Hangul jamo or syllable
+     */
+    private static int hangulType(int codePoint) {
+        if (codePoint >= 0xAC00 && codePoint <= 0xD7A3) {
+            return (codePoint - 0xAC00) % 28 == 0 ? HANGUL_LV : HANGUL_LVT;
+        }
+        if ((codePoint >= 0x1100 && codePoint <= 0x115F) || (codePoint >= 0xA960 && codePoint <= 0xA97C)) {
+            return HANGUL_L;
+        }
+        if ((codePoint >= 0x1160 && codePoint <= 0x11A7) || (codePoint >= 0xD7B0 && codePoint <= 0xD7C6)) {
+            return HANGUL_V;
+        }
+        if ((codePoint >= 0x11A8 && codePoint <= 0x11FF) || (codePoint >= 0xD7CB && codePoint <= 0xD7FB)) {
+            return HANGUL_T;
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether two adjacent Hangul parts belong to the same syllable.
+     * @param previous the Hangul type of the first code point
+     * @param current the Hangul type of the second code point
+     * @return true if they are joined
+     */
+    private static boolean joinsHangul(int previous, int current) {
+        switch (previous) {
+            case HANGUL_L:
+                return current == HANGUL_L || current == HANGUL_V || current == HANGUL_LV || current == HANGUL_LVT;
+            case HANGUL_LV:
+            case HANGUL_V:
+                return current == HANGUL_V || current == HANGUL_T;
+            case HANGUL_LVT:
+            case HANGUL_T:
+                return current == HANGUL_T;
+            default:
+                return false;
+        }
+    }
+}
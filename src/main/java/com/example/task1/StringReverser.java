@@ -1,11 +1,30 @@
 package com.example.task1;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Class that reverses strings that may contain
  * Unicode characters, emojis, or special symbols.
+ *
+ * Strings are reversed by grapheme cluster (see {@link GraphemeClusters}), so accented letters,
+ * flags, skin tones and emoji joined by ZERO WIDTH JOINER keep their parts in order. Each cluster
+ * is copied once into a buffer of the input's length, so reversing takes linear time.
  */
 public class StringReverser {
 
+    /**
+     * The number of strings a batch worker claims at a time.
+     */
+    private static final int BATCH_BLOCK_SIZE = 4096;
+
     /**
      * Reverses a given string while preserving proper handling of Unicode characters.
      *
@@ -13,14 +32,105 @@ public class StringReverser {
      * @return the reversed version of the input string
      */
     public static String reverse(String input) {
-        int[] unicodeInput = input.codePoints().toArray();
+        return reverse(input, new char[input.length()]);
+    }
 
-        String output = "";
-        for (int i = unicodeInput.length - 1; i >= 0; i--) {
-            String symbol = Character.toString(unicodeInput[i]);
-            output += symbol;
+    /**
+     * Reverses many strings in parallel, one worker per core.
+     *
+     * @param inputs the strings to be reversed
+     * @return the reversed strings, in the order of the inputs
+     */
+    public static List<String> reverseAll(List<String> inputs) {
+        return reverseAll(inputs, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reverses many strings in parallel. Workers claim blocks of strings from a shared counter and
+     * reverse them through their own scratch buffer, which is only grown for longer strings.
+     *
+     * @param inputs the strings to be reversed
+     * @param threads the number of worker threads
+     * @return the reversed strings, in the order of the inputs
+     */
+    public static List<String> reverseAll(List<String> inputs, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
         }
+        String[] outputs = new String[inputs.size()];
+        AtomicInteger nextBlock = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(() -> {
+                    char[] scratch = new char[256];
+                    int from;
+                    while ((from = nextBlock.getAndAdd(BATCH_BLOCK_SIZE)) < outputs.length) {
+                        int to = Math.min(from + BATCH_BLOCK_SIZE, outputs.length);
+                        for (int j = from; j < to; j++) {
+                            String input = inputs.get(j);
+                            if (input.length() > scratch.length) {
+                                scratch = new char[Math.max(input.length(), scratch.length * 2)];
+                            }
+                            outputs[j] = reverse(input, scratch);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reversing strings", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(outputs);
+    }
+
+    /**
+     * Reverses a string by grapheme cluster through a scratch buffer.
+     *
+     * @param input the string to be reversed
+     * @param scratch a buffer at least as long as the input
+     * @return the reversed string
+     */
+    private static String reverse(String input, char[] scratch) {
+        reverse((CharSequence) input, scratch);
+        return new String(scratch, 0, input.length());
+    }
 
-        return output;
+    /**
+     * Reverses a text by grapheme cluster into a buffer.
+     *
+     * @param input the text to be reversed
+     * @param scratch a buffer at least as long as the text, receiving the reversed chars
+     */
+    static void reverse(CharSequence input, char[] scratch) {
+        int length = input.length();
+        int start = 0;
+        while (start < length) {
+            char c = input.charAt(start);
+            if (c >= 0x20 && c < 0x7F && (start + 1 == length || input.charAt(start + 1) < 0x80)) {
+                // Printable ASCII followed by ASCII is a cluster of its own; skip the cluster rules.
+                scratch[length - 1 - start] = c;
+                start++;
+                continue;
+            }
+            int end = GraphemeClusters.next(input, start);
+            // The cluster [start, end) lands at the mirrored position, its chars kept in order.
+            for (int i = start, j = length - end; i < end; i++, j++) {
+                scratch[j] = input.charAt(i);
+            }
+            start = end;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package com.example.task2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Counts words across large files by memory-mapping them in chunks and counting the chunks in parallel.
+ *
+ * Files are split into chunks of about {@link #CHUNK_SIZE} bytes whose boundaries are moved
+ * forward to the next whitespace, so no word is cut in two. Every worker thread takes chunks
+ * from a shared queue and counts into its own {@link WordCountTable} (or {@link SpaceSavingSketch}
+ * for approximate top words); these are merged once all chunks are done.
+ *
+ * Words follow {@link WordFrequencyCounter}: ASCII letters and apostrophes form words, other
+ * characters are dropped without splitting, and whitespace separates words. Bytes are read as is,
+ * so any ASCII-compatible encoding (such as UTF-8) is supported; non-ASCII characters are dropped.
+ */
+public class MappedWordCounter {
+
+    /**
+     * The target size of a chunk: small enough to balance the workers, large enough to amortize mapping.
+     */
+    static final long CHUNK_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * The size of the buffer used to find the whitespace after a chunk boundary.
+     */
+    private static final int BOUNDARY_BUFFER_SIZE = 8192;
+
+    /**
+     * Counts the words of a file, or of every regular file under a directory.
+     *
+     * @param path a file or directory
+     * @param threads the number of worker threads
+     * @return a map of lowercase words and their frequency, in no particular order
+     * @throws IOException if a file can't be read
+     */
+    public static Map<String, Long> count(Path path, int threads) throws IOException {
+        return scan(path, threads, WordCountTable::new, WordCountTable::addAll).toMap();
+    }
+
+    /**
+     * Finds the most frequent words of a file, or of every regular file under a directory, in fixed memory.
+     * Every thread fills its own sketch, and the sketches are merged at the end.
+     *
+     * @param path a file or directory
+     * @param threads the number of worker threads
+     * @param capacity the number of counters of each sketch
+     * @return the merged sketch
+     * @throws IOException if a file can't be read
+     */
+    public static SpaceSavingSketch topWords(Path path, int threads, int capacity) throws IOException {
+        return scan(path, threads, () -> new SpaceSavingSketch(capacity), SpaceSavingSketch::addAll);
+    }
+
+    /**
+     * Tokenizes the chunks of all files on worker threads, each feeding its own sink, and merges the sinks.
+     *
+     * @param path a file or directory
+     * @param threads the number of worker threads
+     * @param newSink creates the sink of a worker
+     * @param merge adds the second sink to the first
+     * @param <T> the type of the sinks
+     * @return the merged sink
+     * @throws IOException if a file can't be read
+     */
+    private static <T extends WordSink> T scan(Path path, int threads, Supplier<T> newSink,
+                                               BiConsumer<T, T> merge) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        Queue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+        for (Path file : listFiles(path)) {
+            chunks.addAll(split(file, CHUNK_SIZE));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<T>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(() -> {
+                    T sink = newSink.get();
+                    WordTokenizer tokenizer = new WordTokenizer();
+                    Chunk chunk;
+                    while ((chunk = chunks.poll()) != null) {
+                        countChunk(chunk, tokenizer, sink);
+                    }
+                    return sink;
+                });
+            }
+
+            List<Future<T>> futures = executor.invokeAll(workers);
+            T merged = futures.get(0).get();
+            for (int i = 1; i < futures.size(); i++) {
+                merge.accept(merged, futures.get(i).get());
+            }
+            return merged;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting words", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists the files to count: the path itself, or the regular files under it, in a stable order.
+     * @param path a file or directory
+     * @return the files
+     * @throws IOException if the directory can't be walked
+     */
+    private static List<Path> listFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            List<Path> files = new ArrayList<>();
+            files.add(path);
+            return files;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Splits a file into chunks of about the given size that start and end at whitespace.
+     *
+     * @param file the file
+     * @param chunkSize the target chunk size in bytes
+     * @return the chunks, covering the whole file
+     * @throws IOException if the file can't be read
+     */
+    static List<Chunk> split(Path file, long chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextWhitespace(channel, start + chunkSize, buffer);
+                chunks.add(new Chunk(file, start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds the first whitespace byte at or after a position.
+     * @param channel the file
+     * @param position the position to start at
+     * @param buffer a scratch buffer
+     * @return the position of the whitespace, or the file size if there is none
+     * @throws IOException if the file can't be read
+     */
+    private static long nextWhitespace(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (WordTokenizer.isWhitespace((char) buffer.get(i))) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Maps a chunk and feeds its words to a sink.
+     *
+     * @param chunk the chunk
+     * @param tokenizer the tokenizer of the current thread
+     * @param sink the receiver of the words
+     */
+    static void countChunk(Chunk chunk, WordTokenizer tokenizer, WordSink sink) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(chunk.file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        tokenizer.tokenize(buffer, 0, buffer.limit(), sink);
+    }
+
+    /**
+     * A byte range of a file, starting and ending at whitespace (or the file start or end).
+     */
+    static class Chunk {
+
+        /**
+         * The file.
+         */
+        final Path file;
+
+        /**
+         * The first byte of the chunk.
+         */
+        final long start;
+
+        /**
+         * The byte after the chunk.
+         */
+        final long end;
+
+        Chunk(Path file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
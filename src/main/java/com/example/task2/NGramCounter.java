@@ -0,0 +1,297 @@
+package com.example.task2;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts n-grams (runs of n consecutive words) in a compact, array-backed trie.
+ *
+ * Words are tokenized like {@link WordFrequencyCounter} and interned into integer IDs, so each
+ * word is stored once however many n-grams it is part of. An n-gram is a path of n word IDs from
+ * the root of a trie; n-grams sharing a prefix share its nodes. Nodes live in parallel primitive
+ * arrays, and the child of a node is found through one open-addressing index keyed by
+ * (parent, word ID), so counting an n-gram already seen allocates nothing. Phrase strings are only
+ * built for the n-grams reaching the minimum count of {@link #toMap}. Not thread-safe.
+ */
+public class NGramCounter implements WordSink {
+
+    /**
+     * The initial number of words and nodes; always a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The number of words in an n-gram.
+     */
+    private final int n;
+
+    /**
+     * The interned words, by ID.
+     */
+    private String[] words = new String[INITIAL_CAPACITY];
+
+    /**
+     * The hash of each interned word, by ID.
+     */
+    private int[] wordHashes = new int[INITIAL_CAPACITY];
+
+    /**
+     * The open-addressing index from words to IDs: ID + 1, or 0 for an empty slot.
+     */
+    private int[] wordIndex = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * The number of interned words.
+     */
+    private int wordCount;
+
+    /**
+     * The parent of each trie node; node 0 is the root.
+     */
+    private int[] parents = new int[INITIAL_CAPACITY];
+
+    /**
+     * The word ID on the edge into each trie node.
+     */
+    private int[] labels = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of times each n-gram ended at a node; only leaves at depth n are counted.
+     */
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    /**
+     * The open-addressing index from (parent, word ID) to child nodes: node + 1, or 0 for an empty slot.
+     */
+    private int[] childIndex = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * The number of trie nodes, including the root.
+     */
+    private int nodeCount = 1;
+
+    /**
+     * The number of distinct n-grams.
+     */
+    private int size;
+
+    /**
+     * The IDs of the last n words, as a ring.
+     */
+    private final int[] recent;
+
+    /**
+     * The number of words seen since the start of the current text, capped at n.
+     */
+    private int filled;
+
+    /**
+     * The position in {@link #recent} of the next word.
+     */
+    private int next;
+
+    /**
+     * The tokenizer of {@link #addText} and {@link #read}.
+     */
+    private final WordTokenizer tokenizer = new WordTokenizer();
+
+    /**
+     * Constructs a counter of n-grams.
+     * @param n the number of words in an n-gram, e.g. 2 for bigrams
+     */
+    public NGramCounter(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("N-gram length must be positive: " + n);
+        }
+        this.n = n;
+        recent = new int[n];
+    }
+
+    /**
+     * Counts the n-grams of a text. N-grams don't span separate texts.
+     *
+     * @param text the text
+     */
+    public void addText(CharSequence text) {
+        tokenizer.tokenize(text, this);
+        filled = 0;
+    }
+
+    /**
+     * Counts the n-grams of all characters of a reader, a block at a time.
+     *
+     * @param reader the reader
+     * @throws IOException if the reader fails
+     */
+    public void read(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            tokenizer.feed(buffer, 0, read, this);
+        }
+        tokenizer.flush(this);
+        filled = 0;
+    }
+
+    @Override
+    public void add(byte[] word, int length, int hash) {
+        recent[next] = intern(word, length, hash);
+        next = (next + 1) % n;
+        if (filled < n) {
+            filled++;
+        }
+        if (filled < n) {
+            return;
+        }
+
+        // The ring now holds the last n words, oldest at next.
+        int node = 0;
+        for (int i = 0; i < n; i++) {
+            node = child(node, recent[(next + i) % n]);
+        }
+        if (counts[node]++ == 0) {
+            size++;
+        }
+    }
+
+    /**
+     * Gets the number of words in an n-gram.
+     * @return n
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * Gets the number of distinct n-grams.
+     * @return the n-gram count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the frequent n-grams into a map.
+     *
+     * @param minCount the minimum count of an n-gram to be included
+     * @return a map of space-joined n-grams and their frequency, in no particular order
+     */
+    public Map<String, Long> toMap(long minCount) {
+        Map<String, Long> map = new HashMap<>();
+        StringBuilder phrase = new StringBuilder();
+        int[] path = new int[n];
+        for (int node = 1; node < nodeCount; node++) {
+            if (counts[node] == 0 || counts[node] < minCount) {
+                continue;
+            }
+            int depth = n;
+            for (int current = node; current != 0; current = parents[current]) {
+                path[--depth] = labels[current];
+            }
+            phrase.setLength(0);
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    phrase.append(' ');
+                }
+                phrase.append(words[path[i]]);
+            }
+            map.put(phrase.toString(), counts[node]);
+        }
+        return map;
+    }
+
+    /**
+     * Gets the ID of a word, interning it the first time it is seen.
+     * @param word the lowercase bytes of the word
+     * @param length the length of the word
+     * @param hash the hash of the word
+     * @return the ID
+     */
+    private int intern(byte[] word, int length, int hash) {
+        int mask = wordIndex.length - 1;
+        int slot = WordCountTable.slotOf(hash, mask);
+        for (int entry; (entry = wordIndex[slot]) != 0; slot = (slot + 1) & mask) {
+            if (wordHashes[entry - 1] == hash && WordTokenizer.matches(words[entry - 1], word, length)) {
+                return entry - 1;
+            }
+        }
+        int id = wordCount++;
+        if (id == words.length) {
+            words = Arrays.copyOf(words, id * 2);
+            wordHashes = Arrays.copyOf(wordHashes, id * 2);
+        }
+        words[id] = new String(word, 0, length, StandardCharsets.ISO_8859_1);
+        wordHashes[id] = hash;
+        wordIndex[slot] = id + 1;
+        if (wordCount * 2 > wordIndex.length) {
+            wordIndex = new int[wordIndex.length * 2];
+            for (int i = 0; i < wordCount; i++) {
+                wordIndex[emptySlot(wordIndex, WordCountTable.slotOf(wordHashes[i], wordIndex.length - 1))] = i + 1;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Gets the child of a node along a word, creating it if needed.
+     * @param parent the parent node
+     * @param label the word ID
+     * @return the child node
+     */
+    private int child(int parent, int label) {
+        int hash = edgeHash(parent, label);
+        int mask = childIndex.length - 1;
+        int slot = WordCountTable.slotOf(hash, mask);
+        for (int entry; (entry = childIndex[slot]) != 0; slot = (slot + 1) & mask) {
+            if (parents[entry - 1] == parent && labels[entry - 1] == label) {
+                return entry - 1;
+            }
+        }
+        int node = nodeCount++;
+        if (node == parents.length) {
+            parents = Arrays.copyOf(parents, node * 2);
+            labels = Arrays.copyOf(labels, node * 2);
+            counts = Arrays.copyOf(counts, node * 2);
+        }
+        parents[node] = parent;
+        labels[node] = label;
+        childIndex[slot] = node + 1;
+        if (nodeCount * 2 > childIndex.length) {
+            childIndex = new int[childIndex.length * 2];
+            for (int i = 1; i < nodeCount; i++) {
+                int home = WordCountTable.slotOf(edgeHash(parents[i], labels[i]), childIndex.length - 1);
+                childIndex[emptySlot(childIndex, home)] = i + 1;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Hashes a trie edge.
+     * @param parent the parent node
+     * @param label the word ID
+     * @return the hash
+     */
+    private static int edgeHash(int parent, int label) {
+        return parent * 92821 + label;
+    }
+
+    /**
+     * Finds the first empty slot of an index at or after a home slot.
+     * @param index the index
+     * @param home the home slot
+     * @return the slot
+     */
+    private static int emptySlot(int[] index, int home) {
+        int mask = index.length - 1;
+        int slot = home;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
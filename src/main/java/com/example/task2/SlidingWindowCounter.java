@@ -0,0 +1,683 @@
+package com.example.task2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Word counts over a sliding window of a live stream, such as a tailed log or stdin.
+ *
+ * The window is a ring of buckets, each holding the counts of the words added while it was current.
+ * A time window moves to the next bucket every window / buckets; a count window after every
+ * window / buckets words. The bucket that is reused is expired first, so the window covers the
+ * current bucket plus the buckets - 1 before it.
+ *
+ * The window totals are kept in a Stream-Summary: words are grouped by count, and the groups form
+ * a list sorted by count. Adding a word moves it to the next group, and expiring a bucket moves each
+ * of its words down by its count in that bucket, so every word occurrence is moved up once and down
+ * once: O(1) amortized per word. The top words are read from the highest groups at any moment.
+ *
+ * Words follow {@link WordFrequencyCounter}. Public methods are synchronized, so one thread can read
+ * a stream while others query the counts.
+ */
+public class SlidingWindowCounter implements WordSink {
+
+    /**
+     * Marks a missing entry or group link.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The number of buckets in the ring.
+     */
+    private final int bucketCount;
+
+    /**
+     * The length of a bucket: milliseconds for a time window, words for a count window.
+     */
+    private final long bucketLength;
+
+    /**
+     * The clock of a time window in milliseconds, or null for a count window.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The ring of buckets.
+     */
+    private final BucketCounts[] buckets;
+
+    /**
+     * The index of the current bucket.
+     */
+    private int current;
+
+    /**
+     * When the current bucket started: a clock time, or the number of words it holds for a count window.
+     */
+    private long currentStart;
+
+    /**
+     * The tokenizer of {@link #addText} and {@link #read}.
+     */
+    private final WordTokenizer tokenizer = new WordTokenizer();
+
+    /**
+     * The word of each entry.
+     */
+    private String[] words = new String[256];
+
+    /**
+     * The hash of each entry's word.
+     */
+    private int[] hashes = new int[256];
+
+    /**
+     * The window count of each entry.
+     */
+    private long[] counts = new long[256];
+
+    /**
+     * The group of each entry.
+     */
+    private int[] entryGroups = new int[256];
+
+    /**
+     * The previous entry in the same group.
+     */
+    private int[] entryPrev = new int[256];
+
+    /**
+     * The next entry in the same group, or the next free entry.
+     */
+    private int[] entryNext = new int[256];
+
+    /**
+     * The number of entry slots ever used.
+     */
+    private int entrySlots;
+
+    /**
+     * The first free entry, or NONE.
+     */
+    private int freeEntry = NONE;
+
+    /**
+     * The number of words in the window.
+     */
+    private int distinct;
+
+    /**
+     * The open-addressing index from words to entries: entry + 1, or 0 for an empty slot.
+     */
+    private int[] index = new int[512];
+
+    /**
+     * The count shared by the entries of each group.
+     */
+    private long[] groupCounts = new long[64];
+
+    /**
+     * The first entry of each group.
+     */
+    private int[] groupHeads = new int[64];
+
+    /**
+     * The group with the next lower count.
+     */
+    private int[] groupPrev = new int[64];
+
+    /**
+     * The group with the next higher count, or the next free group.
+     */
+    private int[] groupNext = new int[64];
+
+    /**
+     * The number of group slots ever used.
+     */
+    private int groupSlots;
+
+    /**
+     * The first free group, or NONE.
+     */
+    private int freeGroup = NONE;
+
+    /**
+     * The group with the lowest count, or NONE.
+     */
+    private int lowestGroup = NONE;
+
+    /**
+     * The group with the highest count, or NONE.
+     */
+    private int highestGroup = NONE;
+
+    /**
+     * The number of words in the window, counting repeats.
+     */
+    private long total;
+
+    /**
+     * Constructs a window.
+     * @param bucketCount the number of buckets
+     * @param bucketLength the length of a bucket
+     * @param clock the millisecond clock of a time window, or null for a count window
+     */
+    private SlidingWindowCounter(int bucketCount, long bucketLength, LongSupplier clock) {
+        if (bucketCount <= 0 || bucketLength <= 0) {
+            throw new IllegalArgumentException("Window and bucket count must be positive");
+        }
+        this.bucketCount = bucketCount;
+        this.bucketLength = bucketLength;
+        this.clock = clock;
+        buckets = new BucketCounts[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new BucketCounts();
+        }
+        currentStart = clock == null ? 0 : clock.getAsLong();
+    }
+
+    /**
+     * Creates a window over the words of the last period of time.
+     *
+     * @param window the length of the window
+     * @param buckets the number of buckets; more buckets slide more smoothly
+     * @return the counter
+     */
+    public static SlidingWindowCounter ofTime(Duration window, int buckets) {
+        return ofTime(window, buckets, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a window over the words of the last period of time, measured by the given clock.
+     *
+     * @param window the length of the window
+     * @param buckets the number of buckets
+     * @param clock the clock, in milliseconds
+     * @return the counter
+     */
+    public static SlidingWindowCounter ofTime(Duration window, int buckets, LongSupplier clock) {
+        return new SlidingWindowCounter(buckets, Math.max(1, window.toMillis() / Math.max(1, buckets)), clock);
+    }
+
+    /**
+     * Creates a window over the last words of the stream.
+     *
+     * @param window the number of words in the window
+     * @param buckets the number of buckets
+     * @return the counter
+     */
+    public static SlidingWindowCounter ofCount(long window, int buckets) {
+        return new SlidingWindowCounter(buckets, Math.max(1, window / Math.max(1, buckets)), null);
+    }
+
+    /**
+     * Reads a stream of UTF-8 text until its end, counting its words as they arrive.
+     *
+     * @param in the stream
+     * @throws IOException if the stream can't be read
+     */
+    public void read(InputStream in) throws IOException {
+        read(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads characters until the end of the reader, counting words as they arrive.
+     * The lock is only held while a block of characters is counted, not while waiting for input.
+     *
+     * @param reader the reader
+     * @throws IOException if the reader fails
+     */
+    public void read(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            synchronized (this) {
+                tokenizer.feed(buffer, 0, read, this);
+            }
+        }
+        synchronized (this) {
+            tokenizer.flush(this);
+        }
+    }
+
+    /**
+     * Counts the words of a text.
+     *
+     * @param text the text
+     */
+    public synchronized void addText(CharSequence text) {
+        tokenizer.tokenize(text, this);
+    }
+
+    @Override
+    public synchronized void add(byte[] word, int length, int hash) {
+        if (clock == null && currentStart == bucketLength) {
+            rotate();
+            currentStart = 0;
+        }
+        advance();
+        int mask = index.length - 1;
+        int slot = WordCountTable.slotOf(hash, mask);
+        int entry = NONE;
+        for (int e; (e = index[slot]) != 0; slot = (slot + 1) & mask) {
+            if (hashes[e - 1] == hash && WordTokenizer.matches(words[e - 1], word, length)) {
+                entry = e - 1;
+                break;
+            }
+        }
+        if (entry == NONE) {
+            entry = newEntry(new String(word, 0, length, StandardCharsets.ISO_8859_1), hash, slot);
+        }
+        adjust(entry, 1);
+        buckets[current].add(entry);
+        total++;
+        if (clock == null) {
+            currentStart++;
+        }
+    }
+
+    /**
+     * Gets the most frequent words of the window.
+     *
+     * @param n the maximum number of words
+     * @return the words and their counts, by count (descending), then alphabetically
+     */
+    public synchronized Map<String, Long> getTop(int n) {
+        advance();
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (int group = highestGroup; group != NONE && top.size() < n; group = groupPrev[group]) {
+            List<String> tied = new ArrayList<>();
+            for (int entry = groupHeads[group]; entry != NONE; entry = entryNext[entry]) {
+                tied.add(words[entry]);
+            }
+            Collections.sort(tied);
+            for (int i = 0; i < tied.size() && top.size() < n; i++) {
+                top.put(tied.get(i), groupCounts[group]);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Gets the count of a word in the window.
+     *
+     * @param word the lowercase word
+     * @return the count, 0 if the word is not in the window
+     */
+    public synchronized long get(String word) {
+        advance();
+        int hash = word.hashCode();
+        int mask = index.length - 1;
+        for (int slot = WordCountTable.slotOf(hash, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = index[slot] - 1;
+            if (hashes[entry] == hash && words[entry].equals(word)) {
+                return counts[entry];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of words in the window, counting repeats.
+     * @return the word count
+     */
+    public synchronized long getTotal() {
+        advance();
+        return total;
+    }
+
+    /**
+     * Gets the number of distinct words in the window.
+     * @return the distinct word count
+     */
+    public synchronized int getDistinct() {
+        advance();
+        return distinct;
+    }
+
+    /**
+     * Moves a time window to the next bucket for every bucket length that has passed, expiring the
+     * reused buckets. A count window moves when a word arrives into a full bucket instead.
+     */
+    private void advance() {
+        if (clock == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        int rotations = 0;
+        while (now - currentStart >= bucketLength && rotations < bucketCount) {
+            rotate();
+            currentStart += bucketLength;
+            rotations++;
+        }
+        if (now - currentStart >= bucketLength) {
+            // Idle for longer than the window: everything has expired already.
+            currentStart = now - (now - currentStart) % bucketLength;
+        }
+    }
+
+    /**
+     * Makes the oldest bucket current, taking its words out of the window.
+     */
+    private void rotate() {
+        current = (current + 1) % bucketCount;
+        BucketCounts expired = buckets[current];
+        for (int i = 0; i < expired.size; i++) {
+            int slot = expired.used[i];
+            int entry = expired.keys[slot] - 1;
+            long count = expired.values[slot];
+            total -= count;
+            adjust(entry, -count);
+        }
+        expired.clear();
+    }
+
+    /**
+     * Changes the window count of an entry, moving it to the group of its new count.
+     * Groups are walked one by one, so the cost is at most |delta| steps.
+     * An entry whose count drops to zero is removed.
+     *
+     * @param entry the entry
+     * @param delta the change of its count
+     */
+    private void adjust(int entry, long delta) {
+        int from = entryGroups[entry];
+        long count = counts[entry] + delta;
+        counts[entry] = count;
+        if (from != NONE) {
+            unlinkEntry(entry, from);
+        }
+
+        if (count == 0) {
+            if (groupHeads[from] == NONE) {
+                freeGroup(from);
+            }
+            removeEntry(entry);
+            return;
+        }
+
+        int target;
+        if (from == NONE || delta > 0) {
+            // Walk up from the old group (or from below the lowest group for a new entry).
+            int below = from;
+            int above = from == NONE ? lowestGroup : groupNext[from];
+            while (above != NONE && groupCounts[above] < count) {
+                below = above;
+                above = groupNext[above];
+            }
+            target = above != NONE && groupCounts[above] == count ? above : newGroupAfter(below, count);
+        } else {
+            int above = from;
+            int below = groupPrev[from];
+            while (below != NONE && groupCounts[below] > count) {
+                above = below;
+                below = groupPrev[below];
+            }
+            target = below != NONE && groupCounts[below] == count ? below : newGroupAfter(below, count);
+        }
+
+        entryGroups[entry] = target;
+        entryPrev[entry] = NONE;
+        entryNext[entry] = groupHeads[target];
+        if (groupHeads[target] != NONE) {
+            entryPrev[groupHeads[target]] = entry;
+        }
+        groupHeads[target] = entry;
+
+        if (from != NONE && groupHeads[from] == NONE) {
+            freeGroup(from);
+        }
+    }
+
+    /**
+     * Takes an entry out of its group's entry list.
+     * @param entry the entry
+     * @param group the group
+     */
+    private void unlinkEntry(int entry, int group) {
+        if (entryPrev[entry] != NONE) {
+            entryNext[entryPrev[entry]] = entryNext[entry];
+        } else {
+            groupHeads[group] = entryNext[entry];
+        }
+        if (entryNext[entry] != NONE) {
+            entryPrev[entryNext[entry]] = entryPrev[entry];
+        }
+        entryGroups[entry] = NONE;
+    }
+
+    /**
+     * Creates an empty group and links it into the group list.
+     * @param below the group to insert after, or NONE to insert at the start
+     * @param count the count of the group
+     * @return the group
+     */
+    private int newGroupAfter(int below, long count) {
+        int group;
+        if (freeGroup != NONE) {
+            group = freeGroup;
+            freeGroup = groupNext[group];
+        } else {
+            if (groupSlots == groupCounts.length) {
+                int capacity = groupSlots * 2;
+                groupCounts = Arrays.copyOf(groupCounts, capacity);
+                groupHeads = Arrays.copyOf(groupHeads, capacity);
+                groupPrev = Arrays.copyOf(groupPrev, capacity);
+                groupNext = Arrays.copyOf(groupNext, capacity);
+            }
+            group = groupSlots++;
+        }
+        groupCounts[group] = count;
+        groupHeads[group] = NONE;
+        int above = below == NONE ? lowestGroup : groupNext[below];
+        groupPrev[group] = below;
+        groupNext[group] = above;
+        if (below == NONE) {
+            lowestGroup = group;
+        } else {
+            groupNext[below] = group;
+        }
+        if (above == NONE) {
+            highestGroup = group;
+        } else {
+            groupPrev[above] = group;
+        }
+        return group;
+    }
+
+    /**
+     * Unlinks an empty group from the group list and frees it.
+     * @param group the group
+     */
+    private void freeGroup(int group) {
+        int below = groupPrev[group];
+        int above = groupNext[group];
+        if (below == NONE) {
+            lowestGroup = above;
+        } else {
+            groupNext[below] = above;
+        }
+        if (above == NONE) {
+            highestGroup = below;
+        } else {
+            groupPrev[above] = below;
+        }
+        groupNext[group] = freeGroup;
+        freeGroup = group;
+    }
+
+    /**
+     * Creates an entry with a zero count and indexes it.
+     * @param word the word
+     * @param hash the hash of the word
+     * @param slot the empty index slot for the word
+     * @return the entry
+     */
+    private int newEntry(String word, int hash, int slot) {
+        int entry;
+        if (freeEntry != NONE) {
+            entry = freeEntry;
+            freeEntry = entryNext[entry];
+        } else {
+            if (entrySlots == words.length) {
+                int capacity = entrySlots * 2;
+                words = Arrays.copyOf(words, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                entryGroups = Arrays.copyOf(entryGroups, capacity);
+                entryPrev = Arrays.copyOf(entryPrev, capacity);
+                entryNext = Arrays.copyOf(entryNext, capacity);
+            }
+            entry = entrySlots++;
+        }
+        words[entry] = word;
+        hashes[entry] = hash;
+        counts[entry] = 0;
+        entryGroups[entry] = NONE;
+        index[slot] = entry + 1;
+        if (++distinct * 2 > index.length) {
+            rehash(index.length * 2);
+        }
+        return entry;
+    }
+
+    /**
+     * Removes an entry whose count dropped to zero from the index and frees it.
+     * Later entries of its probe run are shifted back into the gap.
+     * @param entry the entry
+     */
+    private void removeEntry(int entry) {
+        int mask = index.length - 1;
+        int slot = WordCountTable.slotOf(hashes[entry], mask);
+        while (index[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for (slot = (gap + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int home = WordCountTable.slotOf(hashes[index[slot] - 1], mask);
+            // Move the entry if its home slot is not cyclically within (gap, slot].
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                index[gap] = index[slot];
+                gap = slot;
+            }
+        }
+        index[gap] = 0;
+
+        words[entry] = null;
+        entryNext[entry] = freeEntry;
+        freeEntry = entry;
+        distinct--;
+    }
+
+    /**
+     * Rebuilds the index with a new size.
+     * @param size the new number of slots, a power of two
+     */
+    private void rehash(int size) {
+        int[] old = index;
+        index = new int[size];
+        int mask = size - 1;
+        for (int value : old) {
+            if (value != 0) {
+                int slot = WordCountTable.slotOf(hashes[value - 1], mask);
+                while (index[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * The counts of the entries added while a bucket was current, in an open-addressing table.
+     */
+    private static class BucketCounts {
+
+        /**
+         * The entries, entry + 1, or 0 for an empty slot.
+         */
+        int[] keys = new int[64];
+
+        /**
+         * The count of each entry, parallel to {@link #keys}.
+         */
+        long[] values = new long[64];
+
+        /**
+         * The occupied slots, in insertion order; only the first {@link #size} are used.
+         */
+        int[] used = new int[32];
+
+        /**
+         * The number of occupied slots.
+         */
+        int size;
+
+        /**
+         * Counts one occurrence of an entry.
+         * @param entry the entry
+         */
+        void add(int entry) {
+            int mask = keys.length - 1;
+            int slot = WordCountTable.slotOf(entry, mask);
+            while (keys[slot] != 0) {
+                if (keys[slot] == entry + 1) {
+                    values[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry + 1;
+            values[slot] = 1;
+            if (size == used.length) {
+                used = Arrays.copyOf(used, size * 2);
+            }
+            used[size++] = slot;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        /**
+         * Empties the bucket, touching only the occupied slots.
+         */
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                keys[used[i]] = 0;
+            }
+            size = 0;
+        }
+
+        /**
+         * Doubles the table and rehashes the entries.
+         */
+        private void grow() {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new long[keys.length];
+            int mask = keys.length - 1;
+            for (int i = 0; i < size; i++) {
+                int oldSlot = used[i];
+                int slot = WordCountTable.slotOf(oldKeys[oldSlot] - 1, mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[oldSlot];
+                values[slot] = oldValues[oldSlot];
+                used[i] = slot;
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.task2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate top-K word counts in fixed memory, with the Space-Saving algorithm.
+ *
+ * The sketch keeps at most {@code capacity} counters. A new word takes over the counter with
+ * the smallest count and inherits that count as its error. Every reported count is then at most
+ * its error above the true count, and every error is at most N / capacity for a stream of N words,
+ * so any word occurring more than N / capacity times is guaranteed to be in the sketch.
+ *
+ * Counters are found through an open-addressing index keyed by word slices, and kept in a min-heap
+ * by count, so an update costs O(log capacity) and counting a word already in the sketch allocates
+ * nothing. Sketches of different threads or files are merged with {@link #addAll}.
+ * Not thread-safe: use one sketch per thread.
+ */
+public class SpaceSavingSketch implements WordSink {
+
+    /**
+     * The maximum number of counters.
+     */
+    private final int capacity;
+
+    /**
+     * The word of each counter.
+     */
+    private final String[] words;
+
+    /**
+     * The hash of each counter's word.
+     */
+    private final int[] hashes;
+
+    /**
+     * The estimated count of each counter.
+     */
+    private final long[] counts;
+
+    /**
+     * The maximum overestimation of each counter's count.
+     */
+    private final long[] errors;
+
+    /**
+     * The counters ordered as a binary min-heap by count; only the first {@link #size} are used.
+     */
+    private final int[] heap;
+
+    /**
+     * The position of each counter in {@link #heap}.
+     */
+    private final int[] heapPositions;
+
+    /**
+     * The open-addressing index from words to counters: counter + 1, or 0 for an empty slot.
+     */
+    private final int[] index;
+
+    /**
+     * The number of counters in use.
+     */
+    private int size;
+
+    /**
+     * The number of words added to the sketch, including merged sketches.
+     */
+    private long total;
+
+    /**
+     * The tokenizer of {@link #addText} and {@link #addBytes}.
+     */
+    private final WordTokenizer tokenizer = new WordTokenizer();
+
+    /**
+     * Constructs a sketch with a fixed number of counters.
+     * @param capacity the number of counters; counts are overestimated by at most N / capacity
+     */
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        words = new String[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapPositions = new int[capacity];
+        index = new int[Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1];
+    }
+
+    /**
+     * Constructs a sketch whose counts are overestimated by at most a fraction of the stream length.
+     *
+     * @param relativeError the maximum error as a fraction of the number of words, e.g. 0.001
+     * @return a sketch with ceil(1 / relativeError) counters
+     */
+    public static SpaceSavingSketch withRelativeError(double relativeError) {
+        if (!(relativeError > 0 && relativeError <= 1)) {
+            throw new IllegalArgumentException("Relative error must be in (0, 1]: " + relativeError);
+        }
+        return new SpaceSavingSketch((int) Math.ceil(1 / relativeError));
+    }
+
+    /**
+     * Counts the words of a text.
+     *
+     * @param text the text
+     */
+    public void addText(CharSequence text) {
+        tokenizer.tokenize(text, this);
+    }
+
+    /**
+     * Counts the words of a range of bytes in an ASCII-compatible encoding such as UTF-8.
+     *
+     * @param buffer the bytes, read with absolute gets
+     * @param from the first byte
+     * @param to the byte after the range
+     */
+    public void addBytes(ByteBuffer buffer, int from, int to) {
+        tokenizer.tokenize(buffer, from, to, this);
+    }
+
+    @Override
+    public void add(byte[] word, int length, int hash) {
+        total++;
+        int mask = index.length - 1;
+        int slot = WordCountTable.slotOf(hash, mask);
+        for (int entry; (entry = index[slot]) != 0; slot = (slot + 1) & mask) {
+            int counter = entry - 1;
+            if (hashes[counter] == hash && WordTokenizer.matches(words[counter], word, length)) {
+                counts[counter]++;
+                siftDown(heapPositions[counter]);
+                return;
+            }
+        }
+
+        String text = new String(word, 0, length, StandardCharsets.ISO_8859_1);
+        if (size < capacity) {
+            int counter = size++;
+            store(counter, slot, text, hash, 1, 0);
+            heap[counter] = counter;
+            heapPositions[counter] = counter;
+            siftUp(counter);
+            return;
+        }
+
+        // Replace the smallest counter; its count becomes the error of the new word.
+        int counter = heap[0];
+        unindex(counter);
+        long minimum = counts[counter];
+        store(counter, findEmptySlot(hash), text, hash, minimum + 1, minimum);
+        siftDown(0);
+    }
+
+    /**
+     * Merges another sketch into this one, as if this sketch had also seen the other's words.
+     * A word missing from a full sketch may have occurred up to that sketch's smallest count,
+     * so that count is added to its estimate and error. The largest counters are kept.
+     *
+     * @param other a sketch of another thread or file
+     */
+    public void addAll(SpaceSavingSketch other) {
+        long ownMissing = size < capacity ? 0 : counts[heap[0]];
+        long otherMissing = other.size < other.capacity ? 0 : other.counts[other.heap[0]];
+
+        Map<String, long[]> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            merged.put(words[i], new long[] {counts[i] + otherMissing, errors[i] + otherMissing});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] entry = merged.get(other.words[i]);
+            if (entry == null) {
+                merged.put(other.words[i], new long[] {other.counts[i] + ownMissing, other.errors[i] + ownMissing});
+            } else {
+                entry[0] += other.counts[i] - otherMissing;
+                entry[1] += other.errors[i] - otherMissing;
+            }
+        }
+
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue()[0], e1.getValue()[0]));
+        Arrays.fill(index, 0);
+        size = 0;
+        for (int i = 0; i < Math.min(capacity, entries.size()); i++) {
+            Map.Entry<String, long[]> entry = entries.get(i);
+            int hash = entry.getKey().hashCode();
+            int counter = size++;
+            store(counter, findEmptySlot(hash), entry.getKey(), hash, entry.getValue()[0], entry.getValue()[1]);
+            heap[counter] = counter;
+            heapPositions[counter] = counter;
+            siftUp(counter);
+        }
+        total += other.total;
+    }
+
+    /**
+     * Gets the words with the highest estimated counts.
+     *
+     * @param k the maximum number of words
+     * @return the words, by estimated count (descending), then alphabetically
+     */
+    public List<WordEstimate> getTop(int k) {
+        List<WordEstimate> estimates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            estimates.add(new WordEstimate(words[i], counts[i], errors[i]));
+        }
+        estimates.sort((e1, e2) -> {
+            int compare = Long.compare(e2.getCount(), e1.getCount());
+            return compare != 0 ? compare : e1.getWord().compareTo(e2.getWord());
+        });
+        return estimates.subList(0, Math.min(k, estimates.size()));
+    }
+
+    /**
+     * Gets the number of counters.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of words added to the sketch.
+     * @return the stream length N
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the largest possible overestimation of any count: N / capacity.
+     * @return the error bound
+     */
+    public long getErrorBound() {
+        return total / capacity;
+    }
+
+    /**
+     * Fills a counter and indexes it.
+     * @param counter the counter
+     * @param slot the empty index slot for the word
+     * @param word the word
+     * @param hash the hash of the word
+     * @param count the estimated count
+     * @param error the maximum overestimation
+     */
+    private void store(int counter, int slot, String word, int hash, long count, long error) {
+        words[counter] = word;
+        hashes[counter] = hash;
+        counts[counter] = count;
+        errors[counter] = error;
+        index[slot] = counter + 1;
+    }
+
+    /**
+     * Finds the first empty index slot in the probe sequence of a hash.
+     * @param hash the hash
+     * @return the slot
+     */
+    private int findEmptySlot(int hash) {
+        int mask = index.length - 1;
+        int slot = WordCountTable.slotOf(hash, mask);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes a counter from the index, shifting later entries of its probe run back into the gap.
+     * @param counter the counter
+     */
+    private void unindex(int counter) {
+        int mask = index.length - 1;
+        int slot = WordCountTable.slotOf(hashes[counter], mask);
+        while (index[slot] != counter + 1) {
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for (slot = (gap + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int home = WordCountTable.slotOf(hashes[index[slot] - 1], mask);
+            // Move the entry if its home slot is not cyclically within (gap, slot].
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                index[gap] = index[slot];
+                gap = slot;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    /**
+     * Moves a heap entry up while it is smaller than its parent.
+     * @param position the heap position
+     */
+    private void siftUp(int position) {
+        int counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter]) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(counter, position);
+    }
+
+    /**
+     * Moves a heap entry down while it is larger than one of its children.
+     * @param position the heap position
+     */
+    private void siftDown(int position) {
+        int counter = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[heap[child]] >= counts[counter]) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(counter, position);
+    }
+
+    /**
+     * Puts a counter at a heap position.
+     * @param counter the counter
+     * @param position the heap position
+     */
+    private void place(int counter, int position) {
+        heap[position] = counter;
+        heapPositions[counter] = position;
+    }
+
+    /**
+     * An estimated word count.
+     */
+    public static class WordEstimate {
+
+        /**
+         * The word.
+         */
+        private final String word;
+
+        /**
+         * The estimated count, never below the true count.
+         */
+        private final long count;
+
+        /**
+         * The maximum overestimation of the count.
+         */
+        private final long error;
+
+        /**
+         * Constructs an estimate.
+         * @param word the word
+         * @param count the estimated count
+         * @param error the maximum overestimation
+         */
+        public WordEstimate(String word, long count, long error) {
+            this.word = word;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Gets the word.
+         * @return the word
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * Gets the estimated count, which is never below the true count.
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the maximum overestimation: the true count is between count - error and count.
+         * @return the error
+         */
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return word + " - " + count + (error > 0 ? " (max error " + error + ")" : "");
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.task2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts words exactly in an open-addressing hash table with primitive counts.
+ *
+ * Words come from a {@link WordTokenizer} as slices of its scratch buffer and are looked up by
+ * slice and hash, so counting a word already in the table allocates nothing; a String is only
+ * created the first time a word is seen. The hash of a slice equals {@link String#hashCode()}
+ * of the word, so String keys can be added and looked up as well. Not thread-safe:
+ * use one table per thread and merge them with {@link #addAll}.
+ */
+public class WordCountTable implements WordSink {
+
+    /**
+     * The initial number of slots; always a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The words, in an open-addressing table; null marks an empty slot.
+     */
+    private String[] words = new String[INITIAL_CAPACITY];
+
+    /**
+     * The hashes of the words, parallel to {@link #words}.
+     */
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    /**
+     * The counts of the words, parallel to {@link #words}.
+     */
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    /**
+     * The number of distinct words.
+     */
+    private int size;
+
+    /**
+     * The tokenizer of {@link #addText} and {@link #addBytes}.
+     */
+    private final WordTokenizer tokenizer = new WordTokenizer();
+
+    /**
+     * Counts the words of a text.
+     *
+     * @param text the text
+     */
+    public void addText(CharSequence text) {
+        tokenizer.tokenize(text, this);
+    }
+
+    /**
+     * Counts the words of a range of bytes in an ASCII-compatible encoding such as UTF-8.
+     *
+     * @param buffer the bytes, read with absolute gets
+     * @param from the first byte
+     * @param to the byte after the range
+     */
+    public void addBytes(ByteBuffer buffer, int from, int to) {
+        tokenizer.tokenize(buffer, from, to, this);
+    }
+
+    @Override
+    public void add(byte[] word, int length, int hash) {
+        int mask = words.length - 1;
+        int slot = slotOf(hash, mask);
+        while (words[slot] != null) {
+            if (hashes[slot] == hash && WordTokenizer.matches(words[slot], word, length)) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, new String(word, 0, length, StandardCharsets.ISO_8859_1), hash, 1);
+    }
+
+    /**
+     * Adds a count to a word.
+     *
+     * @param word the lowercase word
+     * @param count the count to add
+     */
+    public void add(String word, long count) {
+        int hash = word.hashCode();
+        int mask = words.length - 1;
+        int slot = slotOf(hash, mask);
+        while (words[slot] != null) {
+            if (hashes[slot] == hash && words[slot].equals(word)) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, word, hash, count);
+    }
+
+    /**
+     * Adds all counts of another table to this one.
+     *
+     * @param other the other table
+     */
+    public void addAll(WordCountTable other) {
+        for (int slot = 0; slot < other.words.length; slot++) {
+            if (other.words[slot] != null) {
+                add(other.words[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Gets the count of a word.
+     *
+     * @param word the lowercase word
+     * @return the count, 0 if the word was never seen
+     */
+    public long get(String word) {
+        int hash = word.hashCode();
+        int mask = words.length - 1;
+        for (int slot = slotOf(hash, mask); words[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && words[slot].equals(word)) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of distinct words.
+     * @return the word count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the counts into a map.
+     * @return a map of words and their frequency, in no particular order
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new HashMap<>(size * 2);
+        for (int slot = 0; slot < words.length; slot++) {
+            if (words[slot] != null) {
+                map.put(words[slot], counts[slot]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Stores a new word in an empty slot, growing the table past half full.
+     * @param slot the empty slot
+     * @param word the word
+     * @param hash the hash of the word
+     * @param count the count of the word
+     */
+    private void insert(int slot, String word, int hash, long count) {
+        words[slot] = word;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        if (++size * 2 > words.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Doubles the table and rehashes every word.
+     */
+    private void grow() {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        words = new String[oldWords.length * 2];
+        hashes = new int[words.length];
+        counts = new long[words.length];
+        int mask = words.length - 1;
+        for (int i = 0; i < oldWords.length; i++) {
+            if (oldWords[i] != null) {
+                int slot = slotOf(oldHashes[i], mask);
+                while (words[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the home slot of a hash, spread so that similar words don't cluster.
+     * @param hash the hash
+     * @param mask the table size minus one
+     * @return the slot
+     */
+    static int slotOf(int hash, int mask) {
+        return (hash * 0x9E3779B9 >>> 16 ^ hash) & mask;
+    }
+}
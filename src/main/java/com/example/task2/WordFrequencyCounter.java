@@ -1,8 +1,18 @@
 package com.example.task2;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class for analyzing word frequency in a given text.
@@ -16,66 +26,133 @@ public class WordFrequencyCounter {
      * @param input the input text to analyze
      */
     public static void countWords(String input) {
-        String[] words = getWords(input);
-        HashMap<String, Integer> wordsFrequency = getWordsFrequency(words);
-        Map<String, Integer> sortedWordsFrequency = getSortedWordsFrequency(wordsFrequency);
+        printWordsFrequency(getWordsFrequency(input));
+    }
 
-        printWordsFrequency(sortedWordsFrequency);
+    /**
+     * Counts the words of a text. Words are runs of letters and apostrophes separated by
+     * whitespace; other characters are dropped and case is ignored.
+     * @param input the input text to analyze
+     * @return a map of lowercase words and their frequency, sorted by frequency (descending),
+     *         then alphabetically
+     */
+    public static Map<String, Long> getWordsFrequency(String input) {
+        WordCountTable counts = new WordCountTable();
+        counts.addText(input);
+        return getSortedWordsFrequency(counts.toMap());
     }
 
     /**
-     * Prints each word and its frequency from the provided map.
-     * @param wordsFrequency a map of words and their frequency
+     * Counts the n-grams (runs of n consecutive words) of a text, with words as in {@link #getWordsFrequency}.
+     * @param input the input text to analyze
+     * @param n the number of words in an n-gram, e.g. 2 for bigrams
+     * @param minCount the minimum count of an n-gram to be included
+     * @return a map of space-joined n-grams and their frequency, sorted by frequency (descending),
+     *         then alphabetically
      */
-    private static void printWordsFrequency(Map<String, Integer> wordsFrequency) {
-        System.out.println("Words Frequency Analysis: ");
-        for (String word : wordsFrequency.keySet()) {
-            System.out.println(word + " - " + wordsFrequency.get(word));
-        }
+    public static Map<String, Long> getNGramsFrequency(String input, int n, long minCount) {
+        NGramCounter counter = new NGramCounter(n);
+        counter.addText(input);
+        return getSortedWordsFrequency(counter.toMap(minCount));
     }
 
     /**
-     * Cleans the input string from non-letter characters.
-     * Trims, splits and lowers the provided string.
-     * @param input the raw text
-     * @return an array of cleaned, lowercase words
+     * Counts the n-grams of a file, reading it a block at a time, and prints those reaching a minimum count.
+     * @param path the file path
+     * @param n the number of words in an n-gram, e.g. 2 for bigrams
+     * @param minCount the minimum count of an n-gram to be printed
      */
-    private static String[] getWords(String input) {
-        // Removes all non-letter characters with space.
-        input = input.replaceAll("[^'a-zA-Z\\s]+", "");
+    public static void countNGramsInFile(String path, int n, long minCount) {
+        NGramCounter counter = new NGramCounter(n);
+        try (Reader reader = new InputStreamReader(Files.newInputStream(Paths.get(path)), StandardCharsets.UTF_8)) {
+            counter.read(reader);
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        printWordsFrequency(getSortedWordsFrequency(counter.toMap(minCount)));
+    }
 
-        // Splits the words by space as delimiter, ignores upper/lower case
-        String[] words = input.trim().toLowerCase().split(" ");
-        return words;
+    /**
+     * Counts the words of a file, or of every file under a directory, and prints their frequencies.
+     * Files are memory-mapped and counted in parallel by {@link MappedWordCounter}, one thread per core.
+     * @param path the file or directory path
+     */
+    public static void countWordsInFiles(String path) {
+        try {
+            Map<String, Long> wordsFrequency = MappedWordCounter.count(Paths.get(path),
+                    Runtime.getRuntime().availableProcessors());
+            printWordsFrequency(getSortedWordsFrequency(wordsFrequency));
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
     }
 
     /**
-     * Counts the frequency of each word and
-     * saves it to a HashMap.
-     * @param words array of words to be counted
-     * @return a HashMap of words and their frequency
+     * Prints the most frequent words of a file, or of every file under a directory, in fixed memory.
+     * Counts are approximate: each is printed with its maximum overestimation, and no count is more
+     * than relativeError times the number of words too high.
+     * @param path the file or directory path
+     * @param k the number of words to print
+     * @param relativeError the maximum error as a fraction of the number of words, e.g. 0.0001
      */
-    private static HashMap<String, Integer> getWordsFrequency(String[] words) {
-        HashMap<String, Integer> wordsFrequency = new HashMap<String, Integer>();
-        for (String word : words) {
-            if (wordsFrequency.containsKey(word)) {
-                wordsFrequency.put(word, wordsFrequency.get(word) + 1);
-            } else {
-                wordsFrequency.put(word, 1);
+    public static void countTopWordsInFiles(String path, int k, double relativeError) {
+        try {
+            int capacity = Math.max(k, SpaceSavingSketch.withRelativeError(relativeError).getCapacity());
+            SpaceSavingSketch sketch = MappedWordCounter.topWords(Paths.get(path),
+                    Runtime.getRuntime().availableProcessors(), capacity);
+            System.out.println("Top " + k + " words of " + sketch.getTotal() + " (counts at most "
+                    + sketch.getErrorBound() + " too high): ");
+            for (SpaceSavingSketch.WordEstimate estimate : sketch.getTop(k)) {
+                System.out.println(estimate);
             }
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Counts the words of a live stream over a sliding time window, printing the top words of the
+     * window every second until the stream ends, and once more at the end.
+     * @param in the stream of UTF-8 text, e.g. System.in fed by tail -f
+     * @param window the length of the window
+     * @param n the number of words to print
+     */
+    public static void countWordsInStream(InputStream in, Duration window, int n) {
+        SlidingWindowCounter counter = SlidingWindowCounter.ofTime(window, 10);
+        ScheduledExecutorService printer = Executors.newSingleThreadScheduledExecutor();
+        printer.scheduleAtFixedRate(() -> printWordsFrequency(counter.getTop(n)), 1, 1, TimeUnit.SECONDS);
+        try {
+            counter.read(in);
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        } finally {
+            printer.shutdownNow();
         }
+        printWordsFrequency(counter.getTop(n));
+    }
 
-        return wordsFrequency;
+    /**
+     * Prints each word and its frequency from the provided map.
+     * @param wordsFrequency a map of words and their frequency
+     */
+    private static void printWordsFrequency(Map<String, ? extends Number> wordsFrequency) {
+        System.out.println("Words Frequency Analysis: ");
+        for (String word : wordsFrequency.keySet()) {
+            System.out.println(word + " - " + wordsFrequency.get(word));
+        }
     }
 
     /**
      * Sorts the word frequency map by count descending and
      * then by words alphabetically.
      * @param wordsFrequency unsorted words frequency map
+     * @param <V> the type of the frequencies
      * @return sorted words frequency map
      */
-    private static LinkedHashMap<String, Integer> getSortedWordsFrequency(HashMap<String, Integer> wordsFrequency) {
-        LinkedHashMap<String, Integer> wordsFrequencySorted = new LinkedHashMap<String, Integer>();
+    private static <V extends Comparable<V>> LinkedHashMap<String, V> getSortedWordsFrequency(
+            Map<String, V> wordsFrequency) {
+        LinkedHashMap<String, V> wordsFrequencySorted = new LinkedHashMap<String, V>();
         wordsFrequency.entrySet()
                 .stream()
                 .sorted((e1, e2) -> {
@@ -0,0 +1,17 @@
+package com.example.task2;
+
+/**
+ * Receives the words found by a {@link WordTokenizer}.
+ */
+public interface WordSink {
+
+    /**
+     * Takes one occurrence of a word given as lowercase ASCII bytes. The buffer is reused for
+     * the next word, so it must be copied if it is kept.
+     *
+     * @param word the buffer holding the word
+     * @param length the length of the word
+     * @param hash the hash of the word, as computed by {@link String#hashCode()}
+     */
+    void add(byte[] word, int length, int hash);
+}
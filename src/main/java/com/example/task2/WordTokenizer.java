@@ -0,0 +1,188 @@
+package com.example.task2;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits text into lowercase words in a single pass, without allocating per word.
+ *
+ * Words follow {@link WordFrequencyCounter}: ASCII letters and apostrophes form words, other
+ * characters are dropped without splitting, and whitespace separates words. Each word is
+ * lowercased into a reused scratch buffer and handed to a {@link WordSink} together with its
+ * hash, which equals {@link String#hashCode()} of the word. Not thread-safe: one tokenizer per thread.
+ */
+public class WordTokenizer {
+
+    /**
+     * The lowercased characters of the word being tokenized.
+     */
+    private byte[] scratch = new byte[64];
+
+    /**
+     * The length of the word left unfinished by the last {@link #feed} call.
+     */
+    private int pendingLength;
+
+    /**
+     * The hash of the word left unfinished by the last {@link #feed} call.
+     */
+    private int pendingHash;
+
+    /**
+     * Splits a text into words.
+     *
+     * @param text the text
+     * @param sink the receiver of the words
+     */
+    public void tokenize(CharSequence text, WordSink sink) {
+        int length = 0;
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c)) {
+                if (length > 0) {
+                    sink.add(scratch, length, hash);
+                    length = 0;
+                    hash = 0;
+                }
+            } else if (isWordChar(c)) {
+                byte b = lowerCase(c);
+                if (length == scratch.length) {
+                    scratch = Arrays.copyOf(scratch, length * 2);
+                }
+                scratch[length++] = b;
+                hash = 31 * hash + b;
+            }
+        }
+        if (length > 0) {
+            sink.add(scratch, length, hash);
+        }
+    }
+
+    /**
+     * Splits a range of bytes in an ASCII-compatible encoding, such as UTF-8, into words.
+     * A word running into the end of the range is taken as a whole word.
+     *
+     * @param buffer the bytes, read with absolute gets
+     * @param from the first byte
+     * @param to the byte after the range
+     * @param sink the receiver of the words
+     */
+    public void tokenize(ByteBuffer buffer, int from, int to, WordSink sink) {
+        int length = 0;
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            char c = (char) buffer.get(i);
+            if (isWhitespace(c)) {
+                if (length > 0) {
+                    sink.add(scratch, length, hash);
+                    length = 0;
+                    hash = 0;
+                }
+            } else if (isWordChar(c)) {
+                byte b = lowerCase(c);
+                if (length == scratch.length) {
+                    scratch = Arrays.copyOf(scratch, length * 2);
+                }
+                scratch[length++] = b;
+                hash = 31 * hash + b;
+            }
+        }
+        if (length > 0) {
+            sink.add(scratch, length, hash);
+        }
+    }
+
+    /**
+     * Splits the next part of a stream of characters into words. A word running into the end of
+     * the part is kept pending, so words may span parts; call {@link #flush} at the end of the stream.
+     *
+     * @param chars the buffer holding the part
+     * @param offset the first character of the part
+     * @param count the number of characters in the part
+     * @param sink the receiver of the words
+     */
+    public void feed(char[] chars, int offset, int count, WordSink sink) {
+        int length = pendingLength;
+        int hash = pendingHash;
+        for (int i = offset; i < offset + count; i++) {
+            char c = chars[i];
+            if (isWhitespace(c)) {
+                if (length > 0) {
+                    sink.add(scratch, length, hash);
+                    length = 0;
+                    hash = 0;
+                }
+            } else if (isWordChar(c)) {
+                byte b = lowerCase(c);
+                if (length == scratch.length) {
+                    scratch = Arrays.copyOf(scratch, length * 2);
+                }
+                scratch[length++] = b;
+                hash = 31 * hash + b;
+            }
+        }
+        pendingLength = length;
+        pendingHash = hash;
+    }
+
+    /**
+     * Ends a stream of characters fed with {@link #feed}, handing over the pending word if there is one.
+     *
+     * @param sink the receiver of the words
+     */
+    public void flush(WordSink sink) {
+        if (pendingLength > 0) {
+            sink.add(scratch, pendingLength, pendingHash);
+        }
+        pendingLength = 0;
+        pendingHash = 0;
+    }
+
+    /**
+     * Checks whether a word equals a slice of lowercase ASCII bytes.
+     * @param word the word
+     * @param bytes the bytes
+     * @param length the length of the slice
+     * @return true if they hold the same characters
+     */
+    static boolean matches(String word, byte[] bytes, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a character separates words: space, tab, line feed, vertical tab, form feed or carriage return.
+     * @param c the character
+     * @return true for whitespace
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * Checks whether a character is part of a word: an ASCII letter or an apostrophe.
+     * Bytes of non-ASCII characters, sign-extended to chars, are neither.
+     * @param c the character
+     * @return true for word characters
+     */
+    static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '\'';
+    }
+
+    /**
+     * Lowercases a word character.
+     * @param c an ASCII letter or an apostrophe
+     * @return the lowercase character as a byte
+     */
+    private static byte lowerCase(char c) {
+        return (byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+    }
+}
@@ -0,0 +1,573 @@
+package com.example.task4;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the code points of a text with primitive arrays, remembering the order they first appear in.
+ *
+ * Basic Multilingual Plane code points (including Latin-1) are counted in a dense array indexed by
+ * the code point, and supplementary code points (such as most emoji) in an open-addressing table,
+ * so counting allocates nothing. Each code point is also recorded once, when first seen, in an
+ * index array of (position, code point) pairs packed into longs; histograms of different parts of
+ * a text are merged by adding their counts and sorting these pairs, which restores the order of the
+ * whole text. Text can be fed a block at a time, read from a {@link Reader}, or counted in parallel
+ * from a string or a memory-mapped UTF-8 file. Not thread-safe: use one histogram per thread.
+ */
+public class CodePointHistogram {
+
+    /**
+     * The size of the file chunks counted in parallel.
+     */
+    static final long CHUNK_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * The number of bits of a packed first-seen entry holding the code point.
+     */
+    private static final int CODE_POINT_BITS = 21;
+
+    /**
+     * The size of the blocks text is copied or decoded into.
+     */
+    private static final int BLOCK_SIZE = 8192;
+
+    /**
+     * The counts of the Basic Multilingual Plane code points, indexed by code point.
+     */
+    private final long[] bmpCounts = new long[Character.MIN_SUPPLEMENTARY_CODE_POINT];
+
+    /**
+     * The supplementary code points, in an open-addressing table; 0 marks an empty slot.
+     */
+    private int[] supplementaryCodePoints = new int[16];
+
+    /**
+     * The counts of the supplementary code points, parallel to {@link #supplementaryCodePoints}.
+     */
+    private long[] supplementaryCounts = new long[16];
+
+    /**
+     * The number of distinct supplementary code points.
+     */
+    private int supplementarySize;
+
+    /**
+     * The distinct code points in the order they first appear, each packed with the position
+     * it first appears at: position &lt;&lt; 21 | code point.
+     */
+    private long[] firstSeen = new long[64];
+
+    /**
+     * The number of distinct code points.
+     */
+    private int distinct;
+
+    /**
+     * The position of the next char in the text, used to order first appearances.
+     */
+    private long position;
+
+    /**
+     * A high surrogate left at the end of the last block, or 0 if there is none.
+     */
+    private char pendingHighSurrogate;
+
+    /**
+     * Counts the code points of a text in parallel, splitting it into one part per thread.
+     *
+     * @param text the text
+     * @param threads the number of worker threads
+     * @return the merged histogram
+     */
+    public static CodePointHistogram count(String text, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        List<Callable<CodePointHistogram>> workers = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= threads; i++) {
+            int end = (int) ((long) text.length() * i / threads);
+            // Don't split a surrogate pair between two parts.
+            if (end < text.length() && end > 0 && Character.isHighSurrogate(text.charAt(end - 1))
+                    && Character.isLowSurrogate(text.charAt(end))) {
+                end++;
+            }
+            int from = Math.min(start, end);
+            int to = end;
+            workers.add(() -> {
+                CodePointHistogram histogram = new CodePointHistogram();
+                histogram.position = from;
+                histogram.addText(text, from, to);
+                return histogram;
+            });
+            start = Math.max(start, end);
+        }
+        return run(workers, threads);
+    }
+
+    /**
+     * Counts the code points of a UTF-8 file in parallel. The file is memory-mapped in chunks that
+     * start at character boundaries, and every worker thread decodes and counts the chunks it takes
+     * into its own histogram. Malformed bytes count as U+FFFD.
+     *
+     * @param file the file
+     * @param threads the number of worker threads
+     * @return the merged histogram
+     * @throws IOException if the file can't be read
+     */
+    public static CodePointHistogram countFile(Path file, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        Queue<long[]> chunks = new ConcurrentLinkedQueue<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer lead = ByteBuffer.allocate(4);
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + CHUNK_SIZE);
+                if (end < size) {
+                    // Move the end past continuation bytes, to the start of the next character.
+                    lead.clear();
+                    channel.read(lead, end);
+                    int skip = 0;
+                    while (skip < lead.position() - 1 && (lead.get(skip) & 0xC0) == 0x80) {
+                        skip++;
+                    }
+                    end += skip;
+                }
+                chunks.add(new long[] {start, end});
+                start = end;
+            }
+        }
+
+        List<Callable<CodePointHistogram>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(() -> {
+                // Chunks are taken in file order, so each histogram sees its text in order.
+                CodePointHistogram histogram = new CodePointHistogram();
+                CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+                long[] chunk;
+                while ((chunk = chunks.poll()) != null) {
+                    MappedByteBuffer bytes;
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    // A chunk has no more chars than bytes, so positions stay below the next chunk's.
+                    histogram.position = chunk[0];
+                    decoder.reset();
+                    boolean more = true;
+                    while (more) {
+                        more = decoder.decode(bytes, chars, true).isOverflow();
+                        if (!more) {
+                            decoder.flush(chars);
+                        }
+                        histogram.add(chars.array(), 0, chars.position());
+                        chars.clear();
+                    }
+                    histogram.flush();
+                }
+                return histogram;
+            });
+        }
+        try {
+            return run(workers, threads);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs counting workers and merges their histograms.
+     *
+     * @param workers the workers
+     * @param threads the number of worker threads
+     * @return the merged histogram
+     */
+    private static CodePointHistogram run(List<Callable<CodePointHistogram>> workers, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<CodePointHistogram>> futures = executor.invokeAll(workers);
+            CodePointHistogram merged = futures.get(0).get();
+            for (int i = 1; i < futures.size(); i++) {
+                merged.addAll(futures.get(i).get());
+            }
+            return merged;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting code points", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Counts the code points of a text.
+     *
+     * @param text the text
+     */
+    public void addText(String text) {
+        addText(text, 0, text.length());
+    }
+
+    /**
+     * Counts the code points of all characters of a reader, a block at a time.
+     *
+     * @param reader the reader
+     * @throws IOException if the reader fails
+     */
+    public void read(Reader reader) throws IOException {
+        char[] buffer = new char[BLOCK_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            add(buffer, 0, read);
+        }
+        flush();
+    }
+
+    /**
+     * Counts the code points of the next block of a text. A surrogate pair may span two blocks;
+     * call {@link #flush} at the end of the text.
+     *
+     * @param chars the buffer holding the block
+     * @param offset the first char of the block
+     * @param count the number of chars in the block
+     */
+    public void add(char[] chars, int offset, int count) {
+        int end = offset + count;
+        int i = offset;
+        if (pendingHighSurrogate != 0 && count > 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(chars[i])) {
+                addSupplementary(Character.toCodePoint(high, chars[i]), position - 1);
+                i++;
+            } else {
+                addBmp(high, position - 1);
+            }
+        }
+        long base = position - offset;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (!Character.isHighSurrogate(c)) {
+                if (bmpCounts[c]++ == 0) {
+                    recordFirstSeen(c, base + i);
+                }
+            } else if (i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                addSupplementary(Character.toCodePoint(c, chars[i + 1]), base + i);
+                i++;
+            } else if (i + 1 == end) {
+                pendingHighSurrogate = c;
+            } else {
+                addBmp(c, base + i);
+            }
+        }
+        position += count;
+    }
+
+    /**
+     * Ends a text fed with {@link #add}, counting a high surrogate left at its end on its own.
+     */
+    public void flush() {
+        if (pendingHighSurrogate != 0) {
+            addBmp(pendingHighSurrogate, position - 1);
+            pendingHighSurrogate = 0;
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one. The order of first appearance is kept
+     * as long as both histograms counted their text with positions of the same text.
+     *
+     * @param other the histogram of another part of the text
+     */
+    public void addAll(CodePointHistogram other) {
+        for (int i = 0; i < other.distinct; i++) {
+            int codePoint = (int) (other.firstSeen[i] & ((1 << CODE_POINT_BITS) - 1));
+            long count = other.get(codePoint);
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                bmpCounts[codePoint] += count;
+            } else {
+                supplementaryCounts[supplementarySlot(codePoint)] += count;
+            }
+        }
+
+        // Sorting by position puts each code point's earliest appearance first; keep only that one.
+        long[] entries = Arrays.copyOf(firstSeen, distinct + other.distinct);
+        System.arraycopy(other.firstSeen, 0, entries, distinct, other.distinct);
+        Arrays.sort(entries);
+        BitSet kept = new BitSet(Character.MAX_CODE_POINT + 1);
+        distinct = 0;
+        for (long entry : entries) {
+            int codePoint = (int) (entry & ((1 << CODE_POINT_BITS) - 1));
+            if (!kept.get(codePoint)) {
+                kept.set(codePoint);
+                entries[distinct++] = entry;
+            }
+        }
+        firstSeen = entries;
+    }
+
+    /**
+     * Gets the count of a code point.
+     *
+     * @param codePoint the code point
+     * @return the count, 0 if it was never seen
+     */
+    public long get(int codePoint) {
+        if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return bmpCounts[codePoint];
+        }
+        int mask = supplementaryCodePoints.length - 1;
+        for (int slot = supplementaryHome(codePoint, mask); supplementaryCodePoints[slot] != 0;
+             slot = (slot + 1) & mask) {
+            if (supplementaryCodePoints[slot] == codePoint) {
+                return supplementaryCounts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of distinct code points.
+     * @return the distinct code point count
+     */
+    public int getDistinct() {
+        return distinct;
+    }
+
+    /**
+     * Gets the number of code points counted.
+     * @return the total of all counts
+     */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < distinct; i++) {
+            total += get((int) (firstSeen[i] & ((1 << CODE_POINT_BITS) - 1)));
+        }
+        return total;
+    }
+
+    /**
+     * Gets every code point and its count.
+     * @return the counts, in the order the code points first appear
+     */
+    public List<CharCount> getCounts() {
+        return getCounts(1);
+    }
+
+    /**
+     * Gets the code points that appear more than once.
+     * @return the counts of the duplicate code points, in the order they first appear
+     */
+    public List<CharCount> getDuplicates() {
+        return getCounts(2);
+    }
+
+    /**
+     * Gets the code points that appear at least a number of times.
+     * @param minCount the minimum count
+     * @return the counts, in the order the code points first appear
+     */
+    private List<CharCount> getCounts(long minCount) {
+        List<CharCount> counts = new ArrayList<>();
+        for (int i = 0; i < distinct; i++) {
+            int codePoint = (int) (firstSeen[i] & ((1 << CODE_POINT_BITS) - 1));
+            long count = get(codePoint);
+            if (count >= minCount) {
+                counts.add(new CharCount(codePoint, count));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the code points of a range of a text, which must not end inside a surrogate pair.
+     * @param text the text
+     * @param from the first char
+     * @param to the char after the range
+     */
+    private void addText(String text, int from, int to) {
+        char[] buffer = new char[Math.min(BLOCK_SIZE, Math.max(1, to - from))];
+        for (int start = from; start < to; start += buffer.length) {
+            int end = Math.min(to, start + buffer.length);
+            text.getChars(start, end, buffer, 0);
+            add(buffer, 0, end - start);
+        }
+        flush();
+    }
+
+    /**
+     * Counts a Basic Multilingual Plane code point.
+     * @param c the code point
+     * @param at the position of the char
+     */
+    private void addBmp(char c, long at) {
+        if (bmpCounts[c]++ == 0) {
+            recordFirstSeen(c, at);
+        }
+    }
+
+    /**
+     * Counts a supplementary code point.
+     * @param codePoint the code point
+     * @param at the position of its high surrogate
+     */
+    private void addSupplementary(int codePoint, long at) {
+        if (supplementaryCounts[supplementarySlot(codePoint)]++ == 0) {
+            recordFirstSeen(codePoint, at);
+        }
+    }
+
+    /**
+     * Finds the slot of a supplementary code point, inserting it with a count of 0 if needed.
+     * @param codePoint the code point
+     * @return the slot
+     */
+    private int supplementarySlot(int codePoint) {
+        int mask = supplementaryCodePoints.length - 1;
+        int slot = supplementaryHome(codePoint, mask);
+        while (supplementaryCodePoints[slot] != 0) {
+            if (supplementaryCodePoints[slot] == codePoint) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((supplementarySize + 1) * 2 > supplementaryCodePoints.length) {
+            growSupplementary();
+            return supplementarySlot(codePoint);
+        }
+        supplementaryCodePoints[slot] = codePoint;
+        supplementarySize++;
+        return slot;
+    }
+
+    /**
+     * Doubles the supplementary table and rehashes every code point.
+     */
+    private void growSupplementary() {
+        int[] oldCodePoints = supplementaryCodePoints;
+        long[] oldCounts = supplementaryCounts;
+        supplementaryCodePoints = new int[oldCodePoints.length * 2];
+        supplementaryCounts = new long[supplementaryCodePoints.length];
+        int mask = supplementaryCodePoints.length - 1;
+        for (int i = 0; i < oldCodePoints.length; i++) {
+            if (oldCodePoints[i] != 0) {
+                int slot = supplementaryHome(oldCodePoints[i], mask);
+                while (supplementaryCodePoints[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                supplementaryCodePoints[slot] = oldCodePoints[i];
+                supplementaryCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Gets the home slot of a supplementary code point.
+     * @param codePoint the code point
+     * @param mask the table size minus one
+     * @return the slot
+     */
+    private static int supplementaryHome(int codePoint, int mask) {
+        return (codePoint * 0x9E3779B9 >>> 16) & mask;
+    }
+
+    /**
+     * Records the first appearance of a code point.
+     * @param codePoint the code point
+     * @param at the position of its first char
+     */
+    private void recordFirstSeen(int codePoint, long at) {
+        if (distinct == firstSeen.length) {
+            firstSeen = Arrays.copyOf(firstSeen, distinct * 2);
+        }
+        firstSeen[distinct++] = at << CODE_POINT_BITS | codePoint;
+    }
+
+    /**
+     * A code point and the number of times it appears.
+     */
+    public static class CharCount {
+
+        /**
+         * The code point.
+         */
+        private final int codePoint;
+
+        /**
+         * The number of times it appears.
+         */
+        private final long count;
+
+        /**
+         * Constructs a count.
+         * @param codePoint the code point
+         * @param count the number of times it appears
+         */
+        public CharCount(int codePoint, long count) {
+            this.codePoint = codePoint;
+            this.count = count;
+        }
+
+        /**
+         * Gets the code point.
+         * @return the code point
+         */
+        public int getCodePoint() {
+            return codePoint;
+        }
+
+        /**
+         * Gets the character as a string of one or two chars.
+         * @return the character
+         */
+        public String getCharacter() {
+            return new String(Character.toChars(codePoint));
+        }
+
+        /**
+         * Gets the number of times the code point appears.
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return getCharacter() + " - " + count + " times.";
+        }
+    }
+}
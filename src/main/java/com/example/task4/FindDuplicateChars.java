@@ -1,7 +1,8 @@
 package com.example.task4;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * Class that finds the duplicate characters
@@ -15,18 +16,43 @@ public class FindDuplicateChars {
      * @param input the string used to extract the duplicate characters
      */
     public static void findDuplicateChars(String input) {
-        Map<String, Integer> duplicatedChars = new LinkedHashMap<>();
+        printDuplicateChars(getDuplicateChars(input));
+    }
 
-        input.codePoints().forEach(cp -> {
-            String ch = new String(Character.toChars(cp));
-            duplicatedChars.put(ch, duplicatedChars.getOrDefault(ch, 0) + 1);
-        });
+    /**
+     * Finds the duplicate characters within a given string.
+     * @param input the string used to extract the duplicate characters
+     * @return the characters appearing more than once and their counts, in the order they first appear
+     */
+    public static List<CodePointHistogram.CharCount> getDuplicateChars(String input) {
+        CodePointHistogram histogram = new CodePointHistogram();
+        histogram.addText(input);
+        return histogram.getDuplicates();
+    }
 
+    /**
+     * Finds the duplicate characters of a UTF-8 file, counting its chunks in parallel with one thread
+     * per core, and prints them on the console.
+     * @param path the file path
+     */
+    public static void findDuplicateCharsInFile(String path) {
+        try {
+            CodePointHistogram histogram = CodePointHistogram.countFile(Paths.get(path),
+                    Runtime.getRuntime().availableProcessors());
+            printDuplicateChars(histogram.getDuplicates());
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints duplicate characters and their counts.
+     * @param duplicates the duplicate characters
+     */
+    private static void printDuplicateChars(List<CodePointHistogram.CharCount> duplicates) {
         System.out.println("Duplicate chars:");
-        duplicatedChars.forEach((ch, count) -> {
-            if (count > 1) {
-                System.out.println(ch + " - " + count + " times.");
-            }
-        });
+        for (CodePointHistogram.CharCount duplicate : duplicates) {
+            System.out.println(duplicate);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+package com.example.task5;
+
+import com.example.task5.columnar.Column;
+import com.example.task5.columnar.ColumnarSheet;
+import com.example.task5.columnar.ZoneMap;
+import com.example.task5.utils.Aggregator;
+import com.example.task5.utils.AverageTracker;
+import com.example.task5.utils.BatchTarget;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.FilterParser;
+import com.example.task5.utils.ProcessingOptions;
+import com.example.task5.utils.RowMaterializer;
+import com.example.task5.utils.RowRecord;
+import com.example.task5.utils.RowSorter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs many filters against the same input in a single scan (shared scan).
+ * The input is read once; every row is tested against all filters and copied to
+ * the output of each filter it matches. Every output gets its own average row
+ * and, if configured, its own aggregate table and ordering.
+ */
+public class BatchProcessor {
+
+    /**
+     * Evaluates all batch targets in one pass over the first sheet of the input.
+     * With a sheet cache in the options the cached columnar sheet is scanned (with zone map
+     * pruning per filter); otherwise the input is streamed with the SAX reader.
+     * For large batches, streaming output keeps the memory of all open outputs bounded.
+     * Filters are parsed strictly: a target whose filter is invalid is reported and gets no output
+     * file, rather than being written with every row or none. An output that fails to save is
+     * reported and deleted, so no half-written file is left behind.
+     *
+     * @param inputPath path to the input Excel file
+     * @param targets the filters and their output files
+     * @param avgColumnIndex the column index to average
+     * @param options the processing options
+     * @return the targets whose output was saved completely, in the order of the targets
+     */
+    public static List<BatchTarget> processBatch(String inputPath, List<BatchTarget> targets, int avgColumnIndex,
+                                                 ProcessingOptions options) {
+        List<BatchOutput> outputs = new ArrayList<>();
+        List<BatchTarget> saved = new ArrayList<>();
+        try {
+            ColumnarSheet cachedSheet = options.getSheetCache() != null ? options.getSheetCache().get(inputPath) : null;
+            Map<String, Integer> headerMap = cachedSheet != null
+                    ? cachedSheet.getHeadersMap()
+                    : ExcelProcessor.getHeadersMap(inputPath);
+
+            for (BatchTarget target : targets) {
+                FilterNode filter;
+                try {
+                    filter = FilterParser.parse(target.getFilter(), headerMap, options.getJoinMemoryBytes());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Error: invalid filter '" + target.getFilter() + "': " + e.getMessage());
+                    continue;
+                }
+                outputs.add(new BatchOutput(target, filter, options));
+                filter.prepare(inputPath);
+            }
+
+            if (cachedSheet != null) {
+                scanColumnar(cachedSheet, outputs, avgColumnIndex);
+            } else {
+                scanStreaming(inputPath, outputs, avgColumnIndex);
+            }
+
+            for (BatchOutput output : outputs) {
+                ExcelProcessor.writeSortedRows(output.sheet, output.sorter, output.avgTracker);
+                ExcelProcessor.writeAverageRow(output.sheet, output.avgTracker, avgColumnIndex);
+                ExcelProcessor.writeAggregateRows(output.sheet, output.aggregator,
+                        output.avgTracker.getNextRowIndex() + 2);
+                String outputPath = output.target.getOutputPath();
+                try {
+                    ExcelProcessor.saveWorkbook(output.workbook, outputPath);
+                } catch (IOException e) {
+                    System.err.println("Error: could not save " + outputPath + ": " + e.getMessage());
+                    Files.deleteIfExists(Paths.get(outputPath));
+                    continue;
+                }
+                saved.add(output.target);
+                System.out.println(outputPath + ": filtered rows: " + output.avgTracker.getCount());
+            }
+
+            System.out.println("Batch processed successfully. Filters: " + saved.size() + " of " + targets.size());
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } finally {
+            for (BatchOutput output : outputs) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Streams the input once, materializing each row a single time for all filters.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputs the batch outputs
+     * @param avgColIndex the index of the column to average
+     * @throws IOException if the input can't be read or a sorter can't spill rows
+     */
+    private static void scanStreaming(String inputPath, List<BatchOutput> outputs, int avgColIndex)
+            throws IOException {
+        try (RowMaterializer materializer = new RowMaterializer()) {
+            StreamingSheetReader.read(inputPath, 0, record -> {
+                if (record.getRowNum() == 0) {
+                    for (BatchOutput output : outputs) {
+                        output.avgTracker.setNextRowIndex(ExcelProcessor.copyHeaderRow(record, output.sheet));
+                        if (output.aggregator != null) {
+                            output.aggregator.setColumnLabels(record.getTexts());
+                        }
+                    }
+                    return true;
+                }
+
+                Row row = materializer.materialize(record);
+                for (BatchOutput output : outputs) {
+                    if (output.filter.test(row)) {
+                        output.add(record, avgColIndex);
+                    }
+                }
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Scans a columnar sheet once. For every block, only the filters whose zone maps
+     * don't rule the block out are evaluated.
+     *
+     * @param input the columnar input sheet
+     * @param outputs the batch outputs
+     * @param avgColIndex the index of the column to average
+     * @throws IOException if a sorter can't spill rows
+     */
+    private static void scanColumnar(ColumnarSheet input, List<BatchOutput> outputs, int avgColIndex)
+            throws IOException {
+        Column avgColumn = input.getColumn(avgColIndex);
+        for (BatchOutput output : outputs) {
+            output.avgTracker.setNextRowIndex(ExcelProcessor.copyHeaderRow(input, output.sheet));
+            if (output.aggregator != null) {
+                output.aggregator.setColumnLabels(input.getHeaderTexts());
+            }
+        }
+
+        BatchOutput[] active = new BatchOutput[outputs.size()];
+        for (int block = 0; block < input.getBlockCount(); block++) {
+            int activeCount = 0;
+            for (BatchOutput output : outputs) {
+                if (!output.filter.canSkipBlock(input, block)) {
+                    active[activeCount++] = output;
+                }
+            }
+            if (activeCount == 0) {
+                continue;
+            }
+
+            int end = Math.min(input.getRowCount(), (block + 1) * ZoneMap.BLOCK_SIZE);
+            for (int row = block * ZoneMap.BLOCK_SIZE; row < end; row++) {
+                for (int i = 0; i < activeCount; i++) {
+                    BatchOutput output = active[i];
+                    if (output.filter.test(input, row)) {
+                        output.add(input, row, avgColumn);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The open output workbook and running totals of one batch target.
+     */
+    private static class BatchOutput implements Closeable {
+
+        /**
+         * The target this output belongs to.
+         */
+        final BatchTarget target;
+
+        /**
+         * The compiled filter of the target.
+         */
+        final FilterNode filter;
+
+        /**
+         * The output workbook.
+         */
+        final Workbook workbook;
+
+        /**
+         * The output sheet.
+         */
+        final Sheet sheet;
+
+        /**
+         * Sum, count and next row index of the output.
+         */
+        final AverageTracker avgTracker = new AverageTracker(0, 0, 0);
+
+        /**
+         * The aggregates of the output, or null.
+         */
+        final Aggregator aggregator;
+
+        /**
+         * The sorter collecting the matching rows, or null to copy them in input order.
+         */
+        final RowSorter sorter;
+
+        BatchOutput(BatchTarget target, FilterNode filter, ProcessingOptions options) {
+            this.target = target;
+            this.filter = filter;
+            this.workbook = ExcelProcessor.createOutputWorkbook(options);
+            this.sheet = workbook.createSheet("Filtered");
+            this.aggregator = options.createAggregator();
+            this.sorter = options.createRowSorter();
+        }
+
+        /**
+         * Copies a matching streamed row and updates the totals.
+         * @param record the matching row
+         * @param avgColIndex the index of the column to average
+         */
+        void add(RowRecord record, int avgColIndex) {
+            if (sorter != null) {
+                try {
+                    sorter.add(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                int outputRowIndex = avgTracker.getNextRowIndex();
+                record.copyTo(sheet.createRow(outputRowIndex));
+                avgTracker.setNextRowIndex(outputRowIndex + 1);
+            }
+
+            if (record.isNumeric(avgColIndex)) {
+                avgTracker.setSum(avgTracker.getSum() + record.getNumber(avgColIndex));
+                avgTracker.setCount(avgTracker.getCount() + 1);
+            }
+            if (aggregator != null) {
+                aggregator.add(record);
+            }
+        }
+
+        /**
+         * Copies a matching columnar row and updates the totals.
+         * @param input the columnar sheet
+         * @param row the matching data row
+         * @param avgColumn the averaged column
+         * @throws IOException if the sorter can't spill rows
+         */
+        void add(ColumnarSheet input, int row, Column avgColumn) throws IOException {
+            if (sorter != null) {
+                sorter.add(input.toRecord(row));
+            } else {
+                int outputRowIndex = avgTracker.getNextRowIndex();
+                ExcelProcessor.copyRow(input, row, sheet.createRow(outputRowIndex));
+                avgTracker.setNextRowIndex(outputRowIndex + 1);
+            }
+
+            if (avgColumn.isNumeric(row)) {
+                avgTracker.setSum(avgTracker.getSum() + avgColumn.getNumber(row));
+                avgTracker.setCount(avgTracker.getCount() + 1);
+            }
+            if (aggregator != null) {
+                aggregator.add(input, row);
+            }
+        }
+
+        /**
+         * Closes the output workbook and deletes the temp files of the sorter and the filter.
+         * @throws IOException if closing fails
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                workbook.close();
+            } finally {
+                try {
+                    if (sorter != null) {
+                        sorter.close();
+                    }
+                } finally {
+                    filter.close();
+                }
+            }
+        }
+    }
+}
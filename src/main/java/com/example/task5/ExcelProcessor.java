@@ -1,14 +1,36 @@
 package com.example.task5;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.example.task5.columnar.Column;
+import com.example.task5.columnar.ColumnarSheet;
+import com.example.task5.columnar.ZoneMap;
+import com.example.task5.utils.Aggregator;
 import com.example.task5.utils.AverageTracker;
+import com.example.task5.utils.ColumnStats;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.PhaseMetrics;
+import com.example.task5.utils.PipelineStats;
+import com.example.task5.utils.ProcessingOptions;
+import com.example.task5.utils.RowMaterializer;
+import com.example.task5.utils.RowRecord;
+import com.example.task5.utils.RowSorter;
+import com.example.task5.utils.ScanStats;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 
 /**
@@ -28,27 +50,380 @@ public class ExcelProcessor {
      * @param avgColumnIndex the column index to average
      */
     public static void processExcel(String inputPath, String outputPath, Predicate<Row> filter, int avgColumnIndex) {
+        processExcel(inputPath, outputPath, filter, avgColumnIndex, new ProcessingOptions());
+    }
+
+    /**
+     * Processes an Excel file like {@link #processExcel(String, String, Predicate, int)},
+     * using the given options to choose how the input is read and the output is written.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputPath path to the output Excel file
+     * @param filter the condition used to filter rows
+     * @param avgColumnIndex the column index to average
+     * @param options the processing options
+     */
+    public static void processExcel(String inputPath, String outputPath, Predicate<Row> filter, int avgColumnIndex,
+                                    ProcessingOptions options) {
+        if (options.getParallelism() > 1) {
+            processExcelParallel(inputPath, outputPath, filter, avgColumnIndex, options);
+            return;
+        }
+        if (filter instanceof FilterNode) {
+            try {
+                ((FilterNode) filter).prepare(inputPath);
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+        }
+        if (options.getSheetCache() != null) {
+            processExcelColumnar(inputPath, outputPath, filter, avgColumnIndex, options);
+            return;
+        }
+        if (options.getPipelineWorkers() > 0) {
+            processExcelPipelined(inputPath, outputPath, filter, avgColumnIndex, options);
+            return;
+        }
+        if (options.isStreamingInput()) {
+            processExcelStreaming(inputPath, outputPath, filter, avgColumnIndex, options);
+            return;
+        }
+
+        PhaseMetrics metrics = new PhaseMetrics(inputPath, "dom");
+        PhaseMetrics.Phase load = metrics.start("workbook load");
         try (
                 Workbook inputWorkbook = loadWorkbook(inputPath);
-                Workbook outputWorkbook = new XSSFWorkbook()
+                Workbook outputWorkbook = createOutputWorkbook(options);
+                RowSorter sorter = options.createRowSorter()
         ) {
             Sheet inputSheet = inputWorkbook.getSheetAt(0);
             Sheet outputSheet = outputWorkbook.createSheet("Filtered");
+            load.end(inputSheet.getPhysicalNumberOfRows(), 0, Files.size(Paths.get(inputPath)), 0);
 
+            PhaseMetrics.Phase header = metrics.start("header copy");
             int rowCount = copyHeaderRow(inputSheet, outputSheet);
 
-            AverageTracker avgTracker = filterAndCopyRows(inputSheet, outputSheet, rowCount, filter, avgColumnIndex);
+            Aggregator aggregator = options.createAggregator();
+            if (aggregator != null && inputSheet.getRow(0) != null) {
+                aggregator.setColumnLabels(RowRecord.of(inputSheet.getRow(0)).getTexts());
+            }
+            header.end(rowCount, rowCount == 0 ? 0 : inputSheet.getRow(0).getPhysicalNumberOfCells(), 0, 0);
+
+            PhaseMetrics.Phase scan = metrics.start("filter and copy");
+            ScanStats scanStats = new ScanStats();
+            AverageTracker avgTracker = filterAndCopyRows(inputSheet, outputSheet, rowCount, filter, avgColumnIndex,
+                    aggregator, sorter, scanStats);
+            scan.end(scanStats.getScannedRows(), scanStats.getScannedCells(), 0, 0);
 
-            writeAverageRow(outputSheet, avgTracker, avgColumnIndex);
+            finishOutput(outputWorkbook, outputSheet, outputPath, sorter, avgTracker, avgColumnIndex, aggregator,
+                    metrics, options);
 
-            saveWorkbook(outputWorkbook, outputPath);
+            System.out.println("Excel processed successfully. Filtered rows: " + avgTracker.getCount());
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the input sheet row by row instead of loading it as a DOM,
+     * so memory use does not depend on the number of input rows.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputPath path to the output Excel file
+     * @param filter the condition used to filter rows
+     * @param avgColumnIndex the column index to average
+     * @param options the processing options
+     */
+    private static void processExcelStreaming(String inputPath, String outputPath, Predicate<Row> filter,
+                                              int avgColumnIndex, ProcessingOptions options) {
+        PhaseMetrics metrics = new PhaseMetrics(inputPath, "streaming");
+        try (
+                Workbook outputWorkbook = createOutputWorkbook(options);
+                RowMaterializer materializer = new RowMaterializer();
+                RowSorter sorter = options.createRowSorter()
+        ) {
+            Sheet outputSheet = outputWorkbook.createSheet("Filtered");
+
+            // Parsing is interleaved with filtering, so there is no separate load phase.
+            PhaseMetrics.Phase scan = metrics.start("filter and copy");
+            Aggregator aggregator = options.createAggregator();
+            ScanStats scanStats = new ScanStats();
+            AverageTracker avgTracker = streamAndCopyRows(inputPath, outputSheet, filter, avgColumnIndex, materializer,
+                    aggregator, sorter, scanStats);
+            scan.end(scanStats.getScannedRows(), scanStats.getScannedCells(), Files.size(Paths.get(inputPath)), 0);
+
+            finishOutput(outputWorkbook, outputSheet, outputPath, sorter, avgTracker, avgColumnIndex, aggregator,
+                    metrics, options);
+
+            System.out.println("Excel processed successfully. Filtered rows: " + avgTracker.getCount());
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the input sheet through a {@link SheetPipeline}: parsing, filtering and writing
+     * run concurrently, and the per-stage throughput is printed afterwards.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputPath path to the output Excel file
+     * @param filter the condition used to filter rows
+     * @param avgColumnIndex the column index to average
+     * @param options the processing options, holding the number of workers and the batch size
+     */
+    private static void processExcelPipelined(String inputPath, String outputPath, Predicate<Row> filter,
+                                              int avgColumnIndex, ProcessingOptions options) {
+        PhaseMetrics metrics = new PhaseMetrics(inputPath, "pipelined");
+        try (
+                Workbook outputWorkbook = createOutputWorkbook(options);
+                RowSorter sorter = options.createRowSorter()
+        ) {
+            Sheet outputSheet = outputWorkbook.createSheet("Filtered");
+
+            // Parsing, filtering and writing overlap, so the whole pipeline is a single phase.
+            PhaseMetrics.Phase scan = metrics.start("filter and copy");
+            Aggregator aggregator = options.createAggregator();
+            PipelineStats stats = new PipelineStats();
+            AverageTracker avgTracker = SheetPipeline.process(inputPath, outputSheet, filter, avgColumnIndex,
+                    aggregator, sorter, options.getPipelineWorkers(), options.getPipelineBatchSize(), stats);
+            scan.end(stats.getParse().getRows(), 0, Files.size(Paths.get(inputPath)), 0);
+
+            finishOutput(outputWorkbook, outputSheet, outputPath, sorter, avgTracker, avgColumnIndex, aggregator,
+                    metrics, options);
+
+            System.out.println("Excel processed successfully. Filtered rows: " + avgTracker.getCount());
+            System.out.println(stats);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Filters a cached columnar snapshot of the input sheet instead of parsing the file.
+     * Compiled filters run directly against the primitive column arrays and skip
+     * blocks ruled out by the zone maps.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputPath path to the output Excel file
+     * @param filter the condition used to filter rows
+     * @param avgColumnIndex the column index to average
+     * @param options the processing options, holding the sheet cache
+     */
+    private static void processExcelColumnar(String inputPath, String outputPath, Predicate<Row> filter,
+                                             int avgColumnIndex, ProcessingOptions options) {
+        PhaseMetrics metrics = new PhaseMetrics(inputPath, "columnar");
+        try (
+                Workbook outputWorkbook = createOutputWorkbook(options);
+                RowSorter sorter = options.createRowSorter()
+        ) {
+            // A cache hit reads nothing, and a miss is read by the cache, so no bytes are attributed here.
+            PhaseMetrics.Phase load = metrics.start("workbook load");
+            ColumnarSheet inputSheet = options.getSheetCache().get(inputPath);
+            Sheet outputSheet = outputWorkbook.createSheet("Filtered");
+            load.end(inputSheet.getRowCount(), 0, 0, 0);
+
+            PhaseMetrics.Phase header = metrics.start("header copy");
+            int rowCount = copyHeaderRow(inputSheet, outputSheet);
+
+            Aggregator aggregator = options.createAggregator();
+            if (aggregator != null) {
+                aggregator.setColumnLabels(inputSheet.getHeaderTexts());
+            }
+            header.end(rowCount, rowCount == 0 ? 0 : inputSheet.getHeaderCount(), 0, 0);
+
+            PhaseMetrics.Phase scan = metrics.start("filter and copy");
+            ScanStats scanStats = new ScanStats();
+            AverageTracker avgTracker = filterAndCopyRows(inputSheet, outputSheet, rowCount, filter, avgColumnIndex,
+                    aggregator, sorter, scanStats);
+            scan.end(scanStats.getScannedRows(), scanStats.getScannedCells(), 0, 0);
+
+            finishOutput(outputWorkbook, outputSheet, outputPath, sorter, avgTracker, avgColumnIndex, aggregator,
+                    metrics, options);
 
             System.out.println("Excel processed successfully. Filtered rows: " + avgTracker.getCount());
+            System.out.println("Zone maps pruned " + scanStats.getPrunedBlocks() + " of "
+                    + scanStats.getTotalBlocks() + " blocks.");
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the sorted rows, the average row and the aggregate table after the copied rows,
+     * saves the output workbook, and records each of these as a phase. The JSON summary of
+     * the run is written afterwards if the options ask for one.
+     *
+     * @param outputWorkbook the output workbook
+     * @param outputSheet the output sheet
+     * @param outputPath path to the output Excel file
+     * @param sorter the sorter holding the filtered rows, or null if they were copied directly
+     * @param avgTracker the tracker holding sum, count and the next output row
+     * @param avgColumnIndex the column index to average
+     * @param aggregator the aggregator holding the results, or null
+     * @param metrics the phase metrics of the run
+     * @param options the processing options, holding the metrics path
+     * @throws IOException if a spilled run can't be read or a file can't be written
+     */
+    private static void finishOutput(Workbook outputWorkbook, Sheet outputSheet, String outputPath, RowSorter sorter,
+                                     AverageTracker avgTracker, int avgColumnIndex, Aggregator aggregator,
+                                     PhaseMetrics metrics, ProcessingOptions options) throws IOException {
+        if (sorter != null) {
+            PhaseMetrics.Phase sort = metrics.start("sort");
+            int firstRow = avgTracker.getNextRowIndex();
+            writeSortedRows(outputSheet, sorter, avgTracker);
+            sort.end(avgTracker.getNextRowIndex() - firstRow, 0, 0, 0);
+        }
+
+        PhaseMetrics.Phase average = metrics.start("average row");
+        writeAverageRow(outputSheet, avgTracker, avgColumnIndex);
+        average.end(1, 2, 0, 0);
+
+        if (aggregator != null) {
+            PhaseMetrics.Phase aggregates = metrics.start("aggregate table");
+            int startRow = avgTracker.getNextRowIndex() + 2;
+            int cells = writeAggregateRows(outputSheet, aggregator, startRow);
+            aggregates.end(outputSheet.getLastRowNum() - startRow + 1, cells, 0, 0);
+        }
+
+        PhaseMetrics.Phase save = metrics.start("save");
+        saveWorkbook(outputWorkbook, outputPath);
+        save.end(avgTracker.getNextRowIndex() + 1, 0, 0, Files.size(Paths.get(outputPath)));
+
+        metrics.setFilteredRows(avgTracker.getCount());
+        if (options.getMetricsPath() != null) {
+            metrics.writeJson(options.getMetricsPath());
+        }
+    }
+
+    /**
+     * Processes every sheet of the input workbook on a ForkJoinPool. The sheets are parsed
+     * concurrently into columnar form, then each sheet is filtered and aggregated in parallel
+     * partitions. Each input sheet gets an output sheet of the same name, with its rows in
+     * their original order, followed by its own average row and aggregate table.
+     * The filter is prepared for each sheet just before that sheet is scanned.
+     * The filter and the averaged column were resolved against the first sheet's headers, so a
+     * sheet whose headers differ from the first sheet's is reported and skipped.
+     * The load and the filter-and-copy phase of every sheet are recorded separately, named after the sheet.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputPath path to the output Excel file
+     * @param filter the condition used to filter rows
+     * @param avgColumnIndex the column index to average
+     * @param options the processing options, holding the degree of parallelism
+     */
+    private static void processExcelParallel(String inputPath, String outputPath, Predicate<Row> filter,
+                                             int avgColumnIndex, ProcessingOptions options) {
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        PhaseMetrics metrics = new PhaseMetrics(inputPath, "parallel");
+        try (Workbook outputWorkbook = createOutputWorkbook(options)) {
+            List<String> sheetNames = StreamingSheetReader.getSheetNames(inputPath);
+            List<Future<ColumnarSheet>> loads = new ArrayList<>();
+            for (int i = 0; i < sheetNames.size(); i++) {
+                int sheetIndex = i;
+                loads.add(pool.submit(() -> options.getSheetCache() != null
+                        ? options.getSheetCache().get(inputPath, sheetIndex)
+                        : ColumnarSheet.load(inputPath, sheetIndex)));
+            }
+
+            int totalCount = 0;
+            Map<String, Integer> layout = null;
+            int outputRows = 0;
+            for (int i = 0; i < sheetNames.size(); i++) {
+                // Sheets load concurrently, so this is the time spent waiting for the sheet, not parsing it.
+                PhaseMetrics.Phase load = metrics.start("workbook load: " + sheetNames.get(i));
+                ColumnarSheet inputSheet = loads.get(i).get();
+                load.end(inputSheet.getRowCount(), 0, 0, 0);
+                if (i == 0) {
+                    layout = inputSheet.getHeadersMap();
+                } else if (!inputSheet.getHeadersMap().equals(layout)) {
+                    System.out.println("Skipped sheet '" + sheetNames.get(i)
+                            + "': its columns differ from the first sheet's.");
+                    continue;
+                }
+                PhaseMetrics.Phase scan = metrics.start("filter and copy: " + sheetNames.get(i));
+                Sheet outputSheet = outputWorkbook.createSheet(sheetNames.get(i));
+                int rowCount = copyHeaderRow(inputSheet, outputSheet);
+
+                Aggregator aggregator = options.createAggregator();
+                if (aggregator != null) {
+                    aggregator.setColumnLabels(inputSheet.getHeaderTexts());
+                }
+                if (filter instanceof FilterNode) {
+                    ((FilterNode) filter).prepare(inputPath, i);
+                }
+                ParallelSheetScanner.ScanResult result =
+                        ParallelSheetScanner.scan(pool, inputSheet, filter, avgColumnIndex, aggregator);
+
+                AverageTracker avgTracker;
+                try (RowSorter sorter = options.createRowSorter()) {
+                    for (int j = 0; j < result.getRowCount(); j++) {
+                        if (sorter != null) {
+                            sorter.add(inputSheet.toRecord(result.getRow(j)));
+                        } else {
+                            copyRow(inputSheet, result.getRow(j), outputSheet.createRow(rowCount++));
+                        }
+                    }
+                    avgTracker = new AverageTracker(result.getSum(), result.getCount(), rowCount);
+                    writeSortedRows(outputSheet, sorter, avgTracker);
+                }
+                writeAverageRow(outputSheet, avgTracker, avgColumnIndex);
+                writeAggregateRows(outputSheet, result.getAggregator(), avgTracker.getNextRowIndex() + 2);
+                scan.end(inputSheet.getRowCount(), 0, 0, 0);
+                outputRows += outputSheet.getLastRowNum() + 1;
+
+                System.out.println("Sheet '" + sheetNames.get(i) + "': filtered rows: " + avgTracker.getCount()
+                        + ", zone maps pruned " + result.getPrunedBlocks() + " of " + inputSheet.getBlockCount()
+                        + " blocks.");
+                totalCount += avgTracker.getCount();
+            }
+
+            PhaseMetrics.Phase save = metrics.start("save");
+            saveWorkbook(outputWorkbook, outputPath);
+            save.end(outputRows, 0, 0, Files.size(Paths.get(outputPath)));
+
+            metrics.setFilteredRows(totalCount);
+            if (options.getMetricsPath() != null) {
+                metrics.writeJson(options.getMetricsPath());
+            }
+
+            System.out.println("Excel processed successfully. Filtered rows: " + totalCount);
         } catch (IOException e) {
             System.err.println("Error: " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Error: " + e.getCause().getMessage());
+        } catch (IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: interrupted while loading sheets");
+        } finally {
+            pool.shutdown();
         }
     }
 
+    /**
+     * Gets the column headers of an Excel file by streaming only its first row,
+     * without loading the workbook.
+     *
+     * @param path path to the Excel file
+     * @return a map of column names to their index positions
+     * @throws IOException if the file can't be read
+     */
+    public static Map<String, Integer> getHeadersMap(String path) throws IOException {
+        Map<String, Integer> headersMap = new HashMap<>();
+        RowRecord header = StreamingSheetReader.readHeaderRow(path);
+        if (header != null) {
+            for (int i = 0; i < header.getCellCount(); i++) {
+                String colName = header.getText(i);
+                if (colName != null) {
+                    headersMap.put(colName.trim().toLowerCase(), i);
+                }
+            }
+        }
+        return headersMap;
+    }
+
     /**
      * Gets the column headers from the first row of a sheet
      * and maps them to their column indexes.
@@ -83,6 +458,24 @@ public class ExcelProcessor {
         return new XSSFWorkbook(fis);
     }
 
+    /**
+     * Creates the workbook the filtered rows are written to.
+     * With streaming output, an SXSSFWorkbook keeps only the configured row window in memory
+     * and flushes older rows to (optionally compressed) temp files.
+     *
+     * @param options the processing options
+     * @return a new, empty output workbook
+     */
+    static Workbook createOutputWorkbook(ProcessingOptions options) {
+        if (!options.isStreamingOutput()) {
+            return new XSSFWorkbook();
+        }
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(options.getRowWindow());
+        workbook.setCompressTempFiles(options.isCompressTempFiles());
+        return workbook;
+    }
+
     /**
      * Copies the header row from the input sheet to the output sheet.
      *
@@ -107,29 +500,88 @@ public class ExcelProcessor {
         return 1;
     }
 
+    /**
+     * Copies the header row of a columnar sheet to the output sheet.
+     *
+     * @param input the columnar input sheet
+     * @param output the output Excel sheet
+     * @return the next row index after the header
+     */
+    static int copyHeaderRow(ColumnarSheet input, Sheet output) {
+        if (!input.hasHeaderRow()) {
+            return 0;
+        }
+
+        Row outputHeader = output.createRow(0);
+        for (int i = 0; i < input.getHeaderCount(); i++) {
+            String text = input.getHeaderText(i);
+            if (text != null) {
+                outputHeader.createCell(i).setCellValue(text);
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Copies a streamed header row to the output sheet.
+     *
+     * @param header the header row record
+     * @param output the output Excel sheet
+     * @return the next row index after the header
+     */
+    static int copyHeaderRow(RowRecord header, Sheet output) {
+        Row outputHeader = output.createRow(0);
+        for (int i = 0; i < header.getCellCount(); i++) {
+            String text = header.getText(i);
+            if (text != null) {
+                outputHeader.createCell(i).setCellValue(text);
+            }
+        }
+
+        return 1;
+    }
+
     /**
      * Filters rows based on a predicate and copies them to the output sheet.
-     * Also tracks sum and count for averaging using AverageTracker class.
+     * Also tracks sum and count for averaging using AverageTracker class,
+     * and feeds the matching rows to the aggregator if there is one.
      *
      * @param input the input sheet
      * @param output the output sheet
      * @param startRow the starting row index in the output
      * @param filter the predicate to apply for filtering
      * @param avgColIndex the index of the column to average
+     * @param aggregator the aggregator for the matching rows, or null
+     * @param sorter the sorter collecting the matching rows instead of the output sheet, or null
+     * @param scanStats receives the number of scanned rows and cells
      * @return an AverageTracker with updated values
+     * @throws IOException if the sorter can't spill rows
      */
-    private static AverageTracker filterAndCopyRows(Sheet input, Sheet output, int startRow,
-                                                    Predicate<Row> filter, int avgColIndex) {
+    static AverageTracker filterAndCopyRows(Sheet input, Sheet output, int startRow,
+                                            Predicate<Row> filter, int avgColIndex, Aggregator aggregator,
+                                            RowSorter sorter, ScanStats scanStats) throws IOException {
         double sum = 0;
         int count = 0;
         int outputRowIndex = startRow;
+        long scannedRows = 0;
+        long scannedCells = 0;
 
         for (Row row : input) {
             if (row.getRowNum() == 0) continue;
+            scannedRows++;
+            scannedCells += row.getPhysicalNumberOfCells();
 
             if (filter.test(row)) {
-                Row outputRow = output.createRow(outputRowIndex++);
-                copyRow(row, outputRow);
+                if (sorter != null) {
+                    sorter.add(RowRecord.of(row));
+                } else {
+                    Row outputRow = output.createRow(outputRowIndex++);
+                    copyRow(row, outputRow);
+                }
+                if (aggregator != null) {
+                    aggregator.add(row);
+                }
 
                 Cell avgCell = row.getCell(avgColIndex);
                 if (avgCell != null && avgCell.getCellType() == CellType.NUMERIC) {
@@ -139,9 +591,145 @@ public class ExcelProcessor {
             }
         }
 
+        scanStats.setScannedRows(scannedRows);
+        scanStats.setScannedCells(scannedCells);
+        return new AverageTracker(sum, count, outputRowIndex);
+    }
+
+    /**
+     * Filters the rows of a columnar sheet and copies the matching ones to the output sheet.
+     * Compiled FilterNodes are evaluated on the column arrays, block by block, skipping blocks
+     * whose zone maps rule out a match; any other predicate gets each row materialized as a POI row.
+     *
+     * @param input the columnar input sheet
+     * @param output the output sheet
+     * @param startRow the starting row index in the output
+     * @param filter the predicate to apply for filtering
+     * @param avgColIndex the index of the column to average
+     * @param aggregator the aggregator for the matching rows, or null
+     * @param sorter the sorter collecting the matching rows instead of the output sheet, or null
+     * @param scanStats receives the number of total and pruned blocks, and of scanned rows and cells
+     * @return an AverageTracker with updated values
+     * @throws IOException if the scratch workbook can't be released or the sorter can't spill rows
+     */
+    static AverageTracker filterAndCopyRows(ColumnarSheet input, Sheet output, int startRow,
+                                            Predicate<Row> filter, int avgColIndex, Aggregator aggregator,
+                                            RowSorter sorter, ScanStats scanStats) throws IOException {
+        double sum = 0;
+        int count = 0;
+        int outputRowIndex = startRow;
+        int prunedBlocks = 0;
+        long scannedRows = 0;
+        FilterNode compiled = filter instanceof FilterNode ? (FilterNode) filter : null;
+        Column avgColumn = input.getColumn(avgColIndex);
+
+        try (RowMaterializer materializer = compiled == null ? new RowMaterializer() : null) {
+            for (int block = 0; block < input.getBlockCount(); block++) {
+                if (compiled != null && compiled.canSkipBlock(input, block)) {
+                    prunedBlocks++;
+                    continue;
+                }
+
+                int end = Math.min(input.getRowCount(), (block + 1) * ZoneMap.BLOCK_SIZE);
+                scannedRows += end - block * ZoneMap.BLOCK_SIZE;
+                for (int row = block * ZoneMap.BLOCK_SIZE; row < end; row++) {
+                    boolean matches = compiled != null
+                            ? compiled.test(input, row)
+                            : filter.test(materializer.materialize(input.toRecord(row)));
+
+                    if (matches) {
+                        if (sorter != null) {
+                            sorter.add(input.toRecord(row));
+                        } else {
+                            copyRow(input, row, output.createRow(outputRowIndex++));
+                        }
+                        if (aggregator != null) {
+                            aggregator.add(input, row);
+                        }
+
+                        if (avgColumn.isNumeric(row)) {
+                            sum += avgColumn.getNumber(row);
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+
+        scanStats.setTotalBlocks(input.getBlockCount());
+        scanStats.setPrunedBlocks(prunedBlocks);
+        scanStats.setScannedRows(scannedRows);
+        scanStats.setScannedCells(scannedRows * input.getColumnCount());
         return new AverageTracker(sum, count, outputRowIndex);
     }
 
+    /**
+     * Streams the rows of the first input sheet, copies the header row, and copies
+     * every row matching the predicate to the output sheet.
+     * Each row is materialized into a single scratch row for the predicate and then discarded.
+     *
+     * @param inputPath path to the input Excel file
+     * @param output the output sheet
+     * @param filter the predicate to apply for filtering
+     * @param avgColIndex the index of the column to average
+     * @param materializer the scratch row provider for the predicate
+     * @param aggregator the aggregator for the matching rows, or null
+     * @param sorter the sorter collecting the matching rows instead of the output sheet, or null
+     * @param scanStats receives the number of scanned rows and cells
+     * @return an AverageTracker with updated values
+     * @throws IOException if the input can't be read or the sorter can't spill rows
+     */
+    private static AverageTracker streamAndCopyRows(String inputPath, Sheet output, Predicate<Row> filter,
+                                                    int avgColIndex, RowMaterializer materializer,
+                                                    Aggregator aggregator, RowSorter sorter,
+                                                    ScanStats scanStats) throws IOException {
+        AverageTracker avgTracker = new AverageTracker(0, 0, 0);
+        long[] scanned = new long[2];
+
+        try {
+            StreamingSheetReader.read(inputPath, 0, record -> {
+                if (record.getRowNum() == 0) {
+                    avgTracker.setNextRowIndex(copyHeaderRow(record, output));
+                    if (aggregator != null) {
+                        aggregator.setColumnLabels(record.getTexts());
+                    }
+                    return true;
+                }
+
+                scanned[0]++;
+                scanned[1] += record.getCellCount();
+                if (filter.test(materializer.materialize(record))) {
+                    if (sorter != null) {
+                        try {
+                            sorter.add(record);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    } else {
+                        int outputRowIndex = avgTracker.getNextRowIndex();
+                        record.copyTo(output.createRow(outputRowIndex));
+                        avgTracker.setNextRowIndex(outputRowIndex + 1);
+                    }
+                    if (aggregator != null) {
+                        aggregator.add(record);
+                    }
+
+                    if (record.isNumeric(avgColIndex)) {
+                        avgTracker.setSum(avgTracker.getSum() + record.getNumber(avgColIndex));
+                        avgTracker.setCount(avgTracker.getCount() + 1);
+                    }
+                }
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        scanStats.setScannedRows(scanned[0]);
+        scanStats.setScannedCells(scanned[1]);
+        return avgTracker;
+    }
+
     /**
      * Copies all cells from one row to another.
      *
@@ -161,6 +749,9 @@ public class ExcelProcessor {
                     case NUMERIC:
                         newCell.setCellValue(cell.getNumericCellValue());
                         break;
+                    case BOOLEAN:
+                        newCell.setCellValue(cell.getBooleanCellValue());
+                        break;
                     default:
                         newCell.setCellValue(cell.toString());
                         break;
@@ -169,6 +760,43 @@ public class ExcelProcessor {
         }
     }
 
+    /**
+     * Copies all cells of a columnar data row to an output row.
+     *
+     * @param from the columnar sheet
+     * @param row the zero-based data row
+     * @param to the target row
+     */
+    static void copyRow(ColumnarSheet from, int row, Row to) {
+        for (int i = 0; i < from.getColumnCount(); i++) {
+            Column column = from.getColumn(i);
+            if (column.isNumeric(row)) {
+                to.createCell(i).setCellValue(column.getNumber(row));
+            } else if (column.isBoolean(row)) {
+                to.createCell(i).setCellValue(column.getBoolean(row));
+            } else {
+                String value = column.getString(row);
+                if (value != null) {
+                    to.createCell(i).setCellValue(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the rows collected by a sorter, in sorted order, after the rows already in the sheet.
+     *
+     * @param sheet the Excel sheet to write to
+     * @param sorter the sorter holding the filtered rows, or null if the rows were copied directly
+     * @param avgTracker the tracker whose next row index is advanced past the written rows
+     * @throws IOException if a spilled run can't be read
+     */
+    static void writeSortedRows(Sheet sheet, RowSorter sorter, AverageTracker avgTracker) throws IOException {
+        if (sorter != null) {
+            avgTracker.setNextRowIndex(sorter.writeTo(sheet, avgTracker.getNextRowIndex()));
+        }
+    }
+
     /**
      * Writes a row showing the average value below the filtered data.
      *
@@ -176,7 +804,7 @@ public class ExcelProcessor {
      * @param avgTracker the tracker holding sum and count
      * @param colIndex the index of the column to write the average in
      */
-    private static void writeAverageRow(Sheet sheet, AverageTracker avgTracker, int colIndex) {
+    static void writeAverageRow(Sheet sheet, AverageTracker avgTracker, int colIndex) {
         Row avgRow = sheet.createRow(avgTracker.getNextRowIndex());
         avgRow.createCell(colIndex - 1).setCellValue("Average:");
         avgRow.createCell(colIndex).setCellValue(
@@ -184,14 +812,61 @@ public class ExcelProcessor {
         );
     }
 
+    /**
+     * Writes a table of aggregates (count, sum, min, max, mean, variance and approximate
+     * percentiles) with one row per group and aggregated column.
+     *
+     * @param sheet the Excel sheet to write to
+     * @param aggregator the aggregator holding the results, or null to write nothing
+     * @param startRow the row index of the table header
+     * @return the number of cells written
+     */
+    static int writeAggregateRows(Sheet sheet, Aggregator aggregator, int startRow) {
+        if (aggregator == null) {
+            return 0;
+        }
+
+        String[] titles = {"Group", "Column", "Count", "Sum", "Min", "Max", "Mean", "Variance", "P50", "P90", "P99"};
+        Row titleRow = sheet.createRow(startRow++);
+        for (int i = 0; i < titles.length; i++) {
+            titleRow.createCell(i).setCellValue(titles[i]);
+        }
+        int cells = titles.length;
+
+        for (Map.Entry<String, ColumnStats[]> group : aggregator.getGroups().entrySet()) {
+            for (int i = 0; i < aggregator.getColumnCount(); i++) {
+                ColumnStats stats = group.getValue()[i];
+                Row row = sheet.createRow(startRow++);
+                row.createCell(0).setCellValue(group.getKey());
+                row.createCell(1).setCellValue(aggregator.getColumnLabel(i));
+                row.createCell(2).setCellValue(stats.getCount());
+                cells += 3;
+                if (stats.getCount() == 0) {
+                    continue;
+                }
+                row.createCell(3).setCellValue(stats.getSum());
+                row.createCell(4).setCellValue(stats.getMin());
+                row.createCell(5).setCellValue(stats.getMax());
+                row.createCell(6).setCellValue(stats.getMean());
+                row.createCell(7).setCellValue(stats.getVariance());
+                row.createCell(8).setCellValue(stats.getPercentile(0.5));
+                row.createCell(9).setCellValue(stats.getPercentile(0.9));
+                row.createCell(10).setCellValue(stats.getPercentile(0.99));
+                cells += 8;
+            }
+        }
+        return cells;
+    }
+
     /**
      * Saves the modified workbook to the specified file path.
+     * Temp files of a streaming (SXSSF) workbook are deleted when the caller closes it.
      *
      * @param workbook the workbook to save
      * @param path the output file path
      * @throws IOException if the file can't be written
      */
-    private static void saveWorkbook(Workbook workbook, String path) throws IOException {
+    static void saveWorkbook(Workbook workbook, String path) throws IOException {
         try (FileOutputStream fos = new FileOutputStream(path)) {
             workbook.write(fos);
         }
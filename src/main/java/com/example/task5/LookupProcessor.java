@@ -0,0 +1,273 @@
+package com.example.task5;
+
+import com.example.task5.join.HashJoinIndex;
+import com.example.task5.join.JoinMatches;
+import com.example.task5.utils.Aggregator;
+import com.example.task5.utils.AverageTracker;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.LookupSpec;
+import com.example.task5.utils.ProcessingOptions;
+import com.example.task5.utils.RowHandler;
+import com.example.task5.utils.RowMaterializer;
+import com.example.task5.utils.RowRecord;
+import com.example.task5.utils.RowSorter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Filters an Excel file like {@link ExcelProcessor} and enriches every matching row with
+ * columns looked up in a reference workbook. The reference is streamed into a
+ * {@link HashJoinIndex} keyed by its key column, then the input is streamed and each row
+ * is probed by its own key. The looked-up columns are appended after the input columns;
+ * rows without a match keep them empty (a left join).
+ *
+ * If the reference exceeds the join memory budget, both workbooks are partitioned by key
+ * to temp files and joined one partition at a time (a grace hash join) before the input is streamed.
+ */
+public class LookupProcessor {
+
+    /**
+     * Filters the first sheet of the input and writes the matching rows with their looked-up columns.
+     *
+     * @param inputPath path to the input Excel file
+     * @param outputPath path to the output Excel file
+     * @param filter the condition used to filter rows
+     * @param avgColumnIndex the column index to average
+     * @param lookup the reference workbook, key columns and columns to pull
+     * @param options the processing options
+     */
+    public static void processLookup(String inputPath, String outputPath, Predicate<Row> filter, int avgColumnIndex,
+                                     LookupSpec lookup, ProcessingOptions options) {
+        try {
+            Map<String, Integer> inputHeaders = ExcelProcessor.getHeadersMap(inputPath);
+            Map<String, Integer> referenceHeaders = ExcelProcessor.getHeadersMap(lookup.getReferencePath());
+
+            int inputKey = findColumn(inputHeaders, lookup.getInputKeyColumn());
+            int referenceKey = findColumn(referenceHeaders, lookup.getReferenceKeyColumn());
+            List<String> pulled = lookup.getPulledColumns();
+            int[] payloadColumns = new int[pulled.size()];
+            for (int i = 0; i < payloadColumns.length; i++) {
+                payloadColumns[i] = findColumn(referenceHeaders, pulled.get(i));
+            }
+            if (inputKey == -1 || referenceKey == -1 || contains(payloadColumns, -1)) {
+                return;
+            }
+
+            if (filter instanceof FilterNode) {
+                ((FilterNode) filter).prepare(inputPath);
+            }
+
+            try (
+                    HashJoinIndex index = HashJoinIndex.build(lookup.getReferencePath(), referenceKey, payloadColumns,
+                            options.getJoinMemoryBytes());
+                    JoinMatches matches = index.isPartitioned() ? index.probe(inputPath, inputKey) : null;
+                    Workbook outputWorkbook = ExcelProcessor.createOutputWorkbook(options);
+                    RowMaterializer materializer = new RowMaterializer();
+                    RowSorter sorter = options.createRowSorter()
+            ) {
+                Sheet outputSheet = outputWorkbook.createSheet("Filtered");
+                Aggregator aggregator = options.createAggregator();
+                LookupHandler handler = new LookupHandler(outputSheet, filter, avgColumnIndex, inputKey, index,
+                        matches, materializer, aggregator, sorter);
+                try {
+                    StreamingSheetReader.read(inputPath, 0, handler);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+
+                AverageTracker avgTracker = handler.avgTracker;
+                ExcelProcessor.writeSortedRows(outputSheet, sorter, avgTracker);
+                ExcelProcessor.writeAverageRow(outputSheet, avgTracker, avgColumnIndex);
+                ExcelProcessor.writeAggregateRows(outputSheet, aggregator, avgTracker.getNextRowIndex() + 2);
+                ExcelProcessor.saveWorkbook(outputWorkbook, outputPath);
+
+                System.out.println("Lookup processed successfully. Filtered rows: " + avgTracker.getCount()
+                        + ", matched: " + handler.matched
+                        + (index.isPartitioned() ? " (partitioned join)" : ""));
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves a column name against a header map, reporting missing columns.
+     * @param headers a map of column names to their index positions
+     * @param column the column name
+     * @return the column index, or -1 if not found
+     */
+    private static int findColumn(Map<String, Integer> headers, String column) {
+        int index = headers.getOrDefault(column.trim().toLowerCase(), -1);
+        if (index == -1) {
+            System.out.println("Column not found: " + column);
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether an array holds a value.
+     * @param values the array
+     * @param value the value
+     * @return true if the value occurs
+     */
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Filters the streamed input rows, appends their looked-up columns and writes them.
+     */
+    private static class LookupHandler implements RowHandler {
+
+        /**
+         * The output sheet.
+         */
+        private final Sheet output;
+
+        /**
+         * The condition used to filter rows.
+         */
+        private final Predicate<Row> filter;
+
+        /**
+         * The index of the column to average.
+         */
+        private final int avgColIndex;
+
+        /**
+         * The index of the key column in the input.
+         */
+        private final int inputKey;
+
+        /**
+         * The reference index, probed directly when it is in memory.
+         */
+        private final HashJoinIndex index;
+
+        /**
+         * The result of the partitioned join, or null when the index is in memory.
+         */
+        private final JoinMatches matches;
+
+        /**
+         * Turns records into rows for the filter.
+         */
+        private final RowMaterializer materializer;
+
+        /**
+         * The aggregator for the matching rows, or null.
+         */
+        private final Aggregator aggregator;
+
+        /**
+         * The sorter collecting the matching rows instead of the output sheet, or null.
+         */
+        private final RowSorter sorter;
+
+        /**
+         * The sum and count of the averaged column, and the next output row.
+         */
+        final AverageTracker avgTracker = new AverageTracker(0, 0, 0);
+
+        /**
+         * The number of written rows that found their key in the reference.
+         */
+        int matched;
+
+        /**
+         * The column the looked-up values start at: the width of the input header.
+         */
+        private int payloadStart;
+
+        LookupHandler(Sheet output, Predicate<Row> filter, int avgColIndex, int inputKey, HashJoinIndex index,
+                      JoinMatches matches, RowMaterializer materializer, Aggregator aggregator, RowSorter sorter) {
+            this.output = output;
+            this.filter = filter;
+            this.avgColIndex = avgColIndex;
+            this.inputKey = inputKey;
+            this.index = index;
+            this.matches = matches;
+            this.materializer = materializer;
+            this.aggregator = aggregator;
+            this.sorter = sorter;
+        }
+
+        @Override
+        public boolean handleRow(RowRecord record) {
+            try {
+                if (record.getRowNum() == 0) {
+                    payloadStart = record.getCellCount();
+                    RowRecord header = withPayload(record, index.getPayloadHeaders());
+                    avgTracker.setNextRowIndex(ExcelProcessor.copyHeaderRow(header, output));
+                    if (aggregator != null) {
+                        aggregator.setColumnLabels(header.getTexts());
+                    }
+                    return true;
+                }
+
+                if (!filter.test(materializer.materialize(record))) {
+                    return true;
+                }
+                Object[] payload = matches != null
+                        ? matches.payloadFor(record.getRowNum())
+                        : index.lookup(HashJoinIndex.keyOf(record.getValue(inputKey)));
+                // Without pulled columns the partitioned join keeps no payloads, only the match bits.
+                if (matches != null ? matches.matches(record.getRowNum()) : payload != null) {
+                    matched++;
+                }
+                RowRecord enriched = withPayload(record, payload);
+
+                if (sorter != null) {
+                    sorter.add(enriched);
+                } else {
+                    int outputRowIndex = avgTracker.getNextRowIndex();
+                    enriched.copyTo(output.createRow(outputRowIndex));
+                    avgTracker.setNextRowIndex(outputRowIndex + 1);
+                }
+                if (aggregator != null) {
+                    aggregator.add(enriched);
+                }
+                if (enriched.isNumeric(avgColIndex)) {
+                    avgTracker.setSum(avgTracker.getSum() + enriched.getNumber(avgColIndex));
+                    avgTracker.setCount(avgTracker.getCount() + 1);
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Appends looked-up values to a row, after the input header width.
+         * @param record the input row
+         * @param payload the looked-up values, or null for no match
+         * @return the enriched row
+         */
+        private RowRecord withPayload(RowRecord record, Object[] payload) {
+            int width = index.getPayloadCount();
+            if (width == 0) {
+                return record;
+            }
+            Object[] values = new Object[payloadStart + width];
+            for (int i = 0; i < Math.min(record.getCellCount(), payloadStart); i++) {
+                values[i] = record.getValue(i);
+            }
+            if (payload != null) {
+                System.arraycopy(payload, 0, values, payloadStart, width);
+            }
+            return new RowRecord(record.getRowNum(), values);
+        }
+    }
+}
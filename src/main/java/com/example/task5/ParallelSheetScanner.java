@@ -0,0 +1,278 @@
+package com.example.task5;
+
+import com.example.task5.columnar.Column;
+import com.example.task5.columnar.ColumnarSheet;
+import com.example.task5.columnar.ZoneMap;
+import com.example.task5.utils.Aggregator;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.RowMaterializer;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Filters a columnar sheet in parallel on a ForkJoinPool.
+ * The rows are split into block-aligned partitions; every partition is filtered and
+ * aggregated on its own, and the partial results are merged in row order, so the
+ * matching rows come out exactly as a sequential scan would produce them.
+ */
+public class ParallelSheetScanner {
+
+    /**
+     * Partitions with at most this many zone map blocks are scanned without splitting further.
+     */
+    private static final int MIN_PARTITION_BLOCKS = 4;
+
+    /**
+     * Scans a sheet in parallel.
+     *
+     * @param pool the pool to run the partitions on
+     * @param sheet the columnar sheet to scan
+     * @param filter the predicate to apply for filtering
+     * @param avgColIndex the index of the column to average
+     * @param aggregator an empty aggregator used as the template for every partition, or null
+     * @return the merged result of all partitions
+     */
+    public static ScanResult scan(ForkJoinPool pool, ColumnarSheet sheet, Predicate<Row> filter,
+                                  int avgColIndex, Aggregator aggregator) {
+        try {
+            return pool.invoke(new PartitionTask(sheet, filter, avgColIndex, aggregator, 0, sheet.getBlockCount()));
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("Parallel scan failed: " + e.getCause().getMessage(), e);
+        }
+    }
+
+    /**
+     * The filtered rows and aggregates of a scanned range of rows.
+     */
+    public static class ScanResult {
+
+        /**
+         * The matching data rows, in ascending order.
+         */
+        private int[] rows;
+
+        /**
+         * The number of valid entries in {@link #rows}.
+         */
+        private int rowCount;
+
+        /**
+         * The sum of the averaged column over the matching rows.
+         */
+        private double sum;
+
+        /**
+         * The number of numeric values in the averaged column over the matching rows.
+         */
+        private int count;
+
+        /**
+         * The number of blocks skipped through the zone maps.
+         */
+        private int prunedBlocks;
+
+        /**
+         * The aggregates of the matching rows, or null.
+         */
+        private final Aggregator aggregator;
+
+        ScanResult(Aggregator aggregator) {
+            this.rows = new int[16];
+            this.aggregator = aggregator;
+        }
+
+        /**
+         * Records a matching row.
+         * @param row the data row
+         */
+        void addRow(int row) {
+            if (rowCount == rows.length) {
+                rows = Arrays.copyOf(rows, rowCount * 2);
+            }
+            rows[rowCount++] = row;
+        }
+
+        /**
+         * Appends the result of the partition that directly follows this one.
+         * @param next the following partition's result
+         */
+        void append(ScanResult next) {
+            if (rowCount + next.rowCount > rows.length) {
+                rows = Arrays.copyOf(rows, rowCount + next.rowCount);
+            }
+            System.arraycopy(next.rows, 0, rows, rowCount, next.rowCount);
+            rowCount += next.rowCount;
+            sum += next.sum;
+            count += next.count;
+            prunedBlocks += next.prunedBlocks;
+            if (aggregator != null) {
+                aggregator.merge(next.aggregator);
+            }
+        }
+
+        /**
+         * Gets the number of matching rows.
+         * @return the row count
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Gets a matching data row by position.
+         * @param i the position, in row order
+         * @return the data row index
+         */
+        public int getRow(int i) {
+            return rows[i];
+        }
+
+        /**
+         * Gets the sum of the averaged column.
+         * @return the sum
+         */
+        public double getSum() {
+            return sum;
+        }
+
+        /**
+         * Gets the number of values in the averaged column.
+         * @return the count
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the number of blocks skipped through the zone maps.
+         * @return the pruned block count
+         */
+        public int getPrunedBlocks() {
+            return prunedBlocks;
+        }
+
+        /**
+         * Gets the merged aggregates.
+         * @return the aggregator, or null if none was requested
+         */
+        public Aggregator getAggregator() {
+            return aggregator;
+        }
+    }
+
+    /**
+     * Scans a range of zone map blocks, splitting it in halves while it is large enough.
+     */
+    private static class PartitionTask extends RecursiveTask<ScanResult> {
+
+        /**
+         * The serialization version, required by the Serializable ForkJoinTask hierarchy.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The sheet being scanned.
+         */
+        private final ColumnarSheet sheet;
+
+        /**
+         * The filter to apply.
+         */
+        private final Predicate<Row> filter;
+
+        /**
+         * The index of the averaged column.
+         */
+        private final int avgColIndex;
+
+        /**
+         * The aggregator template, or null.
+         */
+        private final Aggregator aggregator;
+
+        /**
+         * The first block of the range (inclusive).
+         */
+        private final int fromBlock;
+
+        /**
+         * The last block of the range (exclusive).
+         */
+        private final int toBlock;
+
+        PartitionTask(ColumnarSheet sheet, Predicate<Row> filter, int avgColIndex, Aggregator aggregator,
+                      int fromBlock, int toBlock) {
+            this.sheet = sheet;
+            this.filter = filter;
+            this.avgColIndex = avgColIndex;
+            this.aggregator = aggregator;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            if (toBlock - fromBlock > MIN_PARTITION_BLOCKS) {
+                int middle = (fromBlock + toBlock) >>> 1;
+                PartitionTask left = new PartitionTask(sheet, filter, avgColIndex, aggregator, fromBlock, middle);
+                PartitionTask right = new PartitionTask(sheet, filter, avgColIndex, aggregator, middle, toBlock);
+                right.fork();
+                ScanResult result = left.compute();
+                result.append(right.join());
+                return result;
+            }
+
+            try {
+                return scanBlocks();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Filters and aggregates the blocks of this partition sequentially.
+         * @return the partition's result
+         * @throws IOException if the scratch workbook can't be released
+         */
+        private ScanResult scanBlocks() throws IOException {
+            ScanResult result = new ScanResult(aggregator == null ? null : aggregator.newPartial());
+            FilterNode compiled = filter instanceof FilterNode ? (FilterNode) filter : null;
+            Column avgColumn = sheet.getColumn(avgColIndex);
+
+            try (RowMaterializer materializer = compiled == null ? new RowMaterializer() : null) {
+                for (int block = fromBlock; block < toBlock; block++) {
+                    if (compiled != null && compiled.canSkipBlock(sheet, block)) {
+                        result.prunedBlocks++;
+                        continue;
+                    }
+
+                    int end = Math.min(sheet.getRowCount(), (block + 1) * ZoneMap.BLOCK_SIZE);
+                    for (int row = block * ZoneMap.BLOCK_SIZE; row < end; row++) {
+                        boolean matches = compiled != null
+                                ? compiled.test(sheet, row)
+                                : filter.test(materializer.materialize(sheet.toRecord(row)));
+                        if (!matches) {
+                            continue;
+                        }
+
+                        result.addRow(row);
+                        if (avgColumn.isNumeric(row)) {
+                            result.sum += avgColumn.getNumber(row);
+                            result.count++;
+                        }
+                        if (result.aggregator != null) {
+                            result.aggregator.add(sheet, row);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
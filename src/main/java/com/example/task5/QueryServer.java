@@ -0,0 +1,521 @@
+package com.example.task5;
+
+import com.example.task5.columnar.Column;
+import com.example.task5.columnar.ColumnarSheet;
+import com.example.task5.columnar.SheetCache;
+import com.example.task5.columnar.ZoneMap;
+import com.example.task5.utils.FilterNode;
+import com.example.task5.utils.FilterNodes;
+import com.example.task5.utils.FilterParser;
+import com.example.task5.utils.QuantileSketch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP service answering filter queries against the workbooks of a data folder.
+ * Parsed sheets stay warm in a bounded {@link SheetCache}, so only the first query of a
+ * workbook (or of a changed workbook) pays for parsing. Matching rows are streamed back
+ * as CSV or JSON instead of being written to an output workbook.
+ *
+ * Endpoints:
+ * <pre>
+ * GET /query?file=input.xlsx&amp;filter=price &gt; 100&amp;column=price&amp;format=csv|json
+ * GET /stats
+ * </pre>
+ *
+ * The matching rows come with their count and the average of the target column, in the
+ * X-Row-Count and X-Average headers for CSV and in the body for JSON. A filter that doesn't
+ * parse, or names an unknown column, is answered with 400 and the reason; reference workbooks of
+ * "in" clauses are resolved against the data folder like the queried workbook and can't leave it.
+ * A query that fails before its response starts is answered with 500. Requests run
+ * concurrently on a fixed pool of platform threads (Java 11 has no virtual threads).
+ * The server only listens on the loopback address.
+ */
+public class QueryServer implements Closeable {
+
+    /**
+     * The accuracy of the latency percentiles.
+     */
+    private static final double LATENCY_ACCURACY = 0.01;
+
+    /**
+     * The folder the queried workbooks are resolved against.
+     */
+    private final Path dataDir;
+
+    /**
+     * The cache of parsed sheets, shared by all requests.
+     */
+    private final SheetCache cache;
+
+    /**
+     * The threads handling requests.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * The latencies of the answered queries, in milliseconds. Guarded by itself.
+     */
+    private final QuantileSketch latencies = new QuantileSketch(LATENCY_ACCURACY);
+
+    /**
+     * The number of queries received.
+     */
+    private final AtomicLong queries = new AtomicLong();
+
+    /**
+     * The number of queries answered with an error status or broken off by an error.
+     */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Constructs a server; it accepts requests once {@link #start()} is called.
+     *
+     * @param dataDir the folder the queried workbooks are resolved against
+     * @param port the port to listen on, or 0 for any free port
+     * @param workers the number of request threads
+     * @param cache the cache of parsed sheets
+     * @throws IOException if the port can't be bound
+     */
+    public QueryServer(Path dataDir, int port, int workers, SheetCache cache) throws IOException {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        this.dataDir = dataDir.toAbsolutePath().normalize();
+        this.cache = cache;
+        this.executor = Executors.newFixedThreadPool(workers);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/query", this::handleQuery);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, letting running requests finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answers a filter query: finds the matching rows of the workbook's first sheet
+     * and streams them back with their count and the average of the target column.
+     *
+     * @param exchange the HTTP exchange
+     */
+    private void handleQuery(HttpExchange exchange) {
+        long start = System.nanoTime();
+        queries.incrementAndGet();
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            Map<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+            String format = params.getOrDefault("format", "csv").toLowerCase();
+            if (!format.equals("csv") && !format.equals("json")) {
+                sendError(exchange, 400, "Unknown format: " + format);
+                return;
+            }
+            Path file = dataDir.resolve(params.getOrDefault("file", "input.xlsx")).normalize();
+            if (!file.startsWith(dataDir) || !Files.isRegularFile(file)) {
+                sendError(exchange, 404, "Workbook not found: " + params.get("file"));
+                return;
+            }
+            if (!file.getFileName().toString().toLowerCase().endsWith(".xlsx")) {
+                sendError(exchange, 400, "Not a workbook: " + params.get("file"));
+                return;
+            }
+
+            ColumnarSheet sheet = cache.get(file.toString());
+            Map<String, Integer> headers = sheet.getHeadersMap();
+            String column = params.get("column");
+            Integer avgColumn = column == null ? null : headers.get(column.trim().toLowerCase());
+            if (avgColumn == null) {
+                sendError(exchange, 400, "Column not found: " + column);
+                return;
+            }
+            String expression = params.getOrDefault("filter", "");
+            FilterNode filter;
+            try {
+                filter = expression.trim().isEmpty() ? FilterNodes.TRUE : FilterParser.parse(expression, headers, dataDir);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, "Invalid filter: " + e.getMessage());
+                return;
+            }
+            Matches matches;
+            try (filter) {
+                filter.prepare(file.toString());
+                matches = scan(sheet, filter, avgColumn);
+            }
+            exchange.getResponseHeaders().set("X-Row-Count", String.valueOf(matches.count));
+            exchange.getResponseHeaders().set("X-Average", String.valueOf(matches.getAverage()));
+            exchange.getResponseHeaders().set("Content-Type",
+                    format.equals("csv") ? "text/csv; charset=utf-8" : "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                    StandardCharsets.UTF_8))) {
+                if (format.equals("csv")) {
+                    writeCsv(out, sheet, matches);
+                } else {
+                    writeJson(out, sheet, matches);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            if (exchange.getResponseCode() == -1) {
+                // Nothing was sent yet, so the client can still be told.
+                try {
+                    sendError(exchange, 500, "Query failed: " + e.getMessage());
+                } catch (IOException sendFailure) {
+                    System.err.println("Error: " + sendFailure.getMessage());
+                }
+            } else {
+                failures.incrementAndGet();
+            }
+        } finally {
+            exchange.close();
+            double millis = (System.nanoTime() - start) / 1e6;
+            synchronized (latencies) {
+                latencies.add(millis);
+            }
+        }
+    }
+
+    /**
+     * Answers with the query counts, the latency percentiles and the number of cached sheets, as JSON.
+     *
+     * @param exchange the HTTP exchange
+     */
+    private void handleStats(HttpExchange exchange) {
+        try {
+            double p50;
+            double p90;
+            double p99;
+            double max;
+            synchronized (latencies) {
+                p50 = latencies.getQuantile(0.5);
+                p90 = latencies.getQuantile(0.9);
+                p99 = latencies.getQuantile(0.99);
+                max = latencies.getQuantile(1);
+            }
+            String json = "{\"queries\":" + queries.get()
+                    + ",\"failures\":" + failures.get()
+                    + ",\"p50Millis\":" + jsonNumber(p50)
+                    + ",\"p90Millis\":" + jsonNumber(p90)
+                    + ",\"p99Millis\":" + jsonNumber(p99)
+                    + ",\"maxMillis\":" + jsonNumber(max)
+                    + ",\"cachedSheets\":" + cache.size() + "}";
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Finds the rows of a sheet matching a filter, skipping blocks ruled out by the zone maps,
+     * and sums the numeric values of the target column over them.
+     *
+     * @param sheet the columnar sheet
+     * @param filter the compiled filter
+     * @param avgColumn the index of the target column
+     * @return the matching rows
+     */
+    private static Matches scan(ColumnarSheet sheet, FilterNode filter, int avgColumn) {
+        Matches matches = new Matches();
+        Column column = sheet.getColumn(avgColumn);
+        for (int block = 0; block < sheet.getBlockCount(); block++) {
+            if (filter.canSkipBlock(sheet, block)) {
+                continue;
+            }
+            int end = Math.min(sheet.getRowCount(), (block + 1) * ZoneMap.BLOCK_SIZE);
+            for (int row = block * ZoneMap.BLOCK_SIZE; row < end; row++) {
+                if (filter.test(sheet, row)) {
+                    matches.add(row);
+                    if (column != null && column.isNumeric(row)) {
+                        matches.sum += column.getNumber(row);
+                        matches.numericCount++;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Writes the header and the matching rows as CSV (RFC 4180 quoting).
+     *
+     * @param out the response writer
+     * @param sheet the columnar sheet
+     * @param matches the matching rows
+     * @throws IOException if the client went away
+     */
+    private static void writeCsv(Writer out, ColumnarSheet sheet, Matches matches) throws IOException {
+        for (int i = 0; i < sheet.getHeaderCount(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeCsvField(out, sheet.getHeaderText(i));
+        }
+        out.write("\r\n");
+        for (int m = 0; m < matches.count; m++) {
+            int row = matches.rows[m];
+            for (int i = 0; i < sheet.getColumnCount(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Column column = sheet.getColumn(i);
+                if (column.isNumeric(row)) {
+                    out.write(formatNumber(column.getNumber(row)));
+                } else if (column.isBoolean(row)) {
+                    out.write(column.getBoolean(row) ? "TRUE" : "FALSE");
+                } else {
+                    writeCsvField(out, column.getString(row));
+                }
+            }
+            out.write("\r\n");
+        }
+    }
+
+    /**
+     * Writes a text field, quoted if it holds a comma, a quote or a line break.
+     * @param out the response writer
+     * @param text the text, or null for an empty field
+     * @throws IOException if the client went away
+     */
+    private static void writeCsvField(Writer out, String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /**
+     * Writes the count, the average, the column names and the matching rows as a JSON object.
+     * Each row is an array of numbers, strings and nulls.
+     *
+     * @param out the response writer
+     * @param sheet the columnar sheet
+     * @param matches the matching rows
+     * @throws IOException if the client went away
+     */
+    private static void writeJson(Writer out, ColumnarSheet sheet, Matches matches) throws IOException {
+        out.write("{\"count\":" + matches.count + ",\"average\":" + jsonNumber(matches.getAverage())
+                + ",\"columns\":[");
+        for (int i = 0; i < sheet.getHeaderCount(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeJsonString(out, sheet.getHeaderText(i));
+        }
+        out.write("],\"rows\":[");
+        for (int m = 0; m < matches.count; m++) {
+            int row = matches.rows[m];
+            out.write(m == 0 ? "[" : ",\n[");
+            for (int i = 0; i < sheet.getColumnCount(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Column column = sheet.getColumn(i);
+                if (column.isNumeric(row)) {
+                    out.write(jsonNumber(column.getNumber(row)));
+                } else if (column.isBoolean(row)) {
+                    out.write(column.getBoolean(row) ? "true" : "false");
+                } else {
+                    writeJsonString(out, column.getString(row));
+                }
+            }
+            out.write(']');
+        }
+        out.write("]}");
+    }
+
+    /**
+     * Writes a JSON string literal.
+     * @param out the response writer
+     * @param text the text, or null
+     * @throws IOException if the client went away
+     */
+    private static void writeJsonString(Writer out, String text) throws IOException {
+        if (text == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Formats a number for JSON, which has no NaN or infinities.
+     * @param value the number
+     * @return the JSON text, null for NaN and infinities
+     */
+    private static String jsonNumber(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : formatNumber(value);
+    }
+
+    /**
+     * Formats a number the way it looks in the sheet: whole numbers without a fraction.
+     * @param value the number
+     * @return the text
+     */
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Sends a plain text error response and counts the failure.
+     * @param exchange the HTTP exchange
+     * @param status the HTTP status
+     * @param message the error message
+     * @throws IOException if the client went away
+     */
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        failures.incrementAndGet();
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Decodes the parameters of a URL query string. A repeated parameter keeps its last value.
+     * @param rawQuery the raw query string, or null
+     * @return a map of parameter names to values
+     */
+    private static Map<String, String> parseParams(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * The matching rows of a query and the sum of their numeric target values.
+     */
+    private static class Matches {
+
+        /**
+         * The matching data rows, in sheet order; only the first {@link #count} are used.
+         */
+        int[] rows = new int[64];
+
+        /**
+         * The number of matching rows.
+         */
+        int count;
+
+        /**
+         * The sum of the numeric target values.
+         */
+        double sum;
+
+        /**
+         * The number of matching rows with a numeric target value.
+         */
+        int numericCount;
+
+        /**
+         * Adds a matching row.
+         * @param row the data row
+         */
+        void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+
+        /**
+         * Gets the average of the numeric target values.
+         * @return the average, or 0 if there are none
+         */
+        double getAverage() {
+            return numericCount == 0 ? 0 : sum / numericCount;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.task5;
+
+import com.example.task5.utils.Aggregator;
+import com.example.task5.utils.AverageTracker;
+import com.example.task5.utils.PipelineStats;
+import com.example.task5.utils.RowHandler;
+import com.example.task5.utils.RowMaterializer;
+import com.example.task5.utils.RowRecord;
+import com.example.task5.utils.RowSorter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Filters a streamed sheet in three overlapping stages connected by bounded queues:
+ * a parser thread that emits batches of rows, a pool of workers that filter and aggregate
+ * the batches, and a writer (the calling thread) that puts the results back into input order.
+ * At most a fixed number of batches are in flight at any time, so a slow stage holds back
+ * the parser instead of letting rows pile up in memory.
+ */
+public class SheetPipeline {
+
+    /**
+     * Tells a worker (or the writer) that no more batches will come.
+     */
+    private static final Batch END = new Batch(-1, null, false);
+
+    /**
+     * How long the writer waits for a batch before checking whether another stage failed.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Filters the first sheet of a workbook through the pipeline and writes the matching rows.
+     *
+     * @param inputPath path to the input Excel file
+     * @param output the output sheet
+     * @param filter the predicate to apply for filtering; must be safe to call from several threads
+     * @param avgColIndex the index of the column to average
+     * @param aggregator the aggregator for the matching rows, or null
+     * @param sorter the sorter collecting the matching rows instead of the output sheet, or null
+     * @param workers the number of filter threads
+     * @param batchSize the number of rows per batch
+     * @param stats receives the per-stage counters
+     * @return an AverageTracker with the sum, count and next free output row
+     * @throws IOException if the input can't be read or the sorter can't spill rows
+     */
+    public static AverageTracker process(String inputPath, Sheet output, Predicate<Row> filter, int avgColIndex,
+                                         Aggregator aggregator, RowSorter sorter, int workers, int batchSize,
+                                         PipelineStats stats) throws IOException {
+        int maxInFlight = 2 * workers + 2;
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(maxInFlight + workers);
+        BlockingQueue<Batch> filtered = new ArrayBlockingQueue<>(maxInFlight + workers);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+        try {
+            executor.execute(() -> parse(inputPath, batchSize, workers, parsed, inFlight, failure, stats));
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> filter(filter, avgColIndex, aggregator, parsed, filtered, failure, stats));
+            }
+            AverageTracker avgTracker = write(output, aggregator, sorter, workers, filtered, inFlight, failure, stats);
+
+            Throwable error = failure.get();
+            if (error instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) error).getCause();
+            } else if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new IOException(error.getMessage(), error);
+            }
+            return avgTracker;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The parser stage: streams the sheet and hands out batches of rows.
+     *
+     * @param inputPath path to the input Excel file
+     * @param batchSize the number of rows per batch
+     * @param workers the number of workers to send an END marker to
+     * @param parsed the queue to the workers
+     * @param inFlight the permits limiting the batches in flight
+     * @param failure the first failure of any stage
+     * @param stats the pipeline counters
+     */
+    private static void parse(String inputPath, int batchSize, int workers, BlockingQueue<Batch> parsed,
+                              Semaphore inFlight, AtomicReference<Throwable> failure, PipelineStats stats) {
+        long start = System.nanoTime();
+        Batcher batcher = new Batcher(batchSize, parsed, inFlight, stats.getParse());
+        try {
+            StreamingSheetReader.read(inputPath, 0, batcher);
+            batcher.finish();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            stats.getParse().addWaitNanos(batcher.waitNanos);
+            stats.getParse().addBusyNanos(System.nanoTime() - start - batcher.waitNanos);
+            // The in-flight permits leave room in the queue for the END markers.
+            for (int i = 0; i < workers; i++) {
+                parsed.offer(END);
+            }
+        }
+    }
+
+    /**
+     * A worker of the filter stage: keeps only the matching rows of each batch and
+     * computes the batch's sum, count and partial aggregates.
+     *
+     * @param filter the predicate to apply for filtering
+     * @param avgColIndex the index of the column to average
+     * @param aggregator the aggregator template, or null
+     * @param parsed the queue from the parser
+     * @param filtered the queue to the writer
+     * @param failure the first failure of any stage
+     * @param stats the pipeline counters
+     */
+    private static void filter(Predicate<Row> filter, int avgColIndex, Aggregator aggregator,
+                               BlockingQueue<Batch> parsed, BlockingQueue<Batch> filtered,
+                               AtomicReference<Throwable> failure, PipelineStats stats) {
+        PipelineStats.Stage stage = stats.getFilter();
+        try (RowMaterializer materializer = new RowMaterializer()) {
+            while (true) {
+                long waitStart = System.nanoTime();
+                Batch batch = parsed.take();
+                long busyStart = System.nanoTime();
+                stage.addWaitNanos(busyStart - waitStart);
+                if (batch == END) {
+                    filtered.put(END);
+                    return;
+                }
+
+                if (!batch.header) {
+                    List<RowRecord> matches = new ArrayList<>();
+                    for (RowRecord record : batch.records) {
+                        if (!filter.test(materializer.materialize(record))) {
+                            continue;
+                        }
+                        matches.add(record);
+                        if (record.isNumeric(avgColIndex)) {
+                            batch.sum += record.getNumber(avgColIndex);
+                            batch.count++;
+                        }
+                        if (aggregator != null) {
+                            if (batch.aggregator == null) {
+                                batch.aggregator = aggregator.newPartial();
+                            }
+                            batch.aggregator.add(record);
+                        }
+                    }
+                    stage.addRows(batch.records.size());
+                    batch.records = matches;
+                }
+
+                long waitForRoom = System.nanoTime();
+                stage.addBusyNanos(waitForRoom - busyStart);
+                filtered.put(batch);
+                stage.addWaitNanos(System.nanoTime() - waitForRoom);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * The writer stage: writes the filtered batches in input order and merges their totals.
+     * Returns early if another stage fails.
+     *
+     * @param output the output sheet
+     * @param aggregator the aggregator for the matching rows, or null
+     * @param sorter the sorter collecting the matching rows instead of the output sheet, or null
+     * @param workers the number of END markers to wait for
+     * @param filtered the queue from the workers
+     * @param inFlight the permits limiting the batches in flight
+     * @param failure the first failure of any stage
+     * @param stats the pipeline counters
+     * @return an AverageTracker with the sum, count and next free output row
+     * @throws IOException if the sorter can't spill rows
+     */
+    private static AverageTracker write(Sheet output, Aggregator aggregator, RowSorter sorter, int workers,
+                                        BlockingQueue<Batch> filtered, Semaphore inFlight,
+                                        AtomicReference<Throwable> failure, PipelineStats stats) throws IOException {
+        PipelineStats.Stage stage = stats.getWrite();
+        AverageTracker avgTracker = new AverageTracker(0, 0, 0);
+        Map<Long, Batch> outOfOrder = new HashMap<>();
+        long nextSequence = 0;
+        int finishedWorkers = 0;
+
+        while (finishedWorkers < workers && failure.get() == null) {
+            long waitStart = System.nanoTime();
+            Batch batch;
+            try {
+                batch = filtered.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new IOException("Interrupted while writing rows", e));
+                break;
+            }
+            long busyStart = System.nanoTime();
+            stage.addWaitNanos(busyStart - waitStart);
+            if (batch == null) {
+                continue;
+            }
+            if (batch == END) {
+                finishedWorkers++;
+                continue;
+            }
+
+            outOfOrder.put(batch.sequence, batch);
+            while ((batch = outOfOrder.remove(nextSequence)) != null) {
+                writeBatch(batch, output, aggregator, sorter, avgTracker);
+                stage.addRows(batch.header ? 0 : batch.records.size());
+                inFlight.release();
+                nextSequence++;
+            }
+            stage.addBusyNanos(System.nanoTime() - busyStart);
+        }
+        return avgTracker;
+    }
+
+    /**
+     * Writes one batch in order: copies the header row, or the matching rows and their totals.
+     *
+     * @param batch the filtered batch
+     * @param output the output sheet
+     * @param aggregator the aggregator for the matching rows, or null
+     * @param sorter the sorter collecting the matching rows instead of the output sheet, or null
+     * @param avgTracker the running sum, count and next output row
+     * @throws IOException if the sorter can't spill rows
+     */
+    private static void writeBatch(Batch batch, Sheet output, Aggregator aggregator, RowSorter sorter,
+                                   AverageTracker avgTracker) throws IOException {
+        if (batch.header) {
+            RowRecord header = batch.records.get(0);
+            avgTracker.setNextRowIndex(ExcelProcessor.copyHeaderRow(header, output));
+            if (aggregator != null) {
+                aggregator.setColumnLabels(header.getTexts());
+            }
+            return;
+        }
+
+        int outputRowIndex = avgTracker.getNextRowIndex();
+        for (RowRecord record : batch.records) {
+            if (sorter != null) {
+                sorter.add(record);
+            } else {
+                record.copyTo(output.createRow(outputRowIndex++));
+            }
+        }
+        avgTracker.setNextRowIndex(outputRowIndex);
+        avgTracker.setSum(avgTracker.getSum() + batch.sum);
+        avgTracker.setCount(avgTracker.getCount() + batch.count);
+        if (aggregator != null && batch.aggregator != null) {
+            aggregator.merge(batch.aggregator);
+        }
+    }
+
+    /**
+     * Collects streamed rows into batches and hands every full batch to the workers,
+     * blocking while too many batches are in flight.
+     */
+    private static class Batcher implements RowHandler {
+
+        /**
+         * The number of rows per batch.
+         */
+        private final int batchSize;
+
+        /**
+         * The queue to the workers.
+         */
+        private final BlockingQueue<Batch> parsed;
+
+        /**
+         * The permits limiting the batches in flight.
+         */
+        private final Semaphore inFlight;
+
+        /**
+         * The parser stage counters.
+         */
+        private final PipelineStats.Stage stage;
+
+        /**
+         * The batch being filled.
+         */
+        private List<RowRecord> current;
+
+        /**
+         * The sequence number of the next batch.
+         */
+        private long sequence;
+
+        /**
+         * The time spent blocked on the workers, in nanoseconds.
+         */
+        long waitNanos;
+
+        Batcher(int batchSize, BlockingQueue<Batch> parsed, Semaphore inFlight, PipelineStats.Stage stage) {
+            this.batchSize = batchSize;
+            this.parsed = parsed;
+            this.inFlight = inFlight;
+            this.stage = stage;
+            this.current = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public boolean handleRow(RowRecord record) {
+            if (record.getRowNum() == 0) {
+                List<RowRecord> header = new ArrayList<>(1);
+                header.add(record);
+                emit(new Batch(sequence++, header, true));
+                return true;
+            }
+
+            current.add(record);
+            stage.addRows(1);
+            if (current.size() == batchSize) {
+                emit(new Batch(sequence++, current, false));
+                current = new ArrayList<>(batchSize);
+            }
+            return true;
+        }
+
+        /**
+         * Hands out the last, partially filled batch.
+         */
+        void finish() {
+            if (!current.isEmpty()) {
+                emit(new Batch(sequence++, current, false));
+                current = new ArrayList<>(batchSize);
+            }
+        }
+
+        /**
+         * Hands a batch to the workers once a permit is free.
+         * @param batch the batch
+         */
+        private void emit(Batch batch) {
+            long start = System.nanoTime();
+            try {
+                inFlight.acquire();
+                parsed.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Pipeline cancelled", e);
+            } finally {
+                waitNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * A batch of consecutive rows travelling through the pipeline.
+     */
+    private static class Batch {
+
+        /**
+         * The position of the batch in the input.
+         */
+        final long sequence;
+
+        /**
+         * The rows; after filtering, only the matching ones.
+         */
+        List<RowRecord> records;
+
+        /**
+         * Whether the batch holds just the header row.
+         */
+        final boolean header;
+
+        /**
+         * The sum of the averaged column over the matching rows.
+         */
+        double sum;
+
+        /**
+         * The number of numeric values in the averaged column over the matching rows.
+         */
+        int count;
+
+        /**
+         * The aggregates of the matching rows, or null.
+         */
+        Aggregator aggregator;
+
+        Batch(long sequence, List<RowRecord> records, boolean header) {
+            this.sequence = sequence;
+            this.records = records;
+            this.header = header;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.task5;
+
+import com.example.task5.utils.RowHandler;
+import com.example.task5.utils.RowRecord;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JRuntimeException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads .xlsx sheets with POI's event API (XSSFReader + SAX) instead of building
+ * an XSSFWorkbook DOM. Rows are handed to a {@link RowHandler} one at a time, so
+ * memory stays flat regardless of the number of rows in the sheet.
+ * Only the shared strings table is kept in memory.
+ */
+public class StreamingSheetReader {
+
+    /**
+     * Streams all rows of a sheet to the given handler, in sheet order.
+     *
+     * @param path the path to the .xlsx file
+     * @param sheetIndex the zero-based index of the sheet to read
+     * @param handler the callback receiving each row
+     * @throws IOException if the file can't be opened or parsed
+     */
+    public static void read(String path, int sheetIndex, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(path, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(pkg);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                try (InputStream sheetData = sheets.next()) {
+                    if (i == sheetIndex) {
+                        parseSheet(sheetData, sharedStrings, handler);
+                        return;
+                    }
+                }
+            }
+            throw new IOException("Sheet index " + sheetIndex + " not found in " + path);
+        } catch (OpenXML4JException | OpenXML4JRuntimeException | SAXException e) {
+            throw new IOException("Could not read " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Lists the sheet names of a workbook in workbook order, without parsing any sheet.
+     *
+     * @param path the path to the .xlsx file
+     * @return the sheet names
+     * @throws IOException if the file can't be opened
+     */
+    public static List<String> getSheetNames(String path) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(path, PackageAccess.READ)) {
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            List<String> names = new ArrayList<>();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                names.add(sheets.getSheetName());
+            }
+            return names;
+        } catch (OpenXML4JException | OpenXML4JRuntimeException e) {
+            throw new IOException("Could not read " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads only the first row of the first sheet, stopping the scan right after it.
+     *
+     * @param path the path to the .xlsx file
+     * @return the header row, or null if the sheet has no row at index 0
+     * @throws IOException if the file can't be opened or parsed
+     */
+    public static RowRecord readHeaderRow(String path) throws IOException {
+        RowRecord[] header = new RowRecord[1];
+        read(path, 0, record -> {
+            if (record.getRowNum() == 0) {
+                header[0] = record;
+            }
+            return false;
+        });
+        return header[0];
+    }
+
+    /**
+     * Runs the SAX parser over one worksheet part.
+     *
+     * @param sheetData the worksheet XML stream
+     * @param sharedStrings the workbook's shared strings table
+     * @param handler the callback receiving each row
+     * @throws IOException if the stream can't be read
+     * @throws SAXException if the XML is malformed
+     */
+    private static void parseSheet(InputStream sheetData, SharedStrings sharedStrings, RowHandler handler)
+            throws IOException, SAXException {
+        XMLReader parser;
+        try {
+            parser = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Could not create XML parser: " + e.getMessage(), e);
+        }
+
+        parser.setContentHandler(new SheetContentHandler(sharedStrings, handler));
+        try {
+            parser.parse(new InputSource(sheetData));
+        } catch (StopParsingException e) {
+            // The handler asked to stop early, nothing left to do.
+        }
+    }
+
+    /**
+     * Thrown from the content handler to abort parsing once the row handler returns false.
+     */
+    private static class StopParsingException extends SAXException {
+
+        /**
+         * The serialization version, required by the Serializable exception hierarchy.
+         */
+        private static final long serialVersionUID = 1L;
+
+        StopParsingException() {
+            super("Parsing stopped by row handler");
+        }
+    }
+
+    /**
+     * SAX handler for the &lt;sheetData&gt; part of a worksheet.
+     * Collects the typed cell values of the current row and emits a RowRecord at &lt;/row&gt;.
+     */
+    private static class SheetContentHandler extends DefaultHandler {
+
+        /**
+         * The workbook's shared strings, used to resolve t="s" cells.
+         */
+        private final SharedStrings sharedStrings;
+
+        /**
+         * The callback receiving completed rows.
+         */
+        private final RowHandler handler;
+
+        /**
+         * Reusable buffer for the values of the current row.
+         */
+        private Object[] rowValues = new Object[16];
+
+        /**
+         * The last column index that received a value in the current row, or -1.
+         */
+        private int lastColumn = -1;
+
+        /**
+         * The zero-based index of the current row.
+         */
+        private int rowNum = -1;
+
+        /**
+         * The column index of the current cell.
+         */
+        private int column;
+
+        /**
+         * The "t" attribute of the current cell.
+         */
+        private String cellType;
+
+        /**
+         * Whether character data should currently be collected.
+         */
+        private boolean collecting;
+
+        /**
+         * Whether the current cell contained a value (&lt;v&gt; or inline string).
+         */
+        private boolean hasValue;
+
+        /**
+         * Buffer for the text of the current &lt;v&gt; or &lt;t&gt; element.
+         */
+        private final StringBuilder text = new StringBuilder();
+
+        SheetContentHandler(SharedStrings sharedStrings, RowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNum = r != null ? Integer.parseInt(r) - 1 : rowNum + 1;
+                    lastColumn = -1;
+                    column = -1;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? parseColumn(ref) : column + 1;
+                    cellType = attributes.getValue("t");
+                    hasValue = false;
+                    text.setLength(0);
+                    break;
+                case "v":
+                    text.setLength(0);
+                    collecting = true;
+                    hasValue = true;
+                    break;
+                case "t":
+                    // Inline strings may be split into several rich text runs, so text is appended.
+                    if ("inlineStr".equals(cellType)) {
+                        collecting = true;
+                        hasValue = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "c":
+                    if (hasValue) {
+                        setValue(column, convertValue());
+                    }
+                    break;
+                case "row":
+                    RowRecord record = new RowRecord(rowNum, Arrays.copyOf(rowValues, lastColumn + 1));
+                    Arrays.fill(rowValues, 0, lastColumn + 1, null);
+                    if (!handler.handleRow(record)) {
+                        throw new StopParsingException();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Converts the collected text of the current cell according to its type attribute.
+         *
+         * @return a String, Double or Boolean value
+         */
+        private Object convertValue() {
+            String value = text.toString();
+            if (cellType == null || cellType.equals("n")) {
+                return value.isEmpty() ? null : Double.parseDouble(value);
+            }
+
+            switch (cellType) {
+                case "s":
+                    return sharedStrings.getItemAt(Integer.parseInt(value.trim())).getString();
+                case "b":
+                    return value.equals("1");
+                default:
+                    // inlineStr, str (formula result), e (error) and d (ISO date) are kept as text.
+                    return value;
+            }
+        }
+
+        /**
+         * Parses the column part of an A1-style cell reference without allocating.
+         *
+         * @param ref the cell reference (e.g. "AB12")
+         * @return the zero-based column index
+         */
+        private static int parseColumn(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                col = col * 26 + (c - 'A' + 1);
+            }
+            return col - 1;
+        }
+
+        /**
+         * Stores a value in the row buffer, growing it if needed.
+         *
+         * @param col the column index
+         * @param value the value to store
+         */
+        private void setValue(int col, Object value) {
+            if (col >= rowValues.length) {
+                rowValues = Arrays.copyOf(rowValues, Math.max(col + 1, rowValues.length * 2));
+            }
+            rowValues[col] = value;
+            if (value != null && col > lastColumn) {
+                lastColumn = col;
+            }
+        }
+    }
+}
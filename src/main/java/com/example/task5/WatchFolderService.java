@@ -0,0 +1,491 @@
+package com.example.task5;
+
+import com.example.task5.utils.BatchTarget;
+import com.example.task5.utils.ProcessingOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A daemon that watches a folder of workbooks and keeps filtered outputs up to date.
+ * Every saved filter (a "name = expression" line of the filters file) is applied to every
+ * .xlsx file in the folder; the result of filter F on workbook W.xlsx is written to
+ * &lt;outputDir&gt;/W.F.xlsx. A saved filter that is invalid for a workbook (bad syntax, unknown
+ * column) is reported and gets no output, instead of falling back to matching every row.
+ *
+ * Bursts of file events are debounced per file, and changed workbooks are processed on a
+ * worker pool, all stale filters of one workbook in a single {@link BatchProcessor} scan.
+ * Results are cached under &lt;outputDir&gt;/.cache by a SHA-256 hash of the workbook content and
+ * of the filter expression, so a workbook that was touched or re-saved without changes is
+ * never recomputed: its outputs are only touched, or copied again from the cache if they were deleted.
+ */
+public class WatchFolderService implements Closeable {
+
+    /**
+     * The name of the cache folder inside the output folder.
+     */
+    private static final String CACHE_DIR = ".cache";
+
+    /**
+     * The suffix of results still being written.
+     */
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    /**
+     * The column averaged in the outputs, if the workbook has it.
+     */
+    private static final String AVG_COLUMN = "price";
+
+    /**
+     * The column averaged when the workbook has no {@link #AVG_COLUMN}.
+     */
+    private static final int DEFAULT_AVG_COLUMN_INDEX = 2;
+
+    /**
+     * The watched folder.
+     */
+    private final Path inputDir;
+
+    /**
+     * The folder the outputs are written to.
+     */
+    private final Path outputDir;
+
+    /**
+     * The saved filter definitions.
+     */
+    private final Path filtersFile;
+
+    /**
+     * How long a file must be quiet before it is processed, in milliseconds.
+     */
+    private final long debounceMillis;
+
+    /**
+     * The pool processing the changed workbooks.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * The watch service of the input folder.
+     */
+    private final WatchService watcher;
+
+    /**
+     * The saved filters by name, replaced as a whole when the filters file changes.
+     */
+    private volatile Map<String, String> filters;
+
+    /**
+     * The workbooks waiting for their debounce deadline, with the deadline in nanoseconds.
+     * Only used by the watching thread.
+     */
+    private final Map<Path, Long> pending = new HashMap<>();
+
+    /**
+     * The workbooks currently being processed.
+     */
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The cached result each output was last copied from.
+     */
+    private final Map<Path, Path> published = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a WatchFolderService and starts watching the input folder.
+     *
+     * @param inputDir the folder with the input workbooks
+     * @param outputDir the folder the outputs are written to
+     * @param filtersFile the saved filters, one "name = expression" per line; edits are picked up
+     *                    while it lives in the watched folder
+     * @param workerCount the number of workbooks processed concurrently, must be positive
+     * @param debounceMillis how long a file must be quiet before it is processed
+     * @throws IOException if the folders can't be created or watched
+     */
+    public WatchFolderService(Path inputDir, Path outputDir, Path filtersFile, int workerCount, long debounceMillis)
+            throws IOException {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.filtersFile = filtersFile;
+        this.debounceMillis = debounceMillis;
+        Files.createDirectories(outputDir.resolve(CACHE_DIR));
+        this.filters = loadFilters(filtersFile);
+        this.watcher = FileSystems.getDefault().newWatchService();
+        inputDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.workers = Executors.newFixedThreadPool(workerCount);
+    }
+
+    /**
+     * Processes all workbooks of the folder once, then keeps processing the ones that change,
+     * until {@link #close()} is called or the folder disappears.
+     */
+    public void run() {
+        System.out.println("Watching " + inputDir + " with " + filters.size() + " saved filters");
+        scheduleAll();
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watcher.take()
+                        : watcher.poll(Math.max(0, nextDeadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                    if (!key.reset()) {
+                        System.err.println("Error: " + inputDir + " can no longer be watched");
+                        return;
+                    }
+                }
+                dispatchDue();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching and waits for the running workbooks to finish.
+     * @throws IOException if the watch service can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Schedules the workbooks and filter changes reported by a watch key.
+     * @param key the signalled key
+     */
+    private void handleEvents(WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                scheduleAll();
+                continue;
+            }
+            Path path = inputDir.resolve((Path) event.context());
+            if (isFiltersFile(path)) {
+                try {
+                    filters = loadFilters(filtersFile);
+                    System.out.println("Reloaded " + filters.size() + " saved filters");
+                    scheduleAll();
+                } catch (IOException e) {
+                    System.err.println("Error: could not read " + filtersFile + ": " + e.getMessage());
+                }
+            } else if (isWorkbook(path)) {
+                schedule(path);
+            }
+        }
+    }
+
+    /**
+     * Schedules every workbook of the folder.
+     */
+    private void scheduleAll() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir, "*.xlsx")) {
+            for (Path file : files) {
+                if (isWorkbook(file)) {
+                    schedule(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error: could not list " + inputDir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Schedules a workbook, pushing its deadline back if it is already waiting.
+     * @param path the workbook
+     */
+    private void schedule(Path path) {
+        pending.put(path, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debounceMillis));
+    }
+
+    /**
+     * Gets the earliest debounce deadline.
+     * @return the deadline in nanoseconds
+     */
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (long deadline : pending.values()) {
+            next = Math.min(next, deadline);
+        }
+        return next;
+    }
+
+    /**
+     * Hands the workbooks whose deadline has passed to the worker pool.
+     * A workbook that is still being processed waits for another debounce period.
+     */
+    private void dispatchDue() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator();
+        List<Path> retry = new ArrayList<>();
+        while (it.hasNext()) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (entry.getValue() - now > 0) {
+                continue;
+            }
+            it.remove();
+            Path path = entry.getKey();
+            if (!running.add(path)) {
+                retry.add(path);
+                continue;
+            }
+            Map<String, String> current = filters;
+            try {
+                workers.execute(() -> {
+                    try {
+                        processWorkbook(path, current);
+                    } catch (IOException e) {
+                        System.err.println("Error: " + path + ": " + e.getMessage());
+                    } finally {
+                        running.remove(path);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The service is closing.
+                running.remove(path);
+                return;
+            }
+        }
+        for (Path path : retry) {
+            schedule(path);
+        }
+    }
+
+    /**
+     * Brings the outputs of one workbook up to date. Filters whose result for the current
+     * content is cached are not recomputed; the others are evaluated together in one scan.
+     *
+     * @param input the workbook
+     * @param savedFilters the saved filters by name
+     * @throws IOException if the workbook can't be read or an output can't be written
+     */
+    private void processWorkbook(Path input, Map<String, String> savedFilters) throws IOException {
+        if (!Files.exists(input)) {
+            return;
+        }
+        String base = baseName(input);
+        String contentHash = sha256(input).substring(0, 16);
+
+        Map<String, Path> results = new TreeMap<>();
+        List<BatchTarget> stale = new ArrayList<>();
+        List<Path> partials = new ArrayList<>();
+        for (Map.Entry<String, String> filter : savedFilters.entrySet()) {
+            String filterHash = sha256(filter.getValue()).substring(0, 8);
+            Path result = outputDir.resolve(CACHE_DIR).resolve(base + "-" + contentHash + "-" + filterHash + ".xlsx");
+            results.put(filter.getKey(), result);
+            if (!Files.exists(result)) {
+                Path partial = result.resolveSibling(result.getFileName() + PARTIAL_SUFFIX);
+                Files.deleteIfExists(partial);
+                stale.add(new BatchTarget(filter.getValue(), partial.toString()));
+                partials.add(partial);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            String inputPath = input.toString();
+            int avgColumnIndex = ExcelProcessor.getHeadersMap(inputPath)
+                    .getOrDefault(AVG_COLUMN, DEFAULT_AVG_COLUMN_INDEX);
+            ProcessingOptions options = new ProcessingOptions();
+            options.setStreamingOutput(true);
+            List<BatchTarget> saved = BatchProcessor.processBatch(inputPath, stale, avgColumnIndex, options);
+
+            // Only completely saved outputs enter the cache; anything else left behind is discarded.
+            for (int i = 0; i < stale.size(); i++) {
+                Path partial = partials.get(i);
+                if (saved.contains(stale.get(i))) {
+                    String name = partial.getFileName().toString();
+                    Files.move(partial, partial.resolveSibling(name.substring(0, name.length() - PARTIAL_SUFFIX.length())),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.deleteIfExists(partial);
+                }
+            }
+        }
+
+        int written = 0;
+        int unchanged = 0;
+        for (Map.Entry<String, Path> entry : results.entrySet()) {
+            Path result = entry.getValue();
+            Path output = outputDir.resolve(base + "." + entry.getKey() + ".xlsx");
+            if (!Files.exists(result)) {
+                System.err.println("Error: filter '" + entry.getKey() + "' failed for " + input);
+            } else if (result.equals(published.get(output)) && Files.exists(output)) {
+                Files.setLastModifiedTime(output, FileTime.fromMillis(System.currentTimeMillis()));
+                unchanged++;
+            } else {
+                Files.copy(result, output, StandardCopyOption.REPLACE_EXISTING);
+                published.put(output, result);
+                written++;
+            }
+        }
+        pruneCache(base, contentHash);
+        System.out.println(input + ": " + stale.size() + " filters computed, " + written + " outputs written, "
+                + unchanged + " unchanged");
+    }
+
+    /**
+     * Deletes the cached results of earlier contents of a workbook.
+     * @param base the workbook name without extension
+     * @param contentHash the hash of the current content
+     * @throws IOException if the cache can't be listed
+     */
+    private void pruneCache(String base, String contentHash) throws IOException {
+        String prefix = base + "-";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(outputDir.resolve(CACHE_DIR))) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                // The length check keeps "a-" from matching the results of a workbook named "a-b".
+                if (name.startsWith(prefix) && name.length() == prefix.length() + 16 + 1 + 8 + ".xlsx".length()
+                        && !name.startsWith(prefix + contentHash)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a path is the saved filters file.
+     * @param path the changed file
+     * @return true for the filters file
+     */
+    private boolean isFiltersFile(Path path) {
+        return path.toAbsolutePath().normalize().equals(filtersFile.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Checks whether a file is an input workbook, skipping the lock files Excel creates while editing.
+     * @param path the file
+     * @return true for .xlsx files
+     */
+    private static boolean isWorkbook(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(".xlsx") && !name.startsWith("~$") && Files.isRegularFile(path);
+    }
+
+    /**
+     * Gets the file name of a workbook without the .xlsx extension.
+     * @param path the workbook
+     * @return the base name
+     */
+    private static String baseName(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.length() - ".xlsx".length());
+    }
+
+    /**
+     * Loads the saved filters: one "name = expression" per line, "#" starts a comment.
+     * A missing file means no filters.
+     *
+     * @param file the filters file
+     * @return the filters by name, sorted by name
+     * @throws IOException if the file can't be read
+     */
+    static Map<String, String> loadFilters(Path file) throws IOException {
+        Map<String, String> loaded = new TreeMap<>();
+        if (!Files.exists(file)) {
+            return loaded;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            loaded.put(name.trim(), properties.getProperty(name).trim());
+        }
+        return loaded;
+    }
+
+    /**
+     * Hashes the content of a file with SHA-256.
+     * @param file the file
+     * @return the hash as lowercase hex
+     * @throws IOException if the file can't be read
+     */
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Hashes a string with SHA-256.
+     * @param text the text
+     * @return the hash as lowercase hex
+     */
+    static String sha256(String text) {
+        MessageDigest digest = newDigest();
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        return hex(digest.digest());
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     * @return the digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", e);
+        }
+    }
+
+    /**
+     * Formats bytes as lowercase hex.
+     * @param bytes the bytes
+     * @return the hex text
+     */
+    private static String hex(byte[] bytes) {
+        StringBuilder text = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.task5.columnar;
+
+/**
+ * A heap-backed column: a double[] with a presence bitmap for numeric cells,
+ * a pair of bitmaps for boolean cells, and an int[] of dictionary codes for string cells.
+ * Arrays that a column never needs (e.g. codes in an all-numeric column) stay null.
+ */
+public class ArrayColumn extends Column {
+
+    /**
+     * A column without any values.
+     */
+    public static final ArrayColumn EMPTY = new ArrayColumn(null, null, null, null, null, new String[0]);
+
+    /**
+     * The numeric values, indexed by row. Only valid where the bitmap bit is set.
+     */
+    private final double[] numbers;
+
+    /**
+     * Bitmap of rows that hold a number (bit set = numeric, clear = null or string).
+     */
+    private final long[] numericBits;
+
+    /**
+     * Bitmap of rows that hold a boolean.
+     */
+    private final long[] booleanBits;
+
+    /**
+     * Bitmap of the boolean values (bit set = TRUE). Only valid where {@link #booleanBits} is set.
+     */
+    private final long[] booleanValues;
+
+    /**
+     * The dictionary codes of string cells, indexed by row, or {@link #NO_STRING}.
+     */
+    private final int[] codes;
+
+    /**
+     * The distinct strings of the column, indexed by code.
+     */
+    private final String[] dictionary;
+
+    /**
+     * The block statistics of the numbers, or null if the column has no numbers.
+     */
+    private final ZoneMap zoneMap;
+
+    /**
+     * Constructs an ArrayColumn from its arrays.
+     * @param numbers the numeric values, or null if the column has no numbers
+     * @param numericBits the numeric presence bitmap, or null if the column has no numbers
+     * @param booleanBits the boolean presence bitmap, or null if the column has no booleans
+     * @param booleanValues the boolean value bitmap, or null if the column has no booleans
+     * @param codes the string codes, or null if the column has no strings
+     * @param dictionary the string dictionary
+     */
+    public ArrayColumn(double[] numbers, long[] numericBits, long[] booleanBits, long[] booleanValues,
+                       int[] codes, String[] dictionary) {
+        this.numbers = numbers;
+        this.numericBits = numericBits;
+        this.booleanBits = booleanBits;
+        this.booleanValues = booleanValues;
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.zoneMap = numbers == null ? null : ZoneMap.build(this, numbers.length);
+    }
+
+    @Override
+    public boolean isNumeric(int row) {
+        return numericBits != null && (row >>> 6) < numericBits.length
+                && (numericBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    @Override
+    public double getNumber(int row) {
+        return numbers[row];
+    }
+
+    @Override
+    public boolean isBoolean(int row) {
+        return booleanBits != null && (row >>> 6) < booleanBits.length
+                && (booleanBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return (booleanValues[row >>> 6] & (1L << row)) != 0;
+    }
+
+    @Override
+    public int getCode(int row) {
+        return codes != null && row < codes.length ? codes[row] : NO_STRING;
+    }
+
+    @Override
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    @Override
+    public String getDictionaryValue(int code) {
+        return dictionary[code];
+    }
+
+    @Override
+    public ZoneMap getZoneMap() {
+        return zoneMap;
+    }
+}
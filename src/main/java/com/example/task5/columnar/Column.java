@@ -0,0 +1,78 @@
+package com.example.task5.columnar;
+
+/**
+ * A single column of a {@link ColumnarSheet}.
+ * A cell can hold a number, a boolean, a dictionary-encoded string, or nothing.
+ * Booleans are kept apart from strings so that string predicates never match them.
+ */
+public abstract class Column {
+
+    /**
+     * Code returned by {@link #getCode(int)} for cells without a string value.
+     */
+    public static final int NO_STRING = -1;
+
+    /**
+     * Checks whether a cell holds a number.
+     * @param row the zero-based data row
+     * @return true if the cell is numeric
+     */
+    public abstract boolean isNumeric(int row);
+
+    /**
+     * Gets the number stored in a cell. Only meaningful if {@link #isNumeric(int)} is true.
+     * @param row the zero-based data row
+     * @return the numeric value
+     */
+    public abstract double getNumber(int row);
+
+    /**
+     * Checks whether a cell holds a boolean.
+     * @param row the zero-based data row
+     * @return true if the cell is a boolean
+     */
+    public abstract boolean isBoolean(int row);
+
+    /**
+     * Gets the boolean stored in a cell. Only meaningful if {@link #isBoolean(int)} is true.
+     * @param row the zero-based data row
+     * @return the boolean value
+     */
+    public abstract boolean getBoolean(int row);
+
+    /**
+     * Gets the dictionary code of a cell's string value.
+     * @param row the zero-based data row
+     * @return the code, or {@link #NO_STRING}
+     */
+    public abstract int getCode(int row);
+
+    /**
+     * Gets the number of distinct strings in the column's dictionary.
+     * @return the dictionary size
+     */
+    public abstract int getDictionarySize();
+
+    /**
+     * Gets a string from the column's dictionary.
+     * @param code the dictionary code
+     * @return the decoded string
+     */
+    public abstract String getDictionaryValue(int code);
+
+    /**
+     * Gets the string value of a cell.
+     * @param row the zero-based data row
+     * @return the string, or null if the cell holds no string
+     */
+    public String getString(int row) {
+        int code = getCode(row);
+        return code == NO_STRING ? null : getDictionaryValue(code);
+    }
+
+    /**
+     * Gets the per-block min/max statistics of the column's numbers.
+     * @return the zone map, or null if the column holds no numbers
+     */
+    public abstract ZoneMap getZoneMap();
+}
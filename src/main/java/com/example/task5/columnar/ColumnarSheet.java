@@ -0,0 +1,196 @@
+package com.example.task5.columnar;
+
+import com.example.task5.StreamingSheetReader;
+import com.example.task5.utils.RowRecord;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable, column-oriented snapshot of a sheet's data rows (everything below the header row).
+ * Filters and averages can run against its primitive arrays without going through POI.
+ */
+public class ColumnarSheet {
+
+    /**
+     * A map of lowercased column names to their index positions, as built by ExcelProcessor.getHeadersMap.
+     */
+    private final Map<String, Integer> headersMap;
+
+    /**
+     * The original header cell texts, indexed by column (null where the header cell is empty).
+     */
+    private final String[] headerTexts;
+
+    /**
+     * The data columns, indexed by column.
+     */
+    private final Column[] columns;
+
+    /**
+     * The source row index of every data row (heap-backed, or a view of a mapped snapshot).
+     */
+    private final IntBuffer rowNums;
+
+    /**
+     * Constructs a ColumnarSheet.
+     * @param headersMap the header name to column index map
+     * @param headerTexts the header cell texts, or null if the sheet has no header row
+     * @param columns the data columns
+     * @param rowNums the source row index of every data row
+     */
+    public ColumnarSheet(Map<String, Integer> headersMap, String[] headerTexts, Column[] columns, int[] rowNums) {
+        this(headersMap, headerTexts, columns, IntBuffer.wrap(rowNums));
+    }
+
+    /**
+     * Constructs a ColumnarSheet whose row numbers live in a buffer, e.g. a mapped snapshot.
+     * @param headersMap the header name to column index map
+     * @param headerTexts the header cell texts, or null if the sheet has no header row
+     * @param columns the data columns
+     * @param rowNums the source row index of every data row, from index 0 to the buffer's limit
+     */
+    public ColumnarSheet(Map<String, Integer> headersMap, String[] headerTexts, Column[] columns, IntBuffer rowNums) {
+        this.headersMap = Collections.unmodifiableMap(headersMap);
+        this.headerTexts = headerTexts;
+        this.columns = columns;
+        this.rowNums = rowNums;
+    }
+
+    /**
+     * Builds a columnar snapshot of the first sheet of a workbook by streaming it.
+     *
+     * @param path the path to the .xlsx file
+     * @return the columnar sheet
+     * @throws IOException if the file can't be read
+     */
+    public static ColumnarSheet load(String path) throws IOException {
+        return load(path, 0);
+    }
+
+    /**
+     * Builds a columnar snapshot of one sheet of a workbook by streaming it.
+     *
+     * @param path the path to the .xlsx file
+     * @param sheetIndex the zero-based sheet index
+     * @return the columnar sheet
+     * @throws IOException if the file can't be read
+     */
+    public static ColumnarSheet load(String path, int sheetIndex) throws IOException {
+        ColumnarSheetBuilder builder = new ColumnarSheetBuilder();
+        StreamingSheetReader.read(path, sheetIndex, builder);
+        return builder.build();
+    }
+
+    /**
+     * Gets the map of lowercased column names to their index positions.
+     * @return the headers map
+     */
+    public Map<String, Integer> getHeadersMap() {
+        return headersMap;
+    }
+
+    /**
+     * Checks whether the source sheet had a header row.
+     * @return true if there is a header row
+     */
+    public boolean hasHeaderRow() {
+        return headerTexts != null;
+    }
+
+    /**
+     * Gets the number of header cell slots.
+     * @return the header cell count, 0 if there is no header row
+     */
+    public int getHeaderCount() {
+        return headerTexts == null ? 0 : headerTexts.length;
+    }
+
+    /**
+     * Gets the original text of a header cell.
+     * @param colIndex the column index
+     * @return the header text, or null if the cell is empty
+     */
+    public String getHeaderText(int colIndex) {
+        return headerTexts[colIndex];
+    }
+
+    /**
+     * Gets a copy of all header cell texts.
+     * @return the header texts indexed by column, empty if there is no header row
+     */
+    public String[] getHeaderTexts() {
+        return headerTexts == null ? new String[0] : headerTexts.clone();
+    }
+
+    /**
+     * Gets the number of columns holding data.
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Gets a column. Indexes beyond the last column return an empty column.
+     * @param colIndex the column index
+     * @return the column
+     */
+    public Column getColumn(int colIndex) {
+        return colIndex >= 0 && colIndex < columns.length ? columns[colIndex] : ArrayColumn.EMPTY;
+    }
+
+    /**
+     * Gets the number of data rows.
+     * @return the row count
+     */
+    public int getRowCount() {
+        return rowNums.limit();
+    }
+
+    /**
+     * Gets the number of zone map blocks the data rows are divided into.
+     * @return the block count
+     */
+    public int getBlockCount() {
+        return ZoneMap.blockCount(rowNums.limit());
+    }
+
+    /**
+     * Gets the source row index of a data row.
+     * @param row the zero-based data row
+     * @return the row index in the source sheet
+     */
+    public int getRowNum(int row) {
+        return rowNums.get(row);
+    }
+
+    /**
+     * Rebuilds a RowRecord for a data row, e.g. to evaluate an arbitrary Predicate&lt;Row&gt;.
+     *
+     * @param row the zero-based data row
+     * @return the row's values
+     */
+    public RowRecord toRecord(int row) {
+        int last = columns.length - 1;
+        while (last >= 0 && !columns[last].isNumeric(row) && !columns[last].isBoolean(row)
+                && columns[last].getCode(row) == Column.NO_STRING) {
+            last--;
+        }
+
+        Object[] values = new Object[last + 1];
+        for (int i = 0; i <= last; i++) {
+            Column column = columns[i];
+            if (column.isNumeric(row)) {
+                values[i] = column.getNumber(row);
+            } else if (column.isBoolean(row)) {
+                values[i] = column.getBoolean(row);
+            } else {
+                values[i] = column.getString(row);
+            }
+        }
+        return new RowRecord(rowNums.get(row), values);
+    }
+}
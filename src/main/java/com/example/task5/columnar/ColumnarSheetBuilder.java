@@ -0,0 +1,218 @@
+package com.example.task5.columnar;
+
+import com.example.task5.utils.RowHandler;
+import com.example.task5.utils.RowRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects streamed rows into a {@link ColumnarSheet}.
+ * The row at index 0 is treated as the header row, every other row becomes a data row.
+ */
+public class ColumnarSheetBuilder implements RowHandler {
+
+    /**
+     * The header to column index map.
+     */
+    private final Map<String, Integer> headersMap = new HashMap<>();
+
+    /**
+     * The header cell texts, or null until a header row is seen.
+     */
+    private String[] headerTexts;
+
+    /**
+     * One builder per column seen so far.
+     */
+    private final List<ColumnBuilder> columns = new ArrayList<>();
+
+    /**
+     * The source row index of every data row.
+     */
+    private int[] rowNums = new int[1024];
+
+    /**
+     * The number of data rows collected.
+     */
+    private int rowCount;
+
+    @Override
+    public boolean handleRow(RowRecord record) {
+        if (record.getRowNum() == 0) {
+            headerTexts = new String[record.getCellCount()];
+            for (int i = 0; i < record.getCellCount(); i++) {
+                String text = record.getText(i);
+                headerTexts[i] = text;
+                if (text != null) {
+                    headersMap.put(text.trim().toLowerCase(), i);
+                }
+            }
+            return true;
+        }
+
+        if (rowCount == rowNums.length) {
+            rowNums = Arrays.copyOf(rowNums, rowCount * 2);
+        }
+        rowNums[rowCount] = record.getRowNum();
+
+        for (int i = 0; i < record.getCellCount(); i++) {
+            Object value = record.getValue(i);
+            if (value == null) {
+                continue;
+            }
+            while (columns.size() <= i) {
+                columns.add(new ColumnBuilder());
+            }
+            if (value instanceof Double) {
+                columns.get(i).setNumber(rowCount, (Double) value);
+            } else if (value instanceof Boolean) {
+                columns.get(i).setBoolean(rowCount, (Boolean) value);
+            } else {
+                columns.get(i).setString(rowCount, record.getText(i));
+            }
+        }
+
+        rowCount++;
+        return true;
+    }
+
+    /**
+     * Freezes the collected rows into a ColumnarSheet.
+     * @return the columnar sheet
+     */
+    public ColumnarSheet build() {
+        Column[] built = new Column[columns.size()];
+        for (int i = 0; i < built.length; i++) {
+            built[i] = columns.get(i).build(rowCount);
+        }
+        return new ColumnarSheet(headersMap, headerTexts, built, Arrays.copyOf(rowNums, rowCount));
+    }
+
+    /**
+     * Growable arrays for a single column. Numeric, boolean and string storage are allocated on first use.
+     */
+    private static class ColumnBuilder {
+
+        /**
+         * The numeric values, or null if no number was seen yet.
+         */
+        private double[] numbers;
+
+        /**
+         * The numeric presence bitmap, or null if no number was seen yet.
+         */
+        private long[] numericBits;
+
+        /**
+         * The boolean presence bitmap, or null if no boolean was seen yet.
+         */
+        private long[] booleanBits;
+
+        /**
+         * The boolean value bitmap, or null if no boolean was seen yet.
+         */
+        private long[] booleanValues;
+
+        /**
+         * The string codes, or null if no string was seen yet.
+         */
+        private int[] codes;
+
+        /**
+         * Maps each distinct string to its code.
+         */
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        /**
+         * Stores a number.
+         * @param row the data row
+         * @param value the value
+         */
+        void setNumber(int row, double value) {
+            if (numbers == null) {
+                numbers = new double[Math.max(1024, row + 1)];
+                numericBits = new long[(numbers.length + 63) >>> 6];
+            } else if (row >= numbers.length) {
+                numbers = Arrays.copyOf(numbers, Math.max(row + 1, numbers.length * 2));
+                numericBits = Arrays.copyOf(numericBits, (numbers.length + 63) >>> 6);
+            }
+            numbers[row] = value;
+            numericBits[row >>> 6] |= 1L << row;
+        }
+
+        /**
+         * Stores a boolean.
+         * @param row the data row
+         * @param value the value
+         */
+        void setBoolean(int row, boolean value) {
+            int word = row >>> 6;
+            if (booleanBits == null) {
+                booleanBits = new long[Math.max(16, word + 1)];
+                booleanValues = new long[booleanBits.length];
+            } else if (word >= booleanBits.length) {
+                booleanBits = Arrays.copyOf(booleanBits, Math.max(word + 1, booleanBits.length * 2));
+                booleanValues = Arrays.copyOf(booleanValues, booleanBits.length);
+            }
+            booleanBits[word] |= 1L << row;
+            if (value) {
+                booleanValues[word] |= 1L << row;
+            }
+        }
+
+        /**
+         * Stores a string, adding it to the dictionary if needed.
+         * @param row the data row
+         * @param value the value
+         */
+        void setString(int row, String value) {
+            if (codes == null) {
+                codes = new int[Math.max(1024, row + 1)];
+                Arrays.fill(codes, Column.NO_STRING);
+            } else if (row >= codes.length) {
+                int oldLength = codes.length;
+                codes = Arrays.copyOf(codes, Math.max(row + 1, oldLength * 2));
+                Arrays.fill(codes, oldLength, codes.length, Column.NO_STRING);
+            }
+
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+            }
+            codes[row] = code;
+        }
+
+        /**
+         * Trims the arrays to the final row count and creates the column.
+         * @param rowCount the number of data rows
+         * @return the column
+         */
+        Column build(int rowCount) {
+            String[] values = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                values[entry.getValue()] = entry.getKey();
+            }
+
+            double[] trimmedNumbers = numbers == null ? null : Arrays.copyOf(numbers, rowCount);
+            long[] trimmedBits = numericBits == null ? null : Arrays.copyOf(numericBits, (rowCount + 63) >>> 6);
+            long[] trimmedBooleanBits = booleanBits == null ? null : Arrays.copyOf(booleanBits, (rowCount + 63) >>> 6);
+            long[] trimmedBooleanValues = booleanValues == null ? null
+                    : Arrays.copyOf(booleanValues, (rowCount + 63) >>> 6);
+            int[] trimmedCodes = null;
+            if (codes != null) {
+                int oldLength = codes.length;
+                trimmedCodes = Arrays.copyOf(codes, rowCount);
+                if (rowCount > oldLength) {
+                    Arrays.fill(trimmedCodes, oldLength, rowCount, Column.NO_STRING);
+                }
+            }
+            return new ArrayColumn(trimmedNumbers, trimmedBits, trimmedBooleanBits, trimmedBooleanValues,
+                    trimmedCodes, values);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.task5.columnar;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A column backed by views of a memory-mapped {@link SheetSnapshot}.
+ * Cell values are read straight from the mapped file; only the string dictionary
+ * and the zone map live on the heap.
+ */
+public class MappedColumn extends Column {
+
+    /**
+     * The numeric values, indexed by row, or null if the column has no numbers.
+     */
+    private final DoubleBuffer numbers;
+
+    /**
+     * Bitmap of rows that hold a number, or null if the column has no numbers.
+     */
+    private final LongBuffer numericBits;
+
+    /**
+     * Bitmap of rows that hold a boolean, or null if the column has no booleans.
+     */
+    private final LongBuffer booleanBits;
+
+    /**
+     * Bitmap of the boolean values (bit set = TRUE), or null if the column has no booleans.
+     */
+    private final LongBuffer booleanValues;
+
+    /**
+     * The dictionary codes of string cells, or null if the column has no strings.
+     */
+    private final IntBuffer codes;
+
+    /**
+     * The distinct strings of the column, indexed by code.
+     */
+    private final String[] dictionary;
+
+    /**
+     * The block statistics of the numbers, or null if the column has no numbers.
+     */
+    private final ZoneMap zoneMap;
+
+    /**
+     * Constructs a MappedColumn from buffer views.
+     * @param numbers the numeric values, or null
+     * @param numericBits the numeric presence bitmap, or null
+     * @param booleanBits the boolean presence bitmap, or null
+     * @param booleanValues the boolean value bitmap, or null
+     * @param codes the string codes, or null
+     * @param dictionary the string dictionary
+     * @param zoneMap the zone map of the numbers, or null
+     */
+    public MappedColumn(DoubleBuffer numbers, LongBuffer numericBits, LongBuffer booleanBits,
+                        LongBuffer booleanValues, IntBuffer codes, String[] dictionary, ZoneMap zoneMap) {
+        this.numbers = numbers;
+        this.numericBits = numericBits;
+        this.booleanBits = booleanBits;
+        this.booleanValues = booleanValues;
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.zoneMap = zoneMap;
+    }
+
+    @Override
+    public boolean isNumeric(int row) {
+        return numericBits != null && (row >>> 6) < numericBits.limit()
+                && (numericBits.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    @Override
+    public double getNumber(int row) {
+        return numbers.get(row);
+    }
+
+    @Override
+    public boolean isBoolean(int row) {
+        return booleanBits != null && (row >>> 6) < booleanBits.limit()
+                && (booleanBits.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    @Override
+    public boolean getBoolean(int row) {
+        return (booleanValues.get(row >>> 6) & (1L << row)) != 0;
+    }
+
+    @Override
+    public int getCode(int row) {
+        return codes != null && row < codes.limit() ? codes.get(row) : NO_STRING;
+    }
+
+    @Override
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    @Override
+    public String getDictionaryValue(int code) {
+        return dictionary[code];
+    }
+
+    @Override
+    public ZoneMap getZoneMap() {
+        return zoneMap;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.task5.columnar;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An LRU cache of {@link ColumnarSheet}s keyed by file path and sheet index.
+ * An entry is reused only while the file's modification time and size are unchanged,
+ * so repeated queries against the same workbook skip parsing entirely.
+ * With snapshots enabled, sheets are loaded through {@link SheetSnapshot}, so even the
+ * first query of a new run skips parsing as long as the workbook is unchanged.
+ * All methods are thread-safe.
+ */
+public class SheetCache {
+
+    /**
+     * The maximum number of cached sheets.
+     */
+    private final int capacity;
+
+    /**
+     * Whether sheets are loaded through memory-mapped snapshot files.
+     */
+    private final boolean useSnapshots;
+
+    /**
+     * The cached entries in access order, least recently used first.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Constructs a SheetCache.
+     * @param capacity the maximum number of sheets to keep, must be positive
+     */
+    public SheetCache(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * Constructs a SheetCache.
+     * @param capacity the maximum number of sheets to keep, must be positive
+     * @param useSnapshots true to load sheets through snapshot files next to the workbooks
+     */
+    public SheetCache(int capacity, boolean useSnapshots) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.useSnapshots = useSnapshots;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SheetCache.Entry> eldest) {
+                return size() > SheetCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the columnar first sheet of a workbook, loading it if it is not cached or the file has changed.
+     *
+     * @param path the path to the .xlsx file
+     * @return the columnar sheet
+     * @throws IOException if the file can't be read
+     */
+    public ColumnarSheet get(String path) throws IOException {
+        return get(path, 0);
+    }
+
+    /**
+     * Gets a columnar sheet of a workbook, loading it if it is not cached or the file has changed.
+     *
+     * @param path the path to the .xlsx file
+     * @param sheetIndex the zero-based sheet index
+     * @return the columnar sheet
+     * @throws IOException if the file can't be read
+     */
+    public ColumnarSheet get(String path, int sheetIndex) throws IOException {
+        Path file = Paths.get(path).toAbsolutePath().normalize();
+        String key = file + "#" + sheetIndex;
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        long size = Files.size(file);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.modified == modified && entry.size == size) {
+                return entry.sheet;
+            }
+        }
+
+        // Load outside the lock so other files can still be served meanwhile.
+        ColumnarSheet sheet = useSnapshots ? SheetSnapshot.load(path, sheetIndex) : ColumnarSheet.load(path, sheetIndex);
+        synchronized (entries) {
+            entries.put(key, new Entry(modified, size, sheet));
+        }
+        return sheet;
+    }
+
+    /**
+     * Removes every cached sheet.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the number of cached sheets.
+     * @return the cache size
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * A cached sheet together with the file state it was built from.
+     */
+    private static class Entry {
+
+        /**
+         * The file modification time in milliseconds.
+         */
+        final long modified;
+
+        /**
+         * The file size in bytes.
+         */
+        final long size;
+
+        /**
+         * The cached sheet.
+         */
+        final ColumnarSheet sheet;
+
+        Entry(long modified, long size, ColumnarSheet sheet) {
+            this.modified = modified;
+            this.size = size;
+            this.sheet = sheet;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package com.example.task5.columnar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact binary columnar file holding one parsed sheet.
+ * The file is memory-mapped when read: the column values are served directly from the
+ * mapping, so opening a snapshot costs a few header reads instead of parsing the xlsx.
+ * Every snapshot records the modification time and size of its source file and is
+ * rebuilt by {@link #load(String, int)} as soon as the source changes.
+ *
+ * <p>Layout (big-endian): magic, version, source modification time, source size, sheet index,
+ * row count, column count, header texts, headers map, row numbers, then per column a flags word,
+ * the string dictionary, the zone map, the numeric bitmap and values, the boolean presence and
+ * value bitmaps, and the string codes.
+ * Array sections start on 8-byte boundaries.</p>
+ */
+public class SheetSnapshot {
+
+    /**
+     * The first four bytes of every snapshot ("XSNP").
+     */
+    private static final int MAGIC = 0x58534E50;
+
+    /**
+     * The format version; snapshots of another version are rebuilt.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Column flag: the column holds numbers.
+     */
+    private static final int HAS_NUMBERS = 1;
+
+    /**
+     * Column flag: the column holds strings.
+     */
+    private static final int HAS_STRINGS = 2;
+
+    /**
+     * Column flag: the column holds booleans.
+     */
+    private static final int HAS_BOOLEANS = 4;
+
+    /**
+     * Gets the snapshot file used for a sheet of a workbook (next to the workbook).
+     *
+     * @param path the path to the .xlsx file
+     * @param sheetIndex the zero-based sheet index
+     * @return the snapshot path
+     */
+    public static Path snapshotPath(String path, int sheetIndex) {
+        Path source = Paths.get(path).toAbsolutePath().normalize();
+        return source.resolveSibling(source.getFileName() + "." + sheetIndex + ".snap");
+    }
+
+    /**
+     * Gets a columnar sheet through its snapshot. A snapshot that is up to date is mapped;
+     * a missing, stale or unreadable one is rebuilt from the xlsx file.
+     *
+     * @param path the path to the .xlsx file
+     * @param sheetIndex the zero-based sheet index
+     * @return the columnar sheet
+     * @throws IOException if the xlsx file can't be read
+     */
+    public static ColumnarSheet load(String path, int sheetIndex) throws IOException {
+        Path source = Paths.get(path);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        long size = Files.size(source);
+        Path snapshot = snapshotPath(path, sheetIndex);
+
+        if (Files.exists(snapshot)) {
+            try {
+                ColumnarSheet sheet = open(snapshot, modified, size, sheetIndex);
+                if (sheet != null) {
+                    return sheet;
+                }
+            } catch (IOException e) {
+                System.err.println("Ignoring unreadable snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+
+        ColumnarSheet sheet = ColumnarSheet.load(path, sheetIndex);
+        try {
+            write(sheet, snapshot, modified, size, sheetIndex);
+        } catch (IOException e) {
+            System.err.println("Could not write snapshot " + snapshot + ": " + e.getMessage());
+        }
+        return sheet;
+    }
+
+    /**
+     * Exports a sheet of a workbook to its snapshot file, replacing any existing snapshot.
+     *
+     * @param path the path to the .xlsx file
+     * @param sheetIndex the zero-based sheet index
+     * @return the snapshot path
+     * @throws IOException if the xlsx file can't be read or the snapshot can't be written
+     */
+    public static Path export(String path, int sheetIndex) throws IOException {
+        Path source = Paths.get(path);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        long size = Files.size(source);
+        Path snapshot = snapshotPath(path, sheetIndex);
+        write(ColumnarSheet.load(path, sheetIndex), snapshot, modified, size, sheetIndex);
+        return snapshot;
+    }
+
+    /**
+     * Writes a columnar sheet to a snapshot file. The file is written under a unique temporary name
+     * and then moved into place, so readers never see a partial snapshot, and concurrent writers
+     * of the same snapshot (e.g. two cache misses at once) never write through the same file.
+     *
+     * @param sheet the sheet to write
+     * @param file the snapshot file
+     * @param sourceModified the modification time of the source file in milliseconds
+     * @param sourceSize the size of the source file in bytes
+     * @param sheetIndex the zero-based sheet index in the source file
+     * @throws IOException if the file can't be written
+     */
+    public static void write(ColumnarSheet sheet, Path file, long sourceModified, long sourceSize, int sheetIndex)
+            throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp");
+        try {
+            writeTo(temp, sheet, sourceModified, sourceSize, sheetIndex);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes the snapshot format of a columnar sheet to a file.
+     *
+     * @param temp the file to write
+     * @param sheet the sheet to write
+     * @param sourceModified the modification time of the source file in milliseconds
+     * @param sourceSize the size of the source file in bytes
+     * @param sheetIndex the zero-based sheet index in the source file
+     * @throws IOException if the file can't be written
+     */
+    private static void writeTo(Path temp, ColumnarSheet sheet, long sourceModified, long sourceSize, int sheetIndex)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            int rowCount = sheet.getRowCount();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceModified);
+            out.writeLong(sourceSize);
+            out.writeInt(sheetIndex);
+            out.writeInt(rowCount);
+            out.writeInt(sheet.getColumnCount());
+
+            out.writeInt(sheet.hasHeaderRow() ? sheet.getHeaderCount() : -1);
+            for (int i = 0; i < sheet.getHeaderCount(); i++) {
+                writeString(out, sheet.getHeaderText(i));
+            }
+            out.writeInt(sheet.getHeadersMap().size());
+            for (Map.Entry<String, Integer> entry : sheet.getHeadersMap().entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+
+            pad(out);
+            for (int row = 0; row < rowCount; row++) {
+                out.writeInt(sheet.getRowNum(row));
+            }
+
+            for (int col = 0; col < sheet.getColumnCount(); col++) {
+                writeColumn(out, sheet.getColumn(col), rowCount);
+            }
+        }
+    }
+
+    /**
+     * Maps a snapshot file without checking its source.
+     *
+     * @param file the snapshot file
+     * @return the columnar sheet backed by the mapping
+     * @throws IOException if the file can't be read or is not a valid snapshot
+     */
+    public static ColumnarSheet open(Path file) throws IOException {
+        return open(file, -1, -1, -1);
+    }
+
+    /**
+     * Maps a snapshot file if it was built from the given source state.
+     *
+     * @param file the snapshot file
+     * @param sourceModified the expected source modification time, or -1 to skip the check
+     * @param sourceSize the expected source size, or -1 to skip the check
+     * @param sheetIndex the expected sheet index, or -1 to skip the check
+     * @return the columnar sheet, or null if the snapshot is stale
+     * @throws IOException if the file can't be read or is not a valid snapshot
+     */
+    private static ColumnarSheet open(Path file, long sourceModified, long sourceSize, int sheetIndex)
+            throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a sheet snapshot (or an older format)");
+            }
+            long modified = buffer.getLong();
+            long size = buffer.getLong();
+            int index = buffer.getInt();
+            if ((sourceModified >= 0 && modified != sourceModified) || (sourceSize >= 0 && size != sourceSize)
+                    || (sheetIndex >= 0 && index != sheetIndex)) {
+                return null;
+            }
+
+            int rowCount = buffer.getInt();
+            int columnCount = buffer.getInt();
+
+            int headerCount = buffer.getInt();
+            String[] headerTexts = headerCount < 0 ? null : new String[headerCount];
+            for (int i = 0; i < headerCount; i++) {
+                headerTexts[i] = readString(buffer);
+            }
+            int mapSize = buffer.getInt();
+            Map<String, Integer> headersMap = new HashMap<>();
+            for (int i = 0; i < mapSize; i++) {
+                String key = readString(buffer);
+                headersMap.put(key, buffer.getInt());
+            }
+
+            align(buffer);
+            IntBuffer rowNums = slice(buffer, rowCount * 4L).asIntBuffer();
+
+            Column[] columns = new Column[columnCount];
+            for (int col = 0; col < columnCount; col++) {
+                columns[col] = readColumn(buffer, rowCount);
+            }
+            return new ColumnarSheet(headersMap, headerTexts, columns, rowNums);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot " + file + ": " + e, e);
+        }
+    }
+
+    /**
+     * Writes one column section.
+     * @param out the output
+     * @param column the column
+     * @param rowCount the number of data rows
+     * @throws IOException if writing fails
+     */
+    private static void writeColumn(DataOutputStream out, Column column, int rowCount) throws IOException {
+        ZoneMap zoneMap = column.getZoneMap();
+        boolean hasNumbers = zoneMap != null;
+        boolean hasStrings = column.getDictionarySize() > 0;
+        boolean hasBooleans = false;
+        for (int row = 0; row < rowCount && !hasBooleans; row++) {
+            hasBooleans = column.isBoolean(row);
+        }
+        out.writeInt((hasNumbers ? HAS_NUMBERS : 0) | (hasStrings ? HAS_STRINGS : 0)
+                | (hasBooleans ? HAS_BOOLEANS : 0));
+
+        out.writeInt(column.getDictionarySize());
+        for (int code = 0; code < column.getDictionarySize(); code++) {
+            writeString(out, column.getDictionaryValue(code));
+        }
+
+        if (hasNumbers) {
+            int blocks = zoneMap.getBlockCount();
+            out.writeInt(blocks);
+            pad(out);
+            for (int block = 0; block < blocks; block++) {
+                out.writeDouble(zoneMap.getMin(block));
+            }
+            for (int block = 0; block < blocks; block++) {
+                out.writeDouble(zoneMap.getMax(block));
+            }
+            for (int block = 0; block < blocks; block++) {
+                out.writeInt(zoneMap.getNullCount(block));
+            }
+
+            pad(out);
+            int words = (rowCount + 63) >>> 6;
+            for (int word = 0; word < words; word++) {
+                long bits = 0;
+                int end = Math.min(rowCount, (word + 1) << 6);
+                for (int row = word << 6; row < end; row++) {
+                    if (column.isNumeric(row)) {
+                        bits |= 1L << row;
+                    }
+                }
+                out.writeLong(bits);
+            }
+            for (int row = 0; row < rowCount; row++) {
+                out.writeDouble(column.isNumeric(row) ? column.getNumber(row) : 0);
+            }
+        }
+
+        if (hasBooleans) {
+            pad(out);
+            int words = (rowCount + 63) >>> 6;
+            long[] values = new long[words];
+            for (int word = 0; word < words; word++) {
+                long bits = 0;
+                int end = Math.min(rowCount, (word + 1) << 6);
+                for (int row = word << 6; row < end; row++) {
+                    if (column.isBoolean(row)) {
+                        bits |= 1L << row;
+                        if (column.getBoolean(row)) {
+                            values[word] |= 1L << row;
+                        }
+                    }
+                }
+                out.writeLong(bits);
+            }
+            for (long bits : values) {
+                out.writeLong(bits);
+            }
+        }
+
+        if (hasStrings) {
+            pad(out);
+            for (int row = 0; row < rowCount; row++) {
+                out.writeInt(column.getCode(row));
+            }
+        }
+    }
+
+    /**
+     * Reads one column section, creating views of its arrays.
+     * @param buffer the mapped snapshot, positioned at the column
+     * @param rowCount the number of data rows
+     * @return the column
+     */
+    private static Column readColumn(ByteBuffer buffer, int rowCount) {
+        int flags = buffer.getInt();
+
+        String[] dictionary = new String[buffer.getInt()];
+        for (int code = 0; code < dictionary.length; code++) {
+            dictionary[code] = readString(buffer);
+        }
+
+        DoubleBuffer numbers = null;
+        LongBuffer numericBits = null;
+        ZoneMap zoneMap = null;
+        if ((flags & HAS_NUMBERS) != 0) {
+            int blocks = buffer.getInt();
+            align(buffer);
+            double[] min = new double[blocks];
+            double[] max = new double[blocks];
+            int[] nullCounts = new int[blocks];
+            buffer.asDoubleBuffer().get(min);
+            buffer.position(buffer.position() + blocks * 8);
+            buffer.asDoubleBuffer().get(max);
+            buffer.position(buffer.position() + blocks * 8);
+            buffer.asIntBuffer().get(nullCounts);
+            buffer.position(buffer.position() + blocks * 4);
+            zoneMap = new ZoneMap(min, max, nullCounts);
+
+            align(buffer);
+            numericBits = slice(buffer, ((rowCount + 63) >>> 6) * 8L).asLongBuffer();
+            numbers = slice(buffer, rowCount * 8L).asDoubleBuffer();
+        }
+
+        LongBuffer booleanBits = null;
+        LongBuffer booleanValues = null;
+        if ((flags & HAS_BOOLEANS) != 0) {
+            align(buffer);
+            booleanBits = slice(buffer, ((rowCount + 63) >>> 6) * 8L).asLongBuffer();
+            booleanValues = slice(buffer, ((rowCount + 63) >>> 6) * 8L).asLongBuffer();
+        }
+
+        IntBuffer codes = null;
+        if ((flags & HAS_STRINGS) != 0) {
+            align(buffer);
+            codes = slice(buffer, rowCount * 4L).asIntBuffer();
+        }
+        return new MappedColumn(numbers, numericBits, booleanBits, booleanValues, codes, dictionary, zoneMap);
+    }
+
+    /**
+     * Cuts the next section out of the buffer and advances past it.
+     * @param buffer the mapped snapshot
+     * @param length the section length in bytes
+     * @return a buffer covering exactly the section
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, long length) {
+        if (length > buffer.remaining()) {
+            throw new IllegalStateException("Section of " + length + " bytes exceeds the file");
+        }
+        ByteBuffer section = buffer.duplicate();
+        section.limit(section.position() + (int) length);
+        buffer.position(buffer.position() + (int) length);
+        return section.slice();
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string (length -1 for null).
+     * @param out the output
+     * @param value the string, or null
+     * @throws IOException if writing fails
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     * @param buffer the mapped snapshot
+     * @return the string, or null
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Pads the output with zeros to the next 8-byte boundary.
+     * @param out the output
+     * @throws IOException if writing fails
+     */
+    private static void pad(DataOutputStream out) throws IOException {
+        while (out.size() % 8 != 0) {
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Skips the padding written by {@link #pad}.
+     * @param buffer the mapped snapshot
+     */
+    private static void align(ByteBuffer buffer) {
+        buffer.position((buffer.position() + 7) & ~7);
+    }
+}
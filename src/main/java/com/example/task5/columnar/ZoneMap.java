@@ -0,0 +1,119 @@
+package com.example.task5.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Per-block statistics of a numeric column: the minimum, the maximum and the number of
+ * non-numeric (null) cells of every block of {@link #BLOCK_SIZE} rows.
+ * Filters use them to skip whole blocks that can't contain a matching row.
+ */
+public class ZoneMap {
+
+    /**
+     * The number of rows summarized by one block.
+     */
+    public static final int BLOCK_SIZE = 4096;
+
+    /**
+     * The smallest number of each block (+Infinity if the block has no numbers).
+     */
+    private final double[] min;
+
+    /**
+     * The largest number of each block (-Infinity if the block has no numbers).
+     */
+    private final double[] max;
+
+    /**
+     * The number of rows without a number in each block.
+     */
+    private final int[] nullCounts;
+
+    /**
+     * Constructs a ZoneMap from precomputed statistics.
+     * @param min the block minimums
+     * @param max the block maximums
+     * @param nullCounts the block null counts
+     */
+    public ZoneMap(double[] min, double[] max, int[] nullCounts) {
+        this.min = min;
+        this.max = max;
+        this.nullCounts = nullCounts;
+    }
+
+    /**
+     * Computes the block statistics of a numeric column.
+     *
+     * @param column the column to summarize
+     * @param rowCount the number of data rows
+     * @return the zone map
+     */
+    public static ZoneMap build(Column column, int rowCount) {
+        int blocks = blockCount(rowCount);
+        double[] min = new double[blocks];
+        double[] max = new double[blocks];
+        int[] nullCounts = new int[blocks];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+
+        for (int row = 0; row < rowCount; row++) {
+            int block = row / BLOCK_SIZE;
+            if (column.isNumeric(row)) {
+                double value = column.getNumber(row);
+                if (value < min[block]) {
+                    min[block] = value;
+                }
+                if (value > max[block]) {
+                    max[block] = value;
+                }
+            } else {
+                nullCounts[block]++;
+            }
+        }
+        return new ZoneMap(min, max, nullCounts);
+    }
+
+    /**
+     * Gets the number of blocks needed for a row count.
+     * @param rowCount the number of rows
+     * @return the block count
+     */
+    public static int blockCount(int rowCount) {
+        return (rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Gets the smallest number of a block.
+     * @param block the block index
+     * @return the minimum, or +Infinity if the block has no numbers
+     */
+    public double getMin(int block) {
+        return min[block];
+    }
+
+    /**
+     * Gets the largest number of a block.
+     * @param block the block index
+     * @return the maximum, or -Infinity if the block has no numbers
+     */
+    public double getMax(int block) {
+        return max[block];
+    }
+
+    /**
+     * Gets the number of rows without a number in a block.
+     * @param block the block index
+     * @return the null count
+     */
+    public int getNullCount(int block) {
+        return nullCounts[block];
+    }
+
+    /**
+     * Gets the number of blocks.
+     * @return the block count
+     */
+    public int getBlockCount() {
+        return min.length;
+    }
+}
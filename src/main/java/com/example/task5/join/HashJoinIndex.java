@@ -0,0 +1,547 @@
+package com.example.task5.join;
+
+import com.example.task5.StreamingSheetReader;
+import com.example.task5.utils.RowHandler;
+import com.example.task5.utils.RowRecord;
+import com.example.task5.utils.RowRecordIO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hash index over the key column of a reference workbook, used for semi-joins
+ * ("sku in prices.xlsx:sku") and for lookups that pull columns of the reference into the output.
+ * The first sheet of the reference is streamed into a hash table of key to payload columns.
+ * If the table outgrows its memory budget, the index switches to a grace hash join: the reference
+ * rows are partitioned by key hash into temp files, and {@link #probe} partitions the input the
+ * same way and joins one partition pair at a time. Closing the index deletes the partition files.
+ *
+ * Keys are compared as text: numbers are written without a trailing ".0" when integral,
+ * so the number 1001 matches the string "1001". When a key occurs more than once in the
+ * reference, its first row wins.
+ */
+public class HashJoinIndex implements Closeable {
+
+    /**
+     * The default memory budget of an index: 64 MB.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    /**
+     * The smallest number of partitions of a grace join.
+     */
+    private static final int MIN_PARTITIONS = 8;
+
+    /**
+     * The largest number of partitions of a grace join (one open file per partition while partitioning).
+     */
+    private static final int MAX_PARTITIONS = 256;
+
+    /**
+     * Rough ratio between the heap size of the parsed rows and the size of the xlsx file.
+     */
+    private static final int XLSX_EXPANSION = 10;
+
+    /**
+     * The header texts of the payload columns.
+     */
+    private final String[] payloadHeaders;
+
+    /**
+     * The in-memory table of key to payload values, or null once partitioned.
+     */
+    private Map<String, Object[]> table = new HashMap<>();
+
+    /**
+     * The reference partition files, or null while the table is in memory.
+     */
+    private Path[] partitions;
+
+    /**
+     * Constructs an empty index.
+     * @param payloadHeaders the header texts of the payload columns
+     */
+    private HashJoinIndex(String[] payloadHeaders) {
+        this.payloadHeaders = payloadHeaders;
+    }
+
+    /**
+     * Builds an index by streaming the first sheet of a reference workbook.
+     *
+     * @param path the path to the reference .xlsx file
+     * @param keyColumn the index of the key column in the reference
+     * @param payloadColumns the indexes of the reference columns to pull into lookups (may be empty)
+     * @param memoryBudget the approximate number of bytes the in-memory table may use
+     * @return the index
+     * @throws IOException if the reference can't be read or partitioned
+     */
+    public static HashJoinIndex build(String path, int keyColumn, int[] payloadColumns, long memoryBudget)
+            throws IOException {
+        String[] headers = new String[payloadColumns.length];
+        HashJoinIndex index = new HashJoinIndex(headers);
+        Loader loader = new Loader(index, keyColumn, payloadColumns, memoryBudget,
+                partitionCount(Files.size(Paths.get(path)), memoryBudget));
+        try {
+            try {
+                StreamingSheetReader.read(path, 0, loader);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            loader.finish();
+        } catch (IOException e) {
+            loader.closeQuietly();
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Normalizes a cell value to a join key.
+     *
+     * @param value a cell value (String, Double or Boolean)
+     * @return the key, or null for empty cells
+     */
+    public static String keyOf(Object value) {
+        if (value instanceof Double) {
+            return keyOf((double) (Double) value);
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        }
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Normalizes a number to a join key.
+     *
+     * @param value the number
+     * @return the key
+     */
+    public static String keyOf(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Checks whether the reference outgrew the memory budget and was partitioned.
+     * A partitioned index can only be used through {@link #probe}.
+     * @return true if the index is partitioned
+     */
+    public boolean isPartitioned() {
+        return partitions != null;
+    }
+
+    /**
+     * Checks whether a key occurs in the reference.
+     *
+     * @param key the normalized key
+     * @return true if the key is present
+     * @throws IllegalStateException if the index is partitioned
+     */
+    public boolean contains(String key) {
+        return key != null && inMemoryTable().containsKey(key);
+    }
+
+    /**
+     * Gets the payload values of a key.
+     *
+     * @param key the normalized key
+     * @return the payload values, or null if the key is not present
+     * @throws IllegalStateException if the index is partitioned
+     */
+    public Object[] lookup(String key) {
+        return key == null ? null : inMemoryTable().get(key);
+    }
+
+    /**
+     * Gets the header texts of the payload columns.
+     * @return the payload headers (null where the reference header cell is empty)
+     */
+    public String[] getPayloadHeaders() {
+        return payloadHeaders.clone();
+    }
+
+    /**
+     * Gets the number of payload columns.
+     * @return the payload column count
+     */
+    public int getPayloadCount() {
+        return payloadHeaders.length;
+    }
+
+    /**
+     * Runs the grace hash join of a partitioned index against the first sheet of an input workbook.
+     *
+     * @param inputPath the path to the input .xlsx file
+     * @param inputKeyColumn the index of the key column in the input
+     * @return the matching input rows and their payloads, in input order
+     * @throws IOException if a file can't be read or written
+     */
+    public JoinMatches probe(String inputPath, int inputKeyColumn) throws IOException {
+        return probe(inputPath, 0, inputKeyColumn);
+    }
+
+    /**
+     * Runs the grace hash join of a partitioned index against a sheet of an input workbook.
+     * The input keys are partitioned like the reference; then each reference partition is loaded
+     * into memory and probed with the matching input partition.
+     *
+     * @param inputPath the path to the input .xlsx file
+     * @param sheetIndex the zero-based index of the input sheet
+     * @param inputKeyColumn the index of the key column in the input
+     * @return the matching rows of the sheet and their payloads, in input order
+     * @throws IOException if a file can't be read or written
+     */
+    public JoinMatches probe(String inputPath, int sheetIndex, int inputKeyColumn) throws IOException {
+        if (!isPartitioned()) {
+            throw new IllegalStateException("probe() is only needed for partitioned indexes");
+        }
+
+        Path[] inputPartitions = new Path[partitions.length];
+        DataOutputStream[] outs = new DataOutputStream[partitions.length];
+        Path[] results = payloadHeaders.length == 0 ? null : new Path[partitions.length];
+        BitSet matches = new BitSet();
+        try {
+            for (int p = 0; p < partitions.length; p++) {
+                inputPartitions[p] = Files.createTempFile("join-input", ".bin");
+                outs[p] = open(inputPartitions[p]);
+            }
+            try {
+                StreamingSheetReader.read(inputPath, sheetIndex, record -> {
+                    String key = record.getRowNum() == 0 ? null : keyOf(record.getValue(inputKeyColumn));
+                    if (key != null) {
+                        try {
+                            RowRecordIO.write(outs[partitionOf(key, outs.length)],
+                                    new RowRecord(record.getRowNum(), new Object[]{key}));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    return true;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            closeAll(outs);
+
+            for (int p = 0; p < partitions.length; p++) {
+                Map<String, Object[]> partitionTable = loadPartition(partitions[p]);
+                DataOutputStream result = null;
+                if (results != null) {
+                    results[p] = Files.createTempFile("join-result", ".bin");
+                    result = open(results[p]);
+                }
+                try (DataInputStream in = openInput(inputPartitions[p])) {
+                    RowRecord probe;
+                    while ((probe = readOrNull(in)) != null) {
+                        Object[] payload = partitionTable.get((String) probe.getValue(0));
+                        if (payload != null) {
+                            matches.set(probe.getRowNum());
+                            if (result != null) {
+                                RowRecordIO.write(result, new RowRecord(probe.getRowNum(), payload));
+                            }
+                        }
+                    }
+                } finally {
+                    if (result != null) {
+                        result.close();
+                    }
+                }
+                Files.deleteIfExists(inputPartitions[p]);
+            }
+            return new JoinMatches(matches, results);
+        } catch (IOException | RuntimeException e) {
+            closeAll(outs);
+            deleteAll(results);
+            throw e;
+        } finally {
+            deleteAll(inputPartitions);
+        }
+    }
+
+    /**
+     * Deletes the partition files of a partitioned index.
+     * @throws IOException if a file can't be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        deleteAll(partitions);
+    }
+
+    /**
+     * Gets the in-memory table, failing for partitioned indexes.
+     * @return the table
+     */
+    private Map<String, Object[]> inMemoryTable() {
+        if (table == null) {
+            throw new IllegalStateException("The lookup table is partitioned; use probe()");
+        }
+        return table;
+    }
+
+    /**
+     * Loads one reference partition into a hash table, keeping the first row of each key.
+     * @param file the partition file
+     * @return the table
+     * @throws IOException if the partition can't be read
+     */
+    private static Map<String, Object[]> loadPartition(Path file) throws IOException {
+        Map<String, Object[]> partitionTable = new HashMap<>();
+        try (DataInputStream in = openInput(file)) {
+            RowRecord entry;
+            while ((entry = readOrNull(in)) != null) {
+                Object[] payload = new Object[entry.getCellCount() - 1];
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] = entry.getValue(i + 1);
+                }
+                partitionTable.putIfAbsent((String) entry.getValue(0), payload);
+            }
+        }
+        return partitionTable;
+    }
+
+    /**
+     * Chooses the number of partitions so that each should fit the memory budget with room to spare.
+     * @param fileSize the size of the reference xlsx file
+     * @param memoryBudget the memory budget
+     * @return the partition count
+     */
+    private static int partitionCount(long fileSize, long memoryBudget) {
+        long estimated = fileSize * XLSX_EXPANSION;
+        long count = 2 * ((estimated + memoryBudget - 1) / memoryBudget);
+        return (int) Math.max(MIN_PARTITIONS, Math.min(MAX_PARTITIONS, count));
+    }
+
+    /**
+     * Gets the partition of a key.
+     * @param key the normalized key
+     * @param count the number of partitions
+     * @return the partition index
+     */
+    static int partitionOf(String key, int count) {
+        return Math.floorMod(key.hashCode() * 0x9E3779B9, count);
+    }
+
+    /**
+     * Opens a buffered temp file for writing.
+     * @param file the file
+     * @return the output
+     * @throws IOException if the file can't be opened
+     */
+    static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    /**
+     * Opens a buffered temp file for reading.
+     * @param file the file
+     * @return the input
+     * @throws IOException if the file can't be opened
+     */
+    static DataInputStream openInput(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+    }
+
+    /**
+     * Reads the next row of a temp file.
+     * @param in the input
+     * @return the row, or null at the end of the file
+     * @throws IOException if the file can't be read
+     */
+    static RowRecord readOrNull(DataInputStream in) throws IOException {
+        try {
+            return RowRecordIO.read(in);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Closes all open outputs, ignoring failures.
+     * @param outs the outputs (null entries are skipped)
+     */
+    private static void closeAll(DataOutputStream[] outs) {
+        for (int i = 0; i < outs.length; i++) {
+            if (outs[i] != null) {
+                try {
+                    outs[i].close();
+                } catch (IOException e) {
+                    // Already failing or finished; the file is deleted anyway.
+                }
+                outs[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Deletes temp files.
+     * @param files the files, or null (null entries are skipped)
+     * @throws IOException if a file can't be deleted
+     */
+    static void deleteAll(Path[] files) throws IOException {
+        if (files == null) {
+            return;
+        }
+        for (Path file : files) {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Streams the reference rows into the index, switching to partitions when the budget is exceeded.
+     */
+    private static class Loader implements RowHandler {
+
+        /**
+         * The index being built.
+         */
+        private final HashJoinIndex index;
+
+        /**
+         * The index of the key column.
+         */
+        private final int keyColumn;
+
+        /**
+         * The indexes of the payload columns.
+         */
+        private final int[] payloadColumns;
+
+        /**
+         * The memory budget of the in-memory table.
+         */
+        private final long memoryBudget;
+
+        /**
+         * The number of partitions to use if the budget is exceeded.
+         */
+        private final int partitionCount;
+
+        /**
+         * The approximate size of the in-memory table.
+         */
+        private long tableBytes;
+
+        /**
+         * The open partition outputs, or null while in memory.
+         */
+        private DataOutputStream[] outs;
+
+        Loader(HashJoinIndex index, int keyColumn, int[] payloadColumns, long memoryBudget, int partitionCount) {
+            this.index = index;
+            this.keyColumn = keyColumn;
+            this.payloadColumns = payloadColumns;
+            this.memoryBudget = memoryBudget;
+            this.partitionCount = partitionCount;
+        }
+
+        @Override
+        public boolean handleRow(RowRecord record) {
+            if (record.getRowNum() == 0) {
+                for (int i = 0; i < payloadColumns.length; i++) {
+                    index.payloadHeaders[i] = record.getText(payloadColumns[i]);
+                }
+                return true;
+            }
+
+            String key = keyOf(record.getValue(keyColumn));
+            if (key == null) {
+                return true;
+            }
+            Object[] payload = new Object[payloadColumns.length];
+            for (int i = 0; i < payloadColumns.length; i++) {
+                payload[i] = record.getValue(payloadColumns[i]);
+            }
+
+            try {
+                if (outs == null) {
+                    if (index.table.putIfAbsent(key, payload) == null) {
+                        tableBytes += 64 + 2L * key.length() + RowRecordIO.estimateSize(new RowRecord(0, payload));
+                        if (tableBytes > memoryBudget) {
+                            spillTable();
+                        }
+                    }
+                } else {
+                    writeEntry(key, payload);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        /**
+         * Switches to partitioned mode and moves the in-memory table to the partitions.
+         * @throws IOException if a partition can't be written
+         */
+        private void spillTable() throws IOException {
+            index.partitions = new Path[partitionCount];
+            outs = new DataOutputStream[partitionCount];
+            for (int p = 0; p < partitionCount; p++) {
+                index.partitions[p] = Files.createTempFile("join-reference", ".bin");
+                outs[p] = open(index.partitions[p]);
+            }
+            // Entries written first win on reload, so first occurrences keep winning.
+            for (Map.Entry<String, Object[]> entry : index.table.entrySet()) {
+                writeEntry(entry.getKey(), entry.getValue());
+            }
+            index.table = null;
+        }
+
+        /**
+         * Writes a reference entry to its partition.
+         * @param key the normalized key
+         * @param payload the payload values
+         * @throws IOException if the partition can't be written
+         */
+        private void writeEntry(String key, Object[] payload) throws IOException {
+            Object[] values = new Object[payload.length + 1];
+            values[0] = key;
+            System.arraycopy(payload, 0, values, 1, payload.length);
+            RowRecordIO.write(outs[partitionOf(key, outs.length)], new RowRecord(0, values));
+        }
+
+        /**
+         * Flushes and closes the partitions, if any.
+         * @throws IOException if a partition can't be closed
+         */
+        void finish() throws IOException {
+            if (outs != null) {
+                for (DataOutputStream out : outs) {
+                    out.close();
+                }
+                outs = null;
+            }
+        }
+
+        /**
+         * Closes the partitions after a failure, ignoring further errors.
+         */
+        void closeQuietly() {
+            if (outs != null) {
+                closeAll(outs);
+            }
+        }
+    }
+}
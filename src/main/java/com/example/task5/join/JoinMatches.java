@@ -0,0 +1,163 @@
+package com.example.task5.join;
+
+import com.example.task5.utils.RowRecord;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+/**
+ * The result of a grace hash join: which input rows found their key in the reference,
+ * and the payload values of those rows. Payloads are kept in per-partition temp files,
+ * each in input order, and merged back into input order by {@link #payloadFor}.
+ */
+public class JoinMatches implements Closeable {
+
+    /**
+     * The row numbers of the matching input rows.
+     */
+    private final BitSet matches;
+
+    /**
+     * The payload files, one per partition, or null if the join pulls no columns.
+     */
+    private final Path[] results;
+
+    /**
+     * The payload cursors ordered by row number, opened on first use.
+     */
+    private PriorityQueue<Cursor> merge;
+
+    /**
+     * The row number of the last payload request.
+     */
+    private int lastRowNum = -1;
+
+    /**
+     * Constructs a JoinMatches.
+     * @param matches the row numbers of the matching input rows
+     * @param results the payload files, or null if the join pulls no columns
+     */
+    JoinMatches(BitSet matches, Path[] results) {
+        this.matches = matches;
+        this.results = results;
+    }
+
+    /**
+     * Checks whether an input row found its key in the reference.
+     * @param rowNum the row number of the input row
+     * @return true if the row matches
+     */
+    public boolean matches(int rowNum) {
+        return rowNum >= 0 && matches.get(rowNum);
+    }
+
+    /**
+     * Gets the number of matching input rows.
+     * @return the match count
+     */
+    public int getMatchCount() {
+        return matches.cardinality();
+    }
+
+    /**
+     * Gets the payload values of an input row. The rows must be requested in ascending row order,
+     * as they are read from the input; each call skips the payloads of rows never asked for.
+     *
+     * @param rowNum the row number of the input row
+     * @return the payload values, or null if the row has no match
+     * @throws IOException if a payload file can't be read
+     * @throws IllegalStateException if the row numbers are not ascending
+     */
+    public Object[] payloadFor(int rowNum) throws IOException {
+        if (rowNum <= lastRowNum) {
+            throw new IllegalStateException("Payloads must be read in ascending row order");
+        }
+        lastRowNum = rowNum;
+        if (results == null || !matches(rowNum)) {
+            return null;
+        }
+        if (merge == null) {
+            merge = new PriorityQueue<>((a, b) -> Integer.compare(a.current.getRowNum(), b.current.getRowNum()));
+            for (Path result : results) {
+                Cursor cursor = new Cursor(HashJoinIndex.openInput(result));
+                if (cursor.advance()) {
+                    merge.add(cursor);
+                }
+            }
+        }
+
+        while (!merge.isEmpty()) {
+            Cursor cursor = merge.peek();
+            int current = cursor.current.getRowNum();
+            if (current > rowNum) {
+                return null;
+            }
+            merge.poll();
+            RowRecord found = cursor.current;
+            if (cursor.advance()) {
+                merge.add(cursor);
+            }
+            if (current == rowNum) {
+                Object[] payload = new Object[found.getCellCount()];
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] = found.getValue(i);
+                }
+                return payload;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes and deletes the payload files.
+     * @throws IOException if a file can't be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (merge != null) {
+            for (Cursor cursor : merge) {
+                cursor.in.close();
+            }
+            merge = null;
+        }
+        HashJoinIndex.deleteAll(results);
+    }
+
+    /**
+     * A read cursor over one payload file.
+     */
+    private static class Cursor {
+
+        /**
+         * The open payload file.
+         */
+        final DataInputStream in;
+
+        /**
+         * The payload row at the cursor.
+         */
+        RowRecord current;
+
+        Cursor(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Moves the cursor to the next payload row, closing the file at its end.
+         * @return false if the file is exhausted
+         * @throws IOException if the file can't be read
+         */
+        boolean advance() throws IOException {
+            current = HashJoinIndex.readOrNull(in);
+            if (current == null) {
+                in.close();
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.task5.utils;
+
+import com.example.task5.columnar.Column;
+import com.example.task5.columnar.ColumnarSheet;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes {@link ColumnStats} for several numeric columns in a single pass,
+ * optionally grouped by the value of a key column.
+ * Aggregators over disjoint sets of rows can be merged, so partitioned scans
+ * can combine their partial results without a second pass.
+ * Instances are not thread-safe; use one per partition and merge them.
+ */
+public class Aggregator {
+
+    /**
+     * The group key used when no group-by column is set.
+     */
+    public static final String ALL_ROWS = "All rows";
+
+    /**
+     * The indexes of the aggregated columns.
+     */
+    private final int[] columns;
+
+    /**
+     * The index of the group-by column, or -1 to aggregate all rows together.
+     */
+    private final int groupByColumn;
+
+    /**
+     * The accumulators of every group, in order of first appearance.
+     */
+    private final Map<String, ColumnStats[]> groups = new LinkedHashMap<>();
+
+    /**
+     * The display names of the aggregated columns.
+     */
+    private String[] columnLabels;
+
+    /**
+     * Constructs an Aggregator.
+     * @param columns the indexes of the numeric columns to aggregate
+     * @param groupByColumn the index of the group-by column, or -1 for no grouping
+     */
+    public Aggregator(int[] columns, int groupByColumn) {
+        this.columns = columns.clone();
+        this.groupByColumn = groupByColumn;
+        this.columnLabels = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnLabels[i] = "Column " + columns[i];
+        }
+    }
+
+    /**
+     * Creates an empty aggregator with the same columns and grouping, e.g. for another partition.
+     * @return a new, empty aggregator
+     */
+    public Aggregator newPartial() {
+        Aggregator partial = new Aggregator(columns, groupByColumn);
+        partial.columnLabels = columnLabels;
+        return partial;
+    }
+
+    /**
+     * Takes the display names of the aggregated columns from the sheet's header row.
+     * @param headerTexts the header cell texts indexed by column (null entries are skipped)
+     */
+    public void setColumnLabels(String[] headerTexts) {
+        String[] labels = columnLabels.clone();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] < headerTexts.length && headerTexts[columns[i]] != null) {
+                labels[i] = headerTexts[columns[i]];
+            }
+        }
+        columnLabels = labels;
+    }
+
+    /**
+     * Adds a POI row.
+     * @param row the row to aggregate
+     */
+    public void add(Row row) {
+        ColumnStats[] stats = statsFor(groupByColumn < 0 ? null : keyOf(row.getCell(groupByColumn)));
+        for (int i = 0; i < columns.length; i++) {
+            Cell cell = row.getCell(columns[i]);
+            if (cell != null && cell.getCellType() == CellType.NUMERIC) {
+                stats[i].add(cell.getNumericCellValue());
+            }
+        }
+    }
+
+    /**
+     * Adds a streamed row.
+     * @param record the row to aggregate
+     */
+    public void add(RowRecord record) {
+        ColumnStats[] stats = statsFor(groupByColumn < 0 ? null : record.getText(groupByColumn));
+        for (int i = 0; i < columns.length; i++) {
+            if (record.isNumeric(columns[i])) {
+                stats[i].add(record.getNumber(columns[i]));
+            }
+        }
+    }
+
+    /**
+     * Adds a data row of a columnar sheet.
+     * @param sheet the columnar sheet
+     * @param row the zero-based data row
+     */
+    public void add(ColumnarSheet sheet, int row) {
+        String key = null;
+        if (groupByColumn >= 0) {
+            Column keyColumn = sheet.getColumn(groupByColumn);
+            if (keyColumn.isNumeric(row)) {
+                key = String.valueOf(keyColumn.getNumber(row));
+            } else if (keyColumn.isBoolean(row)) {
+                key = keyColumn.getBoolean(row) ? "TRUE" : "FALSE";
+            } else {
+                key = keyColumn.getString(row);
+            }
+        }
+
+        ColumnStats[] stats = statsFor(key);
+        for (int i = 0; i < columns.length; i++) {
+            Column column = sheet.getColumn(columns[i]);
+            if (column.isNumeric(row)) {
+                stats[i].add(column.getNumber(row));
+            }
+        }
+    }
+
+    /**
+     * Merges the groups of another aggregator with the same columns into this one.
+     * @param other the aggregator to merge
+     */
+    public void merge(Aggregator other) {
+        for (Map.Entry<String, ColumnStats[]> entry : other.groups.entrySet()) {
+            ColumnStats[] stats = statsFor(entry.getKey());
+            for (int i = 0; i < stats.length; i++) {
+                stats[i].merge(entry.getValue()[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the accumulators of every group, in order of first appearance.
+     * Each array holds one ColumnStats per aggregated column.
+     * @return the groups
+     */
+    public Map<String, ColumnStats[]> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Gets the display name of an aggregated column.
+     * @param i the position in the aggregated column list
+     * @return the label
+     */
+    public String getColumnLabel(int i) {
+        return columnLabels[i];
+    }
+
+    /**
+     * Gets the number of aggregated columns.
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Finds or creates the accumulators of a group.
+     * @param key the group key, or null when not grouping
+     * @return the accumulators, one per column
+     */
+    private ColumnStats[] statsFor(String key) {
+        String groupKey = key == null ? (groupByColumn < 0 ? ALL_ROWS : "") : key;
+        ColumnStats[] stats = groups.get(groupKey);
+        if (stats == null) {
+            stats = new ColumnStats[columns.length];
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = new ColumnStats();
+            }
+            groups.put(groupKey, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the group key of a cell the same way RowRecord renders cell text.
+     * @param cell the key cell
+     * @return the key, or null for an empty cell
+     */
+    private static String keyOf(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringCellValue();
+            case NUMERIC:
+                return String.valueOf(cell.getNumericCellValue());
+            case BLANK:
+                return null;
+            default:
+                return cell.toString();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.task5.utils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * A case-insensitive Aho-Corasick automaton that checks whether a text contains any of
+ * a set of substrings in a single pass, however many substrings there are.
+ * Characters are folded like {@link String#equalsIgnoreCase}, one char at a time,
+ * so matching never allocates. Instances are immutable and thread-safe.
+ */
+public class AhoCorasick {
+
+    /**
+     * Marks an empty slot of the transition table.
+     */
+    private static final long EMPTY = -1;
+
+    /**
+     * The transition keys, (state &lt;&lt; 16 | folded char), in an open-addressing table.
+     */
+    private final long[] edgeKeys;
+
+    /**
+     * The target states of the transitions, parallel to {@link #edgeKeys}.
+     */
+    private final int[] edgeTargets;
+
+    /**
+     * The failure link of each state: the longest proper suffix that is also a trie prefix.
+     */
+    private final int[] failure;
+
+    /**
+     * Whether reaching a state means some pattern ends here (directly or through failure links).
+     */
+    private final boolean[] accepting;
+
+    /**
+     * Constructs an automaton from its tables.
+     * @param edgeKeys the transition keys
+     * @param edgeTargets the transition targets
+     * @param failure the failure links
+     * @param accepting the accepting states
+     */
+    private AhoCorasick(long[] edgeKeys, int[] edgeTargets, int[] failure, boolean[] accepting) {
+        this.edgeKeys = edgeKeys;
+        this.edgeTargets = edgeTargets;
+        this.failure = failure;
+        this.accepting = accepting;
+    }
+
+    /**
+     * Builds an automaton for the given substrings.
+     *
+     * @param patterns the substrings to look for; an empty substring matches every text
+     * @return the automaton
+     */
+    public static AhoCorasick compile(Collection<String> patterns) {
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        int capacity = Integer.highestOneBit(Math.max(4, maxStates * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        int[] targets = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        boolean[] accepting = new boolean[maxStates];
+        int states = 1;
+
+        for (String pattern : patterns) {
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                int next = find(keys, targets, state, c);
+                if (next < 0) {
+                    next = states++;
+                    insert(keys, targets, state, c, next);
+                }
+                state = next;
+            }
+            accepting[state] = true;
+        }
+
+        // Breadth-first, so the failure link of a state is final before its children are visited.
+        int[] failure = new int[states];
+        int[][] children = childrenOf(keys, states);
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int edge : children[state]) {
+                char c = (char) keys[edge];
+                int child = targets[edge];
+                if (state != 0) {
+                    int fallback = failure[state];
+                    int next;
+                    while ((next = find(keys, targets, fallback, c)) < 0 && fallback != 0) {
+                        fallback = failure[fallback];
+                    }
+                    failure[child] = next >= 0 && next != child ? next : 0;
+                }
+                accepting[child] |= accepting[failure[child]];
+                queue.add(child);
+            }
+        }
+
+        boolean[] trimmed = new boolean[states];
+        System.arraycopy(accepting, 0, trimmed, 0, states);
+        return new AhoCorasick(keys, targets, failure, trimmed);
+    }
+
+    /**
+     * Checks whether a text contains any of the patterns, ignoring case.
+     *
+     * @param text the text to scan
+     * @return true if at least one pattern occurs in the text
+     */
+    public boolean containsAny(CharSequence text) {
+        if (accepting[0]) {
+            return true;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = find(edgeKeys, edgeTargets, state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = Math.max(next, 0);
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Folds a character for case-insensitive comparison, the same way
+     * {@link String#regionMatches(boolean, int, String, int, int)} does.
+     *
+     * @param c the character
+     * @return the folded character
+     */
+    public static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Finds a transition.
+     * @param keys the transition keys
+     * @param targets the transition targets
+     * @param state the source state
+     * @param c the folded character
+     * @return the target state, or -1 if there is no transition
+     */
+    private static int find(long[] keys, int[] targets, int state, char c) {
+        long key = (long) state << 16 | c;
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return targets[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Adds a transition.
+     * @param keys the transition keys
+     * @param targets the transition targets
+     * @param state the source state
+     * @param c the folded character
+     * @param target the target state
+     */
+    private static void insert(long[] keys, int[] targets, int state, char c, int target) {
+        long key = (long) state << 16 | c;
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        targets[slot] = target;
+    }
+
+    /**
+     * Gets the home slot of a transition key.
+     * @param key the transition key
+     * @param mask the table size minus one
+     * @return the slot
+     */
+    private static int slotOf(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /**
+     * Groups the occupied slots of the transition table by source state.
+     * @param keys the transition keys
+     * @param states the number of states
+     * @return the slots of the outgoing transitions of each state
+     */
+    private static int[][] childrenOf(long[] keys, int states) {
+        int[] counts = new int[states];
+        for (long key : keys) {
+            if (key != EMPTY) {
+                counts[(int) (key >>> 16)]++;
+            }
+        }
+        int[][] children = new int[states][];
+        for (int s = 0; s < states; s++) {
+            children[s] = new int[counts[s]];
+            counts[s] = 0;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                int s = (int) (keys[slot] >>> 16);
+                children[s][counts[s]++] = slot;
+            }
+        }
+        return children;
+    }
+}
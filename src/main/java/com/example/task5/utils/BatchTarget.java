@@ -0,0 +1,43 @@
+package com.example.task5.utils;
+
+/**
+ * One query of a batch run: a filter expression and the file its matching rows are written to.
+ */
+public class BatchTarget {
+
+    /**
+     * The filter expression, in FilterParser syntax.
+     */
+    private final String filter;
+
+    /**
+     * The path of the output Excel file.
+     */
+    private final String outputPath;
+
+    /**
+     * Constructs a BatchTarget.
+     * @param filter the filter expression (e.g. "price &gt; 100")
+     * @param outputPath the path of the output Excel file
+     */
+    public BatchTarget(String filter, String outputPath) {
+        this.filter = filter;
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * Gets the filter expression.
+     * @return the filter expression
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Gets the output file path.
+     * @return the output path
+     */
+    public String getOutputPath() {
+        return outputPath;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.task5.utils;
+
+import java.util.Collection;
+
+/**
+ * An immutable set of strings with case-insensitive membership tests.
+ * Hashes are computed over characters folded with {@link AhoCorasick#fold}, and candidates are
+ * compared with {@link String#regionMatches(boolean, int, String, int, int)}, so a lookup never
+ * creates a lowercased copy of the probed string. Instances are thread-safe.
+ */
+public class CaseInsensitiveSet {
+
+    /**
+     * The members in an open-addressing table; null marks an empty slot.
+     */
+    private final String[] table;
+
+    /**
+     * The number of distinct members.
+     */
+    private final int size;
+
+    /**
+     * Constructs a set of the given strings. Members that differ only in case are stored once.
+     * @param values the members
+     */
+    public CaseInsensitiveSet(Collection<String> values) {
+        int capacity = Integer.highestOneBit(Math.max(4, values.size() * 2 - 1)) << 1;
+        table = new String[capacity];
+        int count = 0;
+        for (String value : values) {
+            int slot = slotOf(value);
+            if (table[slot] == null) {
+                table[slot] = value;
+                count++;
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Checks whether a string is a member, ignoring case.
+     *
+     * @param value the string
+     * @return true if the set holds the string in any case
+     */
+    public boolean contains(String value) {
+        int slot = slotOf(value);
+        return table[slot] != null;
+    }
+
+    /**
+     * Gets the number of distinct members.
+     * @return the member count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the slot holding a string, or the empty slot it would go into.
+     * @param value the string
+     * @return the slot
+     */
+    private int slotOf(String value) {
+        int hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            hash = 31 * hash + AhoCorasick.fold(value.charAt(i));
+        }
+        int mask = table.length - 1;
+        int slot = (hash * 0x9E3779B9 >>> 16) & mask;
+        while (table[slot] != null) {
+            String member = table[slot];
+            if (member.length() == value.length() && member.regionMatches(true, 0, value, 0, value.length())) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.task5.utils;
+
+/**
+ * A single-pass, mergeable accumulator for one numeric column:
+ * count, sum, min, max, mean and variance (Welford's algorithm),
+ * plus approximate percentiles through a {@link QuantileSketch}.
+ */
+public class ColumnStats {
+
+    /**
+     * The number of values added.
+     */
+    private long count;
+
+    /**
+     * The sum of the values.
+     */
+    private double sum;
+
+    /**
+     * The smallest value.
+     */
+    private double min = Double.POSITIVE_INFINITY;
+
+    /**
+     * The largest value.
+     */
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * The running mean.
+     */
+    private double mean;
+
+    /**
+     * The running sum of squared differences from the mean.
+     */
+    private double m2;
+
+    /**
+     * The sketch used for percentiles.
+     */
+    private final QuantileSketch sketch = new QuantileSketch();
+
+    /**
+     * Adds a value.
+     * @param value the value to add
+     */
+    public void add(double value) {
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        sketch.add(value);
+    }
+
+    /**
+     * Combines another accumulator into this one, as if all of its values had been added here.
+     * @param other the accumulator to merge
+     */
+    public void merge(ColumnStats other) {
+        if (other.count == 0) {
+            return;
+        }
+
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        count = total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sketch.merge(other.sketch);
+    }
+
+    /**
+     * Gets the number of values.
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the sum of the values.
+     * @return the sum
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Gets the smallest value.
+     * @return the minimum, or NaN if empty
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Gets the largest value.
+     * @return the maximum, or NaN if empty
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Gets the mean of the values.
+     * @return the mean, or 0 if empty (like the average row)
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the population variance of the values.
+     * @return the variance, or 0 if empty
+     */
+    public double getVariance() {
+        return count == 0 ? 0 : m2 / count;
+    }
+
+    /**
+     * Gets an approximate percentile, clamped to the exact min and max.
+     * @param quantile the quantile, between 0 and 1
+     * @return the approximate value, or NaN if empty
+     */
+    public double getPercentile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return Math.max(min, Math.min(max, sketch.getQuantile(quantile)));
+    }
+}
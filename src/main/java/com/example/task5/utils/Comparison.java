@@ -5,10 +5,41 @@ package com.example.task5.utils;
  * with logical operators.
  */
 public enum Comparison {
-    GREATER,
-    LESS,
-    EQUAL,
-    GREATER_EQUAL,
-    LESS_EQUAL,
-    NOT_EQUAL
-}
\ No newline at end of file
+    GREATER(">"),
+    LESS("<"),
+    EQUAL("="),
+    GREATER_EQUAL(">="),
+    LESS_EQUAL("<="),
+    NOT_EQUAL("!=");
+
+    /**
+     * The operator as written in filter expressions.
+     */
+    private final String symbol;
+
+    Comparison(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Gets the operator symbol.
+     * @return the symbol (e.g. "&gt;=")
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Finds the comparison for an operator symbol.
+     * @param symbol the operator (e.g. "&gt;=")
+     * @return the matching comparison, or null if the symbol is unknown
+     */
+    public static Comparison fromSymbol(String symbol) {
+        for (Comparison comparison : values()) {
+            if (comparison.symbol.equals(symbol)) {
+                return comparison;
+            }
+        }
+        return null;
+    }
+}
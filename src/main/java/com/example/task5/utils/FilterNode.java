@@ -0,0 +1,89 @@
+package com.example.task5.utils;
+
+import com.example.task5.columnar.ColumnarSheet;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * A node of a compiled filter expression tree.
+ * Each node is a specialized predicate that also carries estimates of its
+ * evaluation cost and selectivity, which are used to reorder AND/OR clauses.
+ * Nodes can be evaluated against POI rows and against columnar sheets.
+ * Whoever parses a filter owns it and closes it after the last scan, which releases the
+ * temp files of semi-joins against large references.
+ */
+public abstract class FilterNode implements Predicate<Row>, Closeable {
+
+    /**
+     * Evaluates the node for one data row of a columnar sheet, without going through POI.
+     *
+     * @param sheet the columnar sheet
+     * @param row the zero-based data row
+     * @return true if the row matches
+     */
+    public abstract boolean test(ColumnarSheet sheet, int row);
+
+    /**
+     * Estimated relative cost of evaluating the node for one row.
+     * Numeric comparisons cost about 1, string checks more.
+     *
+     * @return the estimated cost
+     */
+    public abstract double cost();
+
+    /**
+     * Estimated fraction of rows the node matches, between 0 and 1.
+     *
+     * @return the estimated selectivity
+     */
+    public abstract double selectivity();
+
+    /**
+     * Checks, using the sheet's zone maps, whether no row of a block can match.
+     * The default is conservative and never skips.
+     *
+     * @param sheet the columnar sheet
+     * @param block the zone map block index
+     * @return true if the whole block can be skipped
+     */
+    public boolean canSkipBlock(ColumnarSheet sheet, int block) {
+        return false;
+    }
+
+    /**
+     * Prepares the node for scanning the first sheet of an input workbook.
+     *
+     * @param inputPath the path to the input .xlsx file
+     * @throws IOException if the input can't be read
+     * @see #prepare(String, int)
+     */
+    public void prepare(String inputPath) throws IOException {
+        prepare(inputPath, 0);
+    }
+
+    /**
+     * Prepares the node for scanning a sheet of an input workbook, before its first row is tested.
+     * Nodes that need a pass over the input of their own, such as a semi-join against a
+     * reference too large for memory, do it here. A node is prepared for one sheet at a time,
+     * so a scan over several sheets prepares it again before each sheet. The default does nothing.
+     *
+     * @param inputPath the path to the input .xlsx file
+     * @param sheetIndex the zero-based index of the sheet about to be scanned
+     * @throws IOException if the input can't be read
+     */
+    public void prepare(String inputPath, int sheetIndex) throws IOException {
+    }
+
+    /**
+     * Releases the resources of the node, such as the partition files of a semi-join.
+     * The default does nothing.
+     *
+     * @throws IOException if a temp file can't be deleted
+     */
+    @Override
+    public void close() throws IOException {
+    }
+}
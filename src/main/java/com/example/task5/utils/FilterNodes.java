@@ -0,0 +1,1282 @@
+package com.example.task5.utils;
+
+import com.example.task5.columnar.Column;
+import com.example.task5.columnar.ColumnarSheet;
+import com.example.task5.columnar.ZoneMap;
+import com.example.task5.join.HashJoinIndex;
+import com.example.task5.join.JoinMatches;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Factory and implementations of the {@link FilterNode} types produced by {@link FilterParser}.
+ * Every comparison operator has its own node class, so the operator is resolved once
+ * at compile time instead of being dispatched for every row.
+ */
+public class FilterNodes {
+
+    /**
+     * Estimated cost of a numeric cell comparison.
+     */
+    private static final double NUMERIC_COST = 1;
+
+    /**
+     * Estimated cost of a string cell check.
+     */
+    private static final double STRING_COST = 4;
+
+    /**
+     * Estimated cost of a regular expression match on a string cell.
+     */
+    private static final double REGEX_COST = 16;
+
+    /**
+     * The number of IN-list values shown by toString().
+     */
+    private static final int SHOWN_VALUES = 5;
+
+    /**
+     * A node that matches every row.
+     */
+    public static final FilterNode TRUE = new Constant(true);
+
+    /**
+     * A node that matches no row.
+     */
+    public static final FilterNode FALSE = new Constant(false);
+
+    /**
+     * Creates a numeric comparison node for the given operator.
+     *
+     * @param column the column name, used for display
+     * @param colIndex the column index
+     * @param comparison the comparison operator
+     * @param value the constant to compare against
+     * @return the specialized comparison node
+     */
+    public static FilterNode numeric(String column, int colIndex, Comparison comparison, double value) {
+        switch (comparison) {
+            case GREATER:
+                return new Greater(column, colIndex, value);
+            case LESS:
+                return new Less(column, colIndex, value);
+            case EQUAL:
+                return new Equal(column, colIndex, value);
+            case GREATER_EQUAL:
+                return new GreaterEqual(column, colIndex, value);
+            case LESS_EQUAL:
+                return new LessEqual(column, colIndex, value);
+            case NOT_EQUAL:
+                return new NotEqual(column, colIndex, value);
+            default:
+                throw new IllegalArgumentException("Unsupported comparison: " + comparison);
+        }
+    }
+
+    /**
+     * Creates a case-insensitive 'startsWith' node.
+     *
+     * @param column the column name, used for display
+     * @param colIndex the column index
+     * @param prefix the prefix to look for
+     * @return the startsWith node
+     */
+    public static FilterNode startsWith(String column, int colIndex, String prefix) {
+        return new StartsWith(column, colIndex, prefix);
+    }
+
+    /**
+     * Creates a case-insensitive 'contains' node matching string cells that contain any of the
+     * given substrings. Several substrings are compiled into one Aho-Corasick automaton.
+     *
+     * @param column the column name, used for display
+     * @param colIndex the column index
+     * @param substrings the substrings to look for
+     * @return the contains node
+     */
+    public static FilterNode contains(String column, int colIndex, List<String> substrings) {
+        if (substrings.size() == 1) {
+            return new Contains(column, colIndex, substrings.get(0));
+        }
+        return new ContainsAny(column, colIndex, substrings);
+    }
+
+    /**
+     * Creates an IN-list node matching cells equal to any of the given values.
+     * Strings are compared ignoring case; values that parse as numbers also match numeric cells.
+     *
+     * @param column the column name, used for display
+     * @param colIndex the column index
+     * @param values the values to look for
+     * @return the IN-list node
+     */
+    public static FilterNode inList(String column, int colIndex, List<String> values) {
+        return new InList(column, colIndex, values);
+    }
+
+    /**
+     * Creates a node matching string cells that match a precompiled regular expression as a whole.
+     *
+     * @param column the column name, used for display
+     * @param colIndex the column index
+     * @param pattern the compiled pattern
+     * @return the matches node
+     */
+    public static FilterNode matches(String column, int colIndex, Pattern pattern) {
+        return new Matches(column, colIndex, pattern);
+    }
+
+    /**
+     * Creates a semi-join node matching rows whose key occurs in a reference workbook.
+     *
+     * @param column the column name, used for display
+     * @param colIndex the index of the key column in the input
+     * @param reference the reference, used for display (e.g. "prices.xlsx:sku")
+     * @param index the hash index over the reference key column
+     * @return the semi-join node
+     */
+    public static FilterNode in(String column, int colIndex, String reference, HashJoinIndex index) {
+        return new SemiJoin(column, colIndex, reference, index);
+    }
+
+    /**
+     * Creates a conjunction. Nested ANDs are flattened, constants are folded and the
+     * clauses are ordered so that cheap, selective ones run first and short-circuit the rest.
+     *
+     * @param clauses the clauses to combine
+     * @return the optimized node
+     */
+    public static FilterNode and(List<FilterNode> clauses) {
+        List<FilterNode> flat = new ArrayList<>();
+        for (FilterNode clause : clauses) {
+            if (clause == FALSE) {
+                closeQuietly(clauses);
+                return FALSE;
+            } else if (clause instanceof And) {
+                for (FilterNode child : ((And) clause).children) {
+                    flat.add(child);
+                }
+            } else if (clause != TRUE) {
+                flat.add(clause);
+            }
+        }
+
+        if (flat.isEmpty()) {
+            return TRUE;
+        }
+        if (flat.size() == 1) {
+            return flat.get(0);
+        }
+
+        // A clause is worth running early when it is cheap and likely to reject the row.
+        flat.sort(Comparator.comparingDouble(node -> node.cost() / Math.max(1 - node.selectivity(), 1e-6)));
+        return new And(flat.toArray(new FilterNode[0]));
+    }
+
+    /**
+     * Creates a disjunction. Nested ORs are flattened, constants are folded and the
+     * clauses are ordered so that cheap, likely-matching ones run first and short-circuit the rest.
+     *
+     * @param clauses the clauses to combine
+     * @return the optimized node
+     */
+    public static FilterNode or(List<FilterNode> clauses) {
+        List<FilterNode> flat = new ArrayList<>();
+        for (FilterNode clause : clauses) {
+            if (clause == TRUE) {
+                closeQuietly(clauses);
+                return TRUE;
+            } else if (clause instanceof Or) {
+                for (FilterNode child : ((Or) clause).children) {
+                    flat.add(child);
+                }
+            } else if (clause != FALSE) {
+                flat.add(clause);
+            }
+        }
+
+        if (flat.isEmpty()) {
+            return FALSE;
+        }
+        if (flat.size() == 1) {
+            return flat.get(0);
+        }
+
+        // A clause is worth running early when it is cheap and likely to accept the row.
+        flat.sort(Comparator.comparingDouble(node -> node.cost() / Math.max(node.selectivity(), 1e-6)));
+        return new Or(flat.toArray(new FilterNode[0]));
+    }
+
+    /**
+     * Creates a negation, folding constants and double negations.
+     *
+     * @param clause the clause to negate
+     * @return the negated node
+     */
+    public static FilterNode not(FilterNode clause) {
+        if (clause == TRUE) {
+            return FALSE;
+        }
+        if (clause == FALSE) {
+            return TRUE;
+        }
+        if (clause instanceof Not) {
+            return ((Not) clause).child;
+        }
+        return new Not(clause);
+    }
+
+    /**
+     * Closes several nodes, closing all of them even if one fails.
+     *
+     * @param nodes the nodes
+     * @throws IOException the first failure
+     */
+    private static void closeAll(FilterNode[] nodes) throws IOException {
+        IOException failure = null;
+        for (FilterNode node : nodes) {
+            try {
+                node.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes clauses folded away by a constant, ignoring failures.
+     *
+     * @param clauses the clauses
+     */
+    static void closeQuietly(List<FilterNode> clauses) {
+        for (FilterNode clause : clauses) {
+            try {
+                clause.close();
+            } catch (IOException e) {
+                // The clause is discarded; its temp files are only left behind.
+            }
+        }
+    }
+
+    /**
+     * Formats a list of values for display, eliding long lists.
+     * @param values the values
+     * @return e.g. "('a', 'b', ... 98 more)"
+     */
+    private static String listText(List<String> values) {
+        StringBuilder text = new StringBuilder("(");
+        for (int i = 0; i < Math.min(values.size(), SHOWN_VALUES); i++) {
+            text.append(i == 0 ? "'" : ", '").append(values.get(i)).append('\'');
+        }
+        if (values.size() > SHOWN_VALUES) {
+            text.append(", ... ").append(values.size() - SHOWN_VALUES).append(" more");
+        }
+        return text.append(')').toString();
+    }
+
+    /**
+     * Returns the numeric value of a cell, or NaN if the cell is missing or not numeric.
+     * NaN makes every ordered comparison false, which matches the original filter semantics.
+     *
+     * @param row the row
+     * @param colIndex the column index
+     * @return the numeric value or NaN
+     */
+    private static double numericValue(Row row, int colIndex) {
+        Cell cell = row.getCell(colIndex);
+        if (cell == null || cell.getCellType() != CellType.NUMERIC) {
+            return Double.NaN;
+        }
+        return cell.getNumericCellValue();
+    }
+
+    /**
+     * Returns the numeric value of a columnar cell, or NaN if the cell is not numeric.
+     *
+     * @param sheet the columnar sheet
+     * @param row the zero-based data row
+     * @param colIndex the column index
+     * @return the numeric value or NaN
+     */
+    private static double numericValue(ColumnarSheet sheet, int row, int colIndex) {
+        Column column = sheet.getColumn(colIndex);
+        return column.isNumeric(row) ? column.getNumber(row) : Double.NaN;
+    }
+
+    /**
+     * Base class of the numeric comparison nodes.
+     */
+    private abstract static class NumericNode extends FilterNode {
+
+        /**
+         * The column name, used for display.
+         */
+        final String column;
+
+        /**
+         * The index of the compared column.
+         */
+        final int colIndex;
+
+        /**
+         * The constant compared against.
+         */
+        final double value;
+
+        NumericNode(String column, int colIndex, double value) {
+            this.column = column;
+            this.colIndex = colIndex;
+            this.value = value;
+        }
+
+        @Override
+        public double cost() {
+            return NUMERIC_COST;
+        }
+
+        @Override
+        public double selectivity() {
+            return 1.0 / 3;
+        }
+
+        /**
+         * Gets the operator symbol for display.
+         * @return the symbol
+         */
+        abstract String symbol();
+
+        /**
+         * Checks whether no number within [min, max] can satisfy the comparison.
+         * @param min the smallest number of the block
+         * @param max the largest number of the block
+         * @return true if the block can't contain a match
+         */
+        abstract boolean rangeExcluded(double min, double max);
+
+        @Override
+        public boolean canSkipBlock(ColumnarSheet sheet, int block) {
+            ZoneMap zoneMap = sheet.getColumn(colIndex).getZoneMap();
+            // Without numbers in the column, no row can match a numeric comparison.
+            return zoneMap == null || rangeExcluded(zoneMap.getMin(block), zoneMap.getMax(block));
+        }
+
+        @Override
+        public String toString() {
+            return column + " " + symbol() + " " + value;
+        }
+    }
+
+    /**
+     * Matches numeric cells greater than a constant.
+     */
+    private static final class Greater extends NumericNode {
+        Greater(String column, int colIndex, double value) {
+            super(column, colIndex, value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return numericValue(row, colIndex) > value;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return numericValue(sheet, row, colIndex) > value;
+        }
+
+        @Override
+        String symbol() {
+            return ">";
+        }
+
+        @Override
+        boolean rangeExcluded(double min, double max) {
+            return max <= value;
+        }
+    }
+
+    /**
+     * Matches numeric cells less than a constant.
+     */
+    private static final class Less extends NumericNode {
+        Less(String column, int colIndex, double value) {
+            super(column, colIndex, value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return numericValue(row, colIndex) < value;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return numericValue(sheet, row, colIndex) < value;
+        }
+
+        @Override
+        String symbol() {
+            return "<";
+        }
+
+        @Override
+        boolean rangeExcluded(double min, double max) {
+            return min >= value;
+        }
+    }
+
+    /**
+     * Matches numeric cells equal to a constant.
+     */
+    private static final class Equal extends NumericNode {
+        Equal(String column, int colIndex, double value) {
+            super(column, colIndex, value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return numericValue(row, colIndex) == value;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return numericValue(sheet, row, colIndex) == value;
+        }
+
+        @Override
+        public double selectivity() {
+            return 0.05;
+        }
+
+        @Override
+        String symbol() {
+            return "=";
+        }
+
+        @Override
+        boolean rangeExcluded(double min, double max) {
+            return value < min || value > max;
+        }
+    }
+
+    /**
+     * Matches numeric cells greater than or equal to a constant.
+     */
+    private static final class GreaterEqual extends NumericNode {
+        GreaterEqual(String column, int colIndex, double value) {
+            super(column, colIndex, value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return numericValue(row, colIndex) >= value;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return numericValue(sheet, row, colIndex) >= value;
+        }
+
+        @Override
+        String symbol() {
+            return ">=";
+        }
+
+        @Override
+        boolean rangeExcluded(double min, double max) {
+            return max < value;
+        }
+    }
+
+    /**
+     * Matches numeric cells less than or equal to a constant.
+     */
+    private static final class LessEqual extends NumericNode {
+        LessEqual(String column, int colIndex, double value) {
+            super(column, colIndex, value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return numericValue(row, colIndex) <= value;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return numericValue(sheet, row, colIndex) <= value;
+        }
+
+        @Override
+        String symbol() {
+            return "<=";
+        }
+
+        @Override
+        boolean rangeExcluded(double min, double max) {
+            return min > value;
+        }
+    }
+
+    /**
+     * Matches numeric cells different from a constant. Non-numeric cells never match.
+     */
+    private static final class NotEqual extends NumericNode {
+        NotEqual(String column, int colIndex, double value) {
+            super(column, colIndex, value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            double cellValue = numericValue(row, colIndex);
+            return cellValue == cellValue && cellValue != value;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            double cellValue = numericValue(sheet, row, colIndex);
+            return cellValue == cellValue && cellValue != value;
+        }
+
+        @Override
+        public double selectivity() {
+            return 0.95;
+        }
+
+        @Override
+        String symbol() {
+            return "!=";
+        }
+
+        @Override
+        boolean rangeExcluded(double min, double max) {
+            // Empty blocks have min > max; otherwise only a block full of the excluded value can be skipped.
+            return min > max || (min == value && max == value);
+        }
+    }
+
+    /**
+     * Base class of the nodes that test string cells.
+     * On columnar sheets the test runs once per dictionary entry instead of once per row,
+     * and the per-entry results are cached for the last column seen.
+     */
+    private abstract static class StringNode extends FilterNode {
+
+        /**
+         * The column name, used for display.
+         */
+        final String column;
+
+        /**
+         * The index of the tested column.
+         */
+        final int colIndex;
+
+        /**
+         * The dictionary results for the most recently tested column.
+         */
+        private volatile DictionaryMatches dictionaryMatches;
+
+        StringNode(String column, int colIndex) {
+            this.column = column;
+            this.colIndex = colIndex;
+        }
+
+        /**
+         * Tests a single string value.
+         * @param value the cell text
+         * @return true if the value matches
+         */
+        abstract boolean matches(String value);
+
+        @Override
+        public boolean test(Row row) {
+            Cell cell = row.getCell(colIndex);
+            return cell != null &&
+                    cell.getCellType() == CellType.STRING &&
+                    matches(cell.getStringCellValue());
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            Column col = sheet.getColumn(colIndex);
+            int code = col.getCode(row);
+            return code != Column.NO_STRING && dictionaryMatchesFor(col)[code];
+        }
+
+        /**
+         * Gets the per-dictionary-entry results for a column, computing them on first use.
+         * @param col the column
+         * @return the results indexed by dictionary code
+         */
+        private boolean[] dictionaryMatchesFor(Column col) {
+            DictionaryMatches cached = dictionaryMatches;
+            if (cached == null || cached.column != col) {
+                boolean[] results = new boolean[col.getDictionarySize()];
+                for (int code = 0; code < results.length; code++) {
+                    results[code] = matches(col.getDictionaryValue(code));
+                }
+                cached = new DictionaryMatches(col, results);
+                dictionaryMatches = cached;
+            }
+            return cached.results;
+        }
+
+        @Override
+        public double cost() {
+            return STRING_COST;
+        }
+    }
+
+    /**
+     * The results of a string test for every entry of a column's dictionary.
+     */
+    private static final class DictionaryMatches {
+
+        /**
+         * The column the results belong to.
+         */
+        final Column column;
+
+        /**
+         * The results indexed by dictionary code.
+         */
+        final boolean[] results;
+
+        DictionaryMatches(Column column, boolean[] results) {
+            this.column = column;
+            this.results = results;
+        }
+    }
+
+    /**
+     * Matches string cells starting with a prefix, ignoring case.
+     */
+    private static final class StartsWith extends StringNode {
+
+        /**
+         * The prefix.
+         */
+        private final String prefix;
+
+        StartsWith(String column, int colIndex, String prefix) {
+            super(column, colIndex);
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return value.regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+
+        @Override
+        public double selectivity() {
+            return 0.1;
+        }
+
+        @Override
+        public String toString() {
+            return column + " startsWith '" + prefix + "'";
+        }
+    }
+
+    /**
+     * Matches string cells containing a substring, ignoring case.
+     */
+    private static final class Contains extends StringNode {
+
+        /**
+         * The substring.
+         */
+        private final String substring;
+
+        Contains(String column, int colIndex, String substring) {
+            super(column, colIndex);
+            this.substring = substring;
+        }
+
+        @Override
+        boolean matches(String value) {
+            int last = value.length() - substring.length();
+            for (int i = 0; i <= last; i++) {
+                if (value.regionMatches(true, i, substring, 0, substring.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public double selectivity() {
+            return 0.2;
+        }
+
+        @Override
+        public String toString() {
+            return column + " contains '" + substring + "'";
+        }
+    }
+
+    /**
+     * Matches string cells containing any of several substrings, ignoring case,
+     * with one pass of an Aho-Corasick automaton per cell.
+     */
+    private static final class ContainsAny extends StringNode {
+
+        /**
+         * The substrings, used for display.
+         */
+        private final List<String> substrings;
+
+        /**
+         * The automaton over all substrings.
+         */
+        private final AhoCorasick automaton;
+
+        ContainsAny(String column, int colIndex, List<String> substrings) {
+            super(column, colIndex);
+            this.substrings = new ArrayList<>(substrings);
+            this.automaton = AhoCorasick.compile(substrings);
+        }
+
+        @Override
+        boolean matches(String value) {
+            return automaton.containsAny(value);
+        }
+
+        @Override
+        public double selectivity() {
+            return Math.min(0.9, 0.2 * substrings.size());
+        }
+
+        @Override
+        public String toString() {
+            return column + " contains " + listText(substrings);
+        }
+    }
+
+    /**
+     * Matches cells equal to any value of a list: strings through a case-insensitive hash set,
+     * numbers through a binary search over the values that parse as numbers.
+     */
+    private static final class InList extends StringNode {
+
+        /**
+         * The values, used for display.
+         */
+        private final List<String> values;
+
+        /**
+         * The values as strings.
+         */
+        private final CaseInsensitiveSet strings;
+
+        /**
+         * The sorted values that parse as numbers.
+         */
+        private final double[] numbers;
+
+        InList(String column, int colIndex, List<String> values) {
+            super(column, colIndex);
+            this.values = new ArrayList<>(values);
+            this.strings = new CaseInsensitiveSet(values);
+
+            double[] parsed = new double[values.size()];
+            int count = 0;
+            for (String value : values) {
+                try {
+                    parsed[count] = Double.parseDouble(value.trim());
+                    count++;
+                } catch (NumberFormatException e) {
+                    // Not a number; matched as a string only.
+                }
+            }
+            this.numbers = Arrays.copyOf(parsed, count);
+            Arrays.sort(numbers);
+        }
+
+        @Override
+        boolean matches(String value) {
+            return strings.contains(value);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            Cell cell = row.getCell(colIndex);
+            if (cell != null && cell.getCellType() == CellType.NUMERIC) {
+                return Arrays.binarySearch(numbers, cell.getNumericCellValue()) >= 0;
+            }
+            return super.test(row);
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            Column col = sheet.getColumn(colIndex);
+            if (col.isNumeric(row)) {
+                return Arrays.binarySearch(numbers, col.getNumber(row)) >= 0;
+            }
+            return super.test(sheet, row);
+        }
+
+        @Override
+        public double selectivity() {
+            return Math.min(0.9, 0.05 * strings.size());
+        }
+
+        @Override
+        public String toString() {
+            return column + " in " + listText(values);
+        }
+    }
+
+    /**
+     * Matches string cells that match a regular expression as a whole.
+     * The pattern is compiled once; each thread reuses its own Matcher.
+     */
+    private static final class Matches extends StringNode {
+
+        /**
+         * The compiled pattern.
+         */
+        private final Pattern pattern;
+
+        /**
+         * A reusable matcher per thread, since Matcher is not thread-safe.
+         */
+        private final ThreadLocal<Matcher> matcher;
+
+        Matches(String column, int colIndex, Pattern pattern) {
+            super(column, colIndex);
+            this.pattern = pattern;
+            this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        }
+
+        @Override
+        boolean matches(String value) {
+            return matcher.get().reset(value).matches();
+        }
+
+        @Override
+        public double cost() {
+            return REGEX_COST;
+        }
+
+        @Override
+        public double selectivity() {
+            return 0.2;
+        }
+
+        @Override
+        public String toString() {
+            return column + " matches '" + pattern.pattern() + "'";
+        }
+    }
+
+    /**
+     * Matches rows whose key cell occurs in the key column of a reference workbook.
+     * Numbers and strings are compared through {@link HashJoinIndex#keyOf}, so 1001 matches "1001".
+     * When the reference is too large for memory, the index is partitioned and {@link #prepare}
+     * runs a grace hash join over the sheet about to be scanned; its rows are then matched by row number.
+     */
+    private static final class SemiJoin extends StringNode {
+
+        /**
+         * The reference, used for display.
+         */
+        private final String reference;
+
+        /**
+         * The hash index over the reference key column.
+         */
+        private final HashJoinIndex index;
+
+        /**
+         * The matching rows of the prepared sheet for a partitioned index, set by {@link #prepare}.
+         */
+        private volatile JoinMatches joinMatches;
+
+        SemiJoin(String column, int colIndex, String reference, HashJoinIndex index) {
+            super(column, colIndex);
+            this.reference = reference;
+            this.index = index;
+        }
+
+        @Override
+        public void prepare(String inputPath, int sheetIndex) throws IOException {
+            if (index.isPartitioned()) {
+                JoinMatches previous = joinMatches;
+                joinMatches = null;
+                if (previous != null) {
+                    previous.close();
+                }
+                joinMatches = index.probe(inputPath, sheetIndex, colIndex);
+            }
+        }
+
+        @Override
+        boolean matches(String value) {
+            return index.contains(HashJoinIndex.keyOf(value));
+        }
+
+        @Override
+        public boolean test(Row row) {
+            if (index.isPartitioned()) {
+                return preparedMatches().matches(row.getRowNum());
+            }
+            Cell cell = row.getCell(colIndex);
+            if (cell != null && cell.getCellType() == CellType.NUMERIC) {
+                return index.contains(HashJoinIndex.keyOf(cell.getNumericCellValue()));
+            }
+            if (cell != null && cell.getCellType() == CellType.BOOLEAN) {
+                return index.contains(HashJoinIndex.keyOf(cell.getBooleanCellValue()));
+            }
+            return super.test(row);
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            if (index.isPartitioned()) {
+                return preparedMatches().matches(sheet.getRowNum(row));
+            }
+            Column col = sheet.getColumn(colIndex);
+            if (col.isNumeric(row)) {
+                return index.contains(HashJoinIndex.keyOf(col.getNumber(row)));
+            }
+            if (col.isBoolean(row)) {
+                return index.contains(HashJoinIndex.keyOf(col.getBoolean(row)));
+            }
+            return super.test(sheet, row);
+        }
+
+        /**
+         * Deletes the join result and the partition files of the index.
+         * @throws IOException if a temp file can't be deleted
+         */
+        @Override
+        public void close() throws IOException {
+            JoinMatches prepared = joinMatches;
+            joinMatches = null;
+            try {
+                if (prepared != null) {
+                    prepared.close();
+                }
+            } finally {
+                index.close();
+            }
+        }
+
+        /**
+         * Gets the result of the grace hash join.
+         * @return the matching rows
+         * @throws IllegalStateException if the node was not prepared
+         */
+        private JoinMatches preparedMatches() {
+            JoinMatches prepared = joinMatches;
+            if (prepared == null) {
+                throw new IllegalStateException("The filter on " + reference + " must be prepared before use");
+            }
+            return prepared;
+        }
+
+        @Override
+        public double selectivity() {
+            return 0.3;
+        }
+
+        @Override
+        public String toString() {
+            return column + " in " + reference;
+        }
+    }
+
+    /**
+     * Matches rows accepted by all of its children, evaluated in order.
+     */
+    private static final class And extends FilterNode {
+
+        /**
+         * The clauses, already ordered by the optimizer.
+         */
+        private final FilterNode[] children;
+
+        And(FilterNode[] children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            for (FilterNode child : children) {
+                if (!child.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            for (FilterNode child : children) {
+                if (!child.test(sheet, row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean canSkipBlock(ColumnarSheet sheet, int block) {
+            for (FilterNode child : children) {
+                if (child.canSkipBlock(sheet, block)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void prepare(String inputPath, int sheetIndex) throws IOException {
+            for (FilterNode child : children) {
+                child.prepare(inputPath, sheetIndex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeAll(children);
+        }
+
+        @Override
+        public double cost() {
+            double cost = 0;
+            double reached = 1;
+            for (FilterNode child : children) {
+                cost += reached * child.cost();
+                reached *= child.selectivity();
+            }
+            return cost;
+        }
+
+        @Override
+        public double selectivity() {
+            double selectivity = 1;
+            for (FilterNode child : children) {
+                selectivity *= child.selectivity();
+            }
+            return selectivity;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " AND ");
+        }
+    }
+
+    /**
+     * Matches rows accepted by any of its children, evaluated in order.
+     */
+    private static final class Or extends FilterNode {
+
+        /**
+         * The clauses, already ordered by the optimizer.
+         */
+        private final FilterNode[] children;
+
+        Or(FilterNode[] children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            for (FilterNode child : children) {
+                if (child.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            for (FilterNode child : children) {
+                if (child.test(sheet, row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean canSkipBlock(ColumnarSheet sheet, int block) {
+            for (FilterNode child : children) {
+                if (!child.canSkipBlock(sheet, block)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void prepare(String inputPath, int sheetIndex) throws IOException {
+            for (FilterNode child : children) {
+                child.prepare(inputPath, sheetIndex);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeAll(children);
+        }
+
+        @Override
+        public double cost() {
+            double cost = 0;
+            double reached = 1;
+            for (FilterNode child : children) {
+                cost += reached * child.cost();
+                reached *= 1 - child.selectivity();
+            }
+            return cost;
+        }
+
+        @Override
+        public double selectivity() {
+            double rejected = 1;
+            for (FilterNode child : children) {
+                rejected *= 1 - child.selectivity();
+            }
+            return 1 - rejected;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " OR ");
+        }
+    }
+
+    /**
+     * Matches rows rejected by its child.
+     */
+    private static final class Not extends FilterNode {
+
+        /**
+         * The negated clause.
+         */
+        private final FilterNode child;
+
+        Not(FilterNode child) {
+            this.child = child;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return !child.test(row);
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return !child.test(sheet, row);
+        }
+
+        @Override
+        public void prepare(String inputPath, int sheetIndex) throws IOException {
+            child.prepare(inputPath, sheetIndex);
+        }
+
+        @Override
+        public void close() throws IOException {
+            child.close();
+        }
+
+        @Override
+        public double cost() {
+            return child.cost();
+        }
+
+        @Override
+        public double selectivity() {
+            return 1 - child.selectivity();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + child;
+        }
+    }
+
+    /**
+     * Matches either every row or no row.
+     */
+    private static final class Constant extends FilterNode {
+
+        /**
+         * The constant result.
+         */
+        private final boolean result;
+
+        Constant(boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return result;
+        }
+
+        @Override
+        public boolean test(ColumnarSheet sheet, int row) {
+            return result;
+        }
+
+        @Override
+        public boolean canSkipBlock(ColumnarSheet sheet, int block) {
+            return !result;
+        }
+
+        @Override
+        public double cost() {
+            return 0;
+        }
+
+        @Override
+        public double selectivity() {
+            return result ? 1 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(result);
+        }
+    }
+
+    /**
+     * Joins the display form of several nodes inside parentheses.
+     *
+     * @param nodes the nodes
+     * @param separator the separator between nodes
+     * @return the joined text
+     */
+    private static String join(FilterNode[] nodes, String separator) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < nodes.length; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(nodes[i]);
+        }
+        return sb.append(')').toString();
+    }
+}
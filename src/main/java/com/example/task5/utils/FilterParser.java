@@ -1,145 +1,541 @@
 package com.example.task5.utils;
 
-import org.apache.poi.ss.usermodel.*;
+import com.example.task5.ExcelProcessor;
+import com.example.task5.join.HashJoinIndex;
+import com.example.task5.utils.FilterTokenizer.Token;
+import com.example.task5.utils.FilterTokenizer.TokenType;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * A utility class for parsing user-defined filter expressions
- * (e.g., "price > 100", "name startsWith A") into executable predicates
+ * (e.g., "price > 100", "name startsWith A", "price > 100 and (qty &lt; 5 or name startsWith a)",
+ * "name contains (app, ban)", "sku in (SKU1, SKU2)", "name matches 'a.*[0-9]'",
+ * "sku in data/prices.xlsx:sku") into compiled predicate trees.
+ *
+ * Grammar (keywords are case-insensitive):
+ * <pre>
+ * expr    := andExpr ("or" andExpr)*
+ * andExpr := unary ("and" unary)*
+ * unary   := "not" unary | "(" expr ")" | clause
+ * clause  := column op number | column "startsWith" text | column "contains" texts
+ *          | column "in" texts | column "matches" regex | column "in" reference
+ * texts   := text | "(" text ("," text)* ")"
+ * op      := "&gt;" | "&lt;" | "=" | "&gt;=" | "&lt;=" | "!="
+ * reference := workbook ":" column     (quoted if it contains spaces)
+ * </pre>
+ *
+ * String clauses ignore case. "matches" requires the whole cell to match the regular expression.
  */
 public class FilterParser {
 
     /**
-     * Parses a user-provided filter expression and returns a corresponding predicate.
-     * Supports numeric comparisons and string-based startsWith expressions.
+     * The tokens of the expression being parsed.
+     */
+    private final List<Token> tokens;
+
+    /**
+     * A map of column names to their index positions.
+     */
+    private final Map<String, Integer> headerMap;
+
+    /**
+     * The memory budget of each reference workbook index.
+     */
+    private final long joinMemoryBytes;
+
+    /**
+     * The index of the next token to consume.
+     */
+    private int position;
+
+    /**
+     * The semi-joins built so far, released if the expression turns out to be invalid.
+     */
+    private final List<FilterNode> semiJoins = new ArrayList<>();
+
+    /**
+     * Whether a clause that can't match (unknown column, bad number or regex, unreadable reference)
+     * fails the parse instead of being reported and compiled to 'always false'.
+     */
+    private final boolean strict;
+
+    /**
+     * The folder reference workbooks are resolved against and must stay inside, or null to
+     * open them as given.
+     */
+    private final Path referenceDir;
+
+    /**
+     * Constructs a parser over tokenized input.
+     * @param tokens the tokens, terminated by an END token
+     * @param headerMap a map of column names to their index positions
+     * @param joinMemoryBytes the memory budget of each reference workbook index
+     * @param strict whether invalid clauses fail the parse
+     * @param referenceDir the folder reference workbooks must stay inside, or null
+     */
+    private FilterParser(List<Token> tokens, Map<String, Integer> headerMap, long joinMemoryBytes, boolean strict,
+                         Path referenceDir) {
+        this.tokens = tokens;
+        this.headerMap = headerMap;
+        this.joinMemoryBytes = joinMemoryBytes;
+        this.strict = strict;
+        this.referenceDir = referenceDir;
+    }
+
+    /**
+     * Parses a user-provided filter expression and compiles it into a predicate tree.
+     * Supports numeric comparisons, string-based startsWith expressions, and their
+     * combination with AND, OR, NOT and parentheses.
+     *
+     * @param input the filter string (e.g., "price > 100")
+     * @param headerMap a map of column names to their index positions
+     * @return a FilterNode (a Predicate&lt;Row&gt;) representing the filter condition
+     */
+    public static FilterNode from(String input, Map<String, Integer> headerMap) {
+        return from(input, headerMap, HashJoinIndex.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Parses a filter expression, limiting the memory of the reference workbook indexes
+     * built for "in" clauses. Larger references are partitioned to temp files.
+     *
+     * @param input the filter string (e.g., "sku in data/prices.xlsx:sku")
+     * @param headerMap a map of column names to their index positions
+     * @param joinMemoryBytes the memory budget of each reference workbook index
+     * @return a FilterNode representing the filter condition
+     */
+    public static FilterNode from(String input, Map<String, Integer> headerMap, long joinMemoryBytes) {
+        try {
+            return parse(input, headerMap, joinMemoryBytes, false, null);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unsupported or invalid filter (" + e.getMessage()
+                    + "). Returning 'always true' as a fallback.");
+            return FilterNodes.TRUE;
+        }
+    }
+
+    /**
+     * Parses a filter expression strictly: unlike {@link #from}, an invalid expression is an error
+     * rather than 'always true', and so is a clause that can't match, such as an unknown column.
+     * Used where a silently widened or emptied result would be wrong, like query requests.
      *
      * @param input the filter string (e.g., "price > 100")
      * @param headerMap a map of column names to their index positions
-     * @return a Predicate<Row> representing the filter condition
+     * @param joinMemoryBytes the memory budget of each reference workbook index
+     * @return a FilterNode representing the filter condition
+     * @throws IllegalArgumentException if the expression is invalid, with the reason as message
+     */
+    public static FilterNode parse(String input, Map<String, Integer> headerMap, long joinMemoryBytes) {
+        return parse(input, headerMap, joinMemoryBytes, true, null);
+    }
+
+    /**
+     * Parses a filter expression strictly, resolving reference workbooks against a folder.
+     * A reference outside the folder is an error, so untrusted filters can only read its workbooks.
+     *
+     * @param input the filter string (e.g., "sku in prices.xlsx:sku")
+     * @param headerMap a map of column names to their index positions
+     * @param referenceDir the folder reference workbooks are resolved against and must stay inside
+     * @return a FilterNode representing the filter condition
+     * @throws IllegalArgumentException if the expression is invalid, with the reason as message
+     * @see #parse(String, Map, long)
      */
-    public static Predicate<Row> from(String input, Map<String, Integer> headerMap) {
-        input = input.trim().toLowerCase();
+    public static FilterNode parse(String input, Map<String, Integer> headerMap, Path referenceDir) {
+        return parse(input, headerMap, HashJoinIndex.DEFAULT_MEMORY_BUDGET, true,
+                referenceDir.toAbsolutePath().normalize());
+    }
 
-        if (input.contains("startswith")) {
-            return handleStartsWith(input, headerMap);
+    /**
+     * Parses a filter expression, releasing the semi-joins already built if it is invalid.
+     *
+     * @param input the filter string
+     * @param headerMap a map of column names to their index positions
+     * @param joinMemoryBytes the memory budget of each reference workbook index
+     * @param strict whether invalid clauses fail the parse
+     * @param referenceDir the normalized folder reference workbooks must stay inside, or null
+     * @return a FilterNode representing the filter condition
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    private static FilterNode parse(String input, Map<String, Integer> headerMap, long joinMemoryBytes,
+                                    boolean strict, Path referenceDir) {
+        FilterParser parser = new FilterParser(FilterTokenizer.tokenize(input.trim()), headerMap, joinMemoryBytes,
+                strict, referenceDir);
+        try {
+            FilterNode node = parser.parseOr();
+            parser.expect(TokenType.END);
+            return node;
+        } catch (IllegalArgumentException e) {
+            FilterNodes.closeQuietly(parser.semiJoins);
+            throw e;
         }
+    }
 
-        return handleNumericComparison(input, headerMap);
+    /**
+     * Parses a disjunction of AND expressions.
+     * @return the compiled node
+     */
+    private FilterNode parseOr() {
+        List<FilterNode> clauses = new ArrayList<>();
+        clauses.add(parseAnd());
+        while (peek().isKeyword("or")) {
+            position++;
+            clauses.add(parseAnd());
+        }
+        return FilterNodes.or(clauses);
+    }
+
+    /**
+     * Parses a conjunction of unary expressions.
+     * @return the compiled node
+     */
+    private FilterNode parseAnd() {
+        List<FilterNode> clauses = new ArrayList<>();
+        clauses.add(parseUnary());
+        while (peek().isKeyword("and")) {
+            position++;
+            clauses.add(parseUnary());
+        }
+        return FilterNodes.and(clauses);
+    }
+
+    /**
+     * Parses a negation, a parenthesized expression or a single clause.
+     * @return the compiled node
+     */
+    private FilterNode parseUnary() {
+        if (peek().isKeyword("not")) {
+            position++;
+            return FilterNodes.not(parseUnary());
+        }
+        if (peek().getType() == TokenType.LEFT_PAREN) {
+            position++;
+            FilterNode node = parseOr();
+            expect(TokenType.RIGHT_PAREN);
+            return node;
+        }
+        return parseClause();
+    }
+
+    /**
+     * Parses a single "column op value", "column startsWith value", "column contains values",
+     * "column in values", "column matches regex" or "column in reference" clause.
+     * The column name may consist of several words.
+     *
+     * @return the compiled node
+     */
+    private FilterNode parseClause() {
+        String column = parseColumnName();
+        Token operator = next();
+
+        if (operator.isKeyword("startswith")) {
+            return handleStartsWith(column, parseText());
+        }
+        if (operator.isKeyword("contains")) {
+            return handleContains(column, parseTextList());
+        }
+        if (operator.isKeyword("matches")) {
+            return handleMatches(column, parseText());
+        }
+        if (operator.isKeyword("in")) {
+            if (peek().getType() == TokenType.LEFT_PAREN) {
+                return handleInList(column, parseTextList());
+            }
+            return handleSemiJoin(column, next().getText());
+        }
+        if (operator.getType() == TokenType.OPERATOR) {
+            return handleNumericComparison(column, operator.getText(), parseText());
+        }
+        throw new IllegalArgumentException("expected an operator after '" + column + "' but found " + operator);
     }
 
     /**
      * Handles filters that use 'startsWith' on string columns.
      * Example: "name startsWith a"
      *
-     * @param input the full filter expression
-     * @param headerMap a map of column headers to indexes
-     * @return a predicate to test the 'startsWith' condition
+     * @param column the column name
+     * @param prefix the prefix to look for
+     * @return a node testing the 'startsWith' condition
      */
-    private static Predicate<Row> handleStartsWith(String input, Map<String, Integer> headerMap) {
-        String[] parts = input.split("startswith");
-        if (parts.length != 2) return row -> false;
+    private FilterNode handleStartsWith(String column, String prefix) {
+        int colIndex = findColumn(column);
+        return colIndex == -1 ? FilterNodes.FALSE : FilterNodes.startsWith(column, colIndex, prefix);
+    }
 
-        String column = parts[0].trim();
-        String prefix = parts[1].trim();
-        int colIndex = headerMap.getOrDefault(column, -1);
+    /**
+     * Handles filters that use 'contains' on string columns, with one or several substrings.
+     * Example: "name contains (app, ban)"
+     *
+     * @param column the column name
+     * @param substrings the substrings to look for
+     * @return a node testing whether the cell contains any of the substrings
+     */
+    private FilterNode handleContains(String column, List<String> substrings) {
+        int colIndex = findColumn(column);
+        return colIndex == -1 ? FilterNodes.FALSE : FilterNodes.contains(column, colIndex, substrings);
+    }
 
-        return row -> {
-            if (colIndex == -1) return false;
-            Cell cell = row.getCell(colIndex);
-            return cell != null &&
-                    cell.getCellType() == CellType.STRING &&
-                    cell.getStringCellValue().toLowerCase().startsWith(prefix);
-        };
+    /**
+     * Handles IN-lists of literal values.
+     * Example: "sku in (SKU1, SKU2, SKU3)"
+     *
+     * @param column the column name
+     * @param values the values to look for
+     * @return a node testing whether the cell equals any of the values
+     */
+    private FilterNode handleInList(String column, List<String> values) {
+        int colIndex = findColumn(column);
+        return colIndex == -1 ? FilterNodes.FALSE : FilterNodes.inList(column, colIndex, values);
     }
 
     /**
-     * Handles filters involving numeric comparisons (>, <, >=, <=, =, !=).
-     * Parses column, operator, and value and builds an appropriate predicate.
+     * Handles regular expression filters on string columns. The pattern is compiled once, ignoring case.
+     * Example: "name matches 'ap.*[0-9]+'"
      *
-     * @param input the full filter expression
-     * @param headerMap a map of column headers to indexes
-     * @return a predicate to test numeric conditions
-     */
-    private static Predicate<Row> handleNumericComparison(String input, Map<String, Integer> headerMap) {
-        String[] operators = {">=", "<=", "!=", ">", "<", "="};
-
-        for (String op : operators) {
-            if (input.contains(op)) {
-                String[] parts = input.split(op);
-                if (parts.length != 2) break;
-
-                String col = parts[0].trim();
-                String valueStr = parts[1].trim();
-                int colIndex = headerMap.getOrDefault(col, -1);
-
-                if (colIndex == -1) {
-                    System.out.println("Column not found: " + col);
-                    return row -> false;
-                }
-
-                try {
-                    double value = Double.parseDouble(valueStr);
-                    switch (op) {
-                        case ">":
-                            return row -> compareValues(row, colIndex, value, Comparison.GREATER);
-                        case "<":
-                            return row -> compareValues(row, colIndex, value, Comparison.LESS);
-                        case "=":
-                            return row -> compareValues(row, colIndex, value, Comparison.EQUAL);
-                        case ">=":
-                            return row -> compareValues(row, colIndex, value, Comparison.GREATER_EQUAL);
-                        case "<=":
-                            return row -> compareValues(row, colIndex, value, Comparison.LESS_EQUAL);
-                        case "!=":
-                            return row -> compareValues(row, colIndex, value, Comparison.NOT_EQUAL);
-                        default:
-                            return row -> false;
-                    }
-                } catch (NumberFormatException e) {
-                    System.out.println("Invalid number format: " + valueStr);
-                    return row -> false;
-                }
+     * @param column the column name
+     * @param regex the regular expression
+     * @return a node testing whether the whole cell matches
+     */
+    private FilterNode handleMatches(String column, String regex) {
+        int colIndex = findColumn(column);
+        if (colIndex == -1) {
+            return FilterNodes.FALSE;
+        }
+        try {
+            return FilterNodes.matches(column, colIndex,
+                    Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+        } catch (PatternSyntaxException e) {
+            report("Invalid regular expression: " + regex);
+            return FilterNodes.FALSE;
+        }
+    }
+
+    /**
+     * Handles semi-joins against a key column of a reference workbook.
+     * Example: "sku in data/prices.xlsx:sku"
+     *
+     * @param column the column name
+     * @param reference the reference, "workbook:column"
+     * @return a node testing whether the key occurs in the reference
+     */
+    private FilterNode handleSemiJoin(String column, String reference) {
+        int separator = reference.lastIndexOf(':');
+        if (separator <= 0 || separator == reference.length() - 1) {
+            throw new IllegalArgumentException("expected workbook:column after 'in' but found '" + reference + "'");
+        }
+
+        int colIndex = findColumn(column);
+        if (colIndex == -1) {
+            return FilterNodes.FALSE;
+        }
+
+        String path = resolveReference(reference.substring(0, separator).trim());
+        String keyColumn = reference.substring(separator + 1).trim().toLowerCase();
+        try {
+            int keyIndex = ExcelProcessor.getHeadersMap(path).getOrDefault(keyColumn, -1);
+            if (keyIndex == -1) {
+                report("Column not found: " + keyColumn + " in " + path);
+                return FilterNodes.FALSE;
             }
+            HashJoinIndex index = HashJoinIndex.build(path, keyIndex, new int[0], joinMemoryBytes);
+            FilterNode semiJoin = FilterNodes.in(column, colIndex, reference, index);
+            semiJoins.add(semiJoin);
+            return semiJoin;
+        } catch (IOException e) {
+            report("Could not read reference workbook " + path + ": " + e.getMessage());
+            return FilterNodes.FALSE;
         }
+    }
 
-        System.out.println("Unsupported or invalid filter. Returning 'always true' as a fallback.");
-        return row -> true;
+    /**
+     * Handles filters involving numeric comparisons (&gt;, &lt;, &gt;=, &lt;=, =, !=).
+     *
+     * @param column the column name
+     * @param symbol the comparison operator
+     * @param valueStr the value to compare against
+     * @return a node testing the numeric condition
+     */
+    private FilterNode handleNumericComparison(String column, String symbol, String valueStr) {
+        Comparison comparison = Comparison.fromSymbol(symbol);
+        if (comparison == null) {
+            throw new IllegalArgumentException("unknown operator '" + symbol + "'");
+        }
+
+        int colIndex = findColumn(column);
+        if (colIndex == -1) {
+            return FilterNodes.FALSE;
+        }
+
+        try {
+            return FilterNodes.numeric(column, colIndex, comparison, Double.parseDouble(valueStr));
+        } catch (NumberFormatException e) {
+            report("Invalid number format: " + valueStr);
+            return FilterNodes.FALSE;
+        }
+    }
+
+    /**
+     * Resolves the path of a reference workbook against the reference folder, if there is one.
+     * @param path the path as written in the filter
+     * @return the path to open
+     * @throws IllegalArgumentException if the path leaves the reference folder
+     */
+    private String resolveReference(String path) {
+        if (referenceDir == null) {
+            return path;
+        }
+        Path resolved = referenceDir.resolve(path).normalize();
+        if (!resolved.startsWith(referenceDir)) {
+            throw new IllegalArgumentException("reference workbook outside the data folder: " + path);
+        }
+        return resolved.toString();
+    }
+
+    /**
+     * Reports a clause that can't match: fails the parse in strict mode, otherwise prints the problem.
+     * @param message the problem
+     * @throws IllegalArgumentException in strict mode
+     */
+    private void report(String message) {
+        if (strict) {
+            throw new IllegalArgumentException(message);
+        }
+        System.out.println(message);
     }
 
     /**
-     * Compares a numeric cell value to a given constant based on the provided comparison type.
+     * Looks up a column, reporting it if it doesn't exist.
+     * @param column the lowercased column name
+     * @return the column index, or -1 if not found
+     */
+    private int findColumn(String column) {
+        int colIndex = headerMap.getOrDefault(column, -1);
+        if (colIndex == -1) {
+            report("Column not found: " + column);
+        }
+        return colIndex;
+    }
+
+    /**
+     * Reads a (possibly multi-word) column name up to the operator.
+     * @return the lowercased column name
+     */
+    private String parseColumnName() {
+        Token first = next();
+        if (first.getType() == TokenType.QUOTED) {
+            return first.getText().trim().toLowerCase();
+        }
+        if (first.getType() != TokenType.WORD || isReserved(first)) {
+            throw new IllegalArgumentException("expected a column name but found " + first);
+        }
+
+        StringBuilder column = new StringBuilder(first.getText());
+        while (peek().getType() == TokenType.WORD && !isReserved(peek()) && !isInOperator()) {
+            column.append(' ').append(next().getText());
+        }
+        return column.toString().toLowerCase();
+    }
+
+    /**
+     * Reads a value: a quoted string, or one or more unquoted words up to the next keyword.
+     * @return the value text
+     */
+    private String parseText() {
+        Token first = next();
+        if (first.getType() == TokenType.QUOTED) {
+            return first.getText();
+        }
+        if (first.getType() != TokenType.WORD) {
+            throw new IllegalArgumentException("expected a value but found " + first);
+        }
+
+        StringBuilder text = new StringBuilder(first.getText());
+        while (peek().getType() == TokenType.WORD && !isReserved(peek())) {
+            text.append(' ').append(next().getText());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads a single value, or a parenthesized, comma-separated list of values.
+     * @return the values
+     */
+    private List<String> parseTextList() {
+        List<String> values = new ArrayList<>();
+        if (peek().getType() != TokenType.LEFT_PAREN) {
+            values.add(parseText());
+            return values;
+        }
+        position++;
+        values.add(parseText());
+        while (peek().getType() == TokenType.COMMA) {
+            position++;
+            values.add(parseText());
+        }
+        expect(TokenType.RIGHT_PAREN);
+        return values;
+    }
+
+    /**
+     * Checks whether a word is a keyword that ends a column name or value.
+     * @param token the token to check
+     * @return true for and, or, not, startsWith, contains and matches
+     */
+    private static boolean isReserved(Token token) {
+        return token.isKeyword("and") || token.isKeyword("or") || token.isKeyword("not")
+                || token.isKeyword("startswith") || token.isKeyword("contains") || token.isKeyword("matches");
+    }
+
+    /**
+     * Checks whether the next token is the "in" operator rather than part of a column name.
+     * "in" counts as an operator only when a value list or a workbook reference follows it,
+     * so columns such as "sold in store" keep working.
      *
-     * @param row the Excel row being evaluated
-     * @param colIndex the index of the target column
-     * @param value the value to compare against
-     * @param comparison the type of comparison to apply
-     * @return true if the cell matches the condition, false otherwise
-     */
-    private static boolean compareValues(Row row, int colIndex, double value, Comparison comparison) {
-        Cell cell = row.getCell(colIndex);
-        if (cell == null || cell.getCellType() != CellType.NUMERIC) {
+     * @return true if the next tokens are "in" and a list or reference
+     */
+    private boolean isInOperator() {
+        if (!peek().isKeyword("in")) {
             return false;
         }
+        Token after = tokens.get(position + 1);
+        return after.getType() == TokenType.LEFT_PAREN || after.getType() == TokenType.QUOTED
+                || (after.getType() == TokenType.WORD && after.getText().indexOf(':') > 0);
+    }
 
-        double cellValue = cell.getNumericCellValue();
+    /**
+     * Returns the next token without consuming it.
+     * @return the next token
+     */
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    /**
+     * Consumes and returns the next token. The END token is never consumed past.
+     * @return the consumed token
+     */
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.getType() != TokenType.END) {
+            position++;
+        }
+        return token;
+    }
 
-        switch (comparison) {
-            case GREATER:
-                return cellValue > value;
-            case LESS:
-                return cellValue < value;
-            case EQUAL:
-                return cellValue == value;
-            case GREATER_EQUAL:
-                return cellValue >= value;
-            case LESS_EQUAL:
-                return cellValue <= value;
-            case NOT_EQUAL:
-                return cellValue != value;
-            default:
-                return false;
+    /**
+     * Consumes the next token, failing if it is not of the expected type.
+     * @param type the expected token type
+     */
+    private void expect(TokenType type) {
+        Token token = next();
+        if (token.getType() != type) {
+            throw new IllegalArgumentException("unexpected " + token + " at position " + token.getPosition());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package com.example.task5.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a filter expression (e.g. "price > 100 and (qty &lt; 5 or name startsWith a)")
+ * into tokens for {@link FilterParser}.
+ */
+public class FilterTokenizer {
+
+    /**
+     * The kinds of tokens a filter expression is made of.
+     */
+    public enum TokenType {
+        WORD,
+        QUOTED,
+        OPERATOR,
+        LEFT_PAREN,
+        RIGHT_PAREN,
+        COMMA,
+        END
+    }
+
+    /**
+     * A single token with its type and text.
+     */
+    public static class Token {
+
+        /**
+         * The type of the token.
+         */
+        private final TokenType type;
+
+        /**
+         * The token text (unquoted for QUOTED tokens).
+         */
+        private final String text;
+
+        /**
+         * The position of the token in the input, used in error messages.
+         */
+        private final int position;
+
+        /**
+         * Constructs a Token.
+         * @param type the token type
+         * @param text the token text
+         * @param position the offset in the input
+         */
+        public Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+
+        /**
+         * Gets the token type.
+         * @return the type
+         */
+        public TokenType getType() {
+            return type;
+        }
+
+        /**
+         * Gets the token text.
+         * @return the text
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Gets the offset of the token in the input.
+         * @return the position
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Checks whether this is an unquoted word equal to the given keyword, ignoring case.
+         * @param keyword the keyword to compare with
+         * @return true if the token is that keyword
+         */
+        public boolean isKeyword(String keyword) {
+            return type == TokenType.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        @Override
+        public String toString() {
+            return type == TokenType.END ? "end of input" : "'" + text + "'";
+        }
+    }
+
+    /**
+     * Tokenizes a filter expression.
+     *
+     * @param input the filter expression
+     * @return the tokens, always terminated by an END token
+     * @throws IllegalArgumentException if a quoted string is not closed
+     */
+    public static List<Token> tokenize(String input) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = input.length();
+
+        while (i < length) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.LEFT_PAREN, "(", i++));
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.RIGHT_PAREN, ")", i++));
+            } else if (c == ',') {
+                tokens.add(new Token(TokenType.COMMA, ",", i++));
+            } else if (c == '\'' || c == '"') {
+                int end = input.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed quote at position " + i);
+                }
+                tokens.add(new Token(TokenType.QUOTED, input.substring(i + 1, end), i));
+                i = end + 1;
+            } else if (isOperatorChar(c)) {
+                int start = i;
+                boolean twoChars = i + 1 < length && input.charAt(i + 1) == '='
+                        && (c == '>' || c == '<' || c == '!');
+                i += twoChars ? 2 : 1;
+                tokens.add(new Token(TokenType.OPERATOR, input.substring(start, i), start));
+            } else {
+                int start = i;
+                while (i < length && isWordChar(input.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.WORD, input.substring(start, i), start));
+            }
+        }
+
+        tokens.add(new Token(TokenType.END, "", length));
+        return tokens;
+    }
+
+    /**
+     * Checks whether a character starts a comparison operator.
+     * @param c the character
+     * @return true for '&gt;', '&lt;', '=' and '!'
+     */
+    private static boolean isOperatorChar(char c) {
+        return c == '>' || c == '<' || c == '=' || c == '!';
+    }
+
+    /**
+     * Checks whether a character can be part of an unquoted word.
+     * @param c the character
+     * @return true if the character is not whitespace, a parenthesis, a comma, a quote or an operator
+     */
+    private static boolean isWordChar(char c) {
+        return !Character.isWhitespace(c) && c != '(' && c != ')' && c != ','
+                && c != '\'' && c != '"' && !isOperatorChar(c);
+    }
+}
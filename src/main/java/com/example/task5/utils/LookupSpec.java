@@ -0,0 +1,79 @@
+package com.example.task5.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lookup against a reference workbook: the input rows are matched to the reference rows
+ * by a key column, and the given reference columns are appended to each output row.
+ * Column names are matched case-insensitively, like filter column names.
+ */
+public class LookupSpec {
+
+    /**
+     * The path of the reference Excel file.
+     */
+    private final String referencePath;
+
+    /**
+     * The key column name in the reference.
+     */
+    private final String referenceKeyColumn;
+
+    /**
+     * The key column name in the input.
+     */
+    private final String inputKeyColumn;
+
+    /**
+     * The names of the reference columns appended to the output rows.
+     */
+    private final List<String> pulledColumns;
+
+    /**
+     * Constructs a LookupSpec.
+     * @param referencePath the path of the reference Excel file
+     * @param referenceKeyColumn the key column name in the reference
+     * @param inputKeyColumn the key column name in the input
+     * @param pulledColumns the names of the reference columns appended to the output rows
+     */
+    public LookupSpec(String referencePath, String referenceKeyColumn, String inputKeyColumn,
+                      List<String> pulledColumns) {
+        this.referencePath = referencePath;
+        this.referenceKeyColumn = referenceKeyColumn;
+        this.inputKeyColumn = inputKeyColumn;
+        this.pulledColumns = new ArrayList<>(pulledColumns);
+    }
+
+    /**
+     * Gets the reference file path.
+     * @return the reference path
+     */
+    public String getReferencePath() {
+        return referencePath;
+    }
+
+    /**
+     * Gets the key column name in the reference.
+     * @return the reference key column
+     */
+    public String getReferenceKeyColumn() {
+        return referenceKeyColumn;
+    }
+
+    /**
+     * Gets the key column name in the input.
+     * @return the input key column
+     */
+    public String getInputKeyColumn() {
+        return inputKeyColumn;
+    }
+
+    /**
+     * Gets the names of the reference columns appended to the output rows.
+     * @return the pulled column names
+     */
+    public List<String> getPulledColumns() {
+        return new ArrayList<>(pulledColumns);
+    }
+}
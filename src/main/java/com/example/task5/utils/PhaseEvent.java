@@ -0,0 +1,79 @@
+package com.example.task5.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event covering one phase of an Excel processing run.
+ * The event duration is the wall time of the phase. Events cost next to nothing
+ * unless a recording is running, e.g. with {@code -XX:StartFlightRecording}.
+ */
+@Name("com.example.task5.Phase")
+@Label("Excel Phase")
+@Category({"Excel Processing"})
+@Description("One phase of an Excel processing run")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    /**
+     * The input workbook path.
+     */
+    @Label("Input")
+    String input;
+
+    /**
+     * The processing mode: dom, streaming or columnar.
+     */
+    @Label("Mode")
+    String mode;
+
+    /**
+     * The phase name.
+     */
+    @Label("Phase")
+    String phase;
+
+    /**
+     * The number of rows the phase handled.
+     */
+    @Label("Rows")
+    long rows;
+
+    /**
+     * The rows handled per second of wall time.
+     */
+    @Label("Rows per Second")
+    double rowsPerSecond;
+
+    /**
+     * The number of cells the phase read or wrote.
+     */
+    @Label("Cells")
+    long cells;
+
+    /**
+     * The number of bytes read from files.
+     */
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    /**
+     * The number of bytes written to files.
+     */
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    /**
+     * The heap allocated by the processing thread, or -1 if the JVM can't measure it.
+     */
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,340 @@
+package com.example.task5.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wall time, throughput, cells, file bytes and heap allocation of each phase of an
+ * Excel processing run (workbook load, header copy, filter and copy, sort, average row, aggregate table, save).
+ * Every finished phase is also committed as a {@link PhaseEvent}, and the whole run can be
+ * written as a JSON summary. Heap allocation is measured on the thread running the phase,
+ * so phases must start and end on the same thread. Not thread-safe: one instance per run.
+ */
+public class PhaseMetrics {
+
+    /**
+     * The JVM thread bean, used for per-thread allocation counters.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The input workbook path.
+     */
+    private final String input;
+
+    /**
+     * The processing mode: dom, streaming, columnar, pipelined or parallel.
+     */
+    private final String mode;
+
+    /**
+     * The finished phases, in the order they ended.
+     */
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * The number of rows written to the output, or -1 if not set.
+     */
+    private long filteredRows = -1;
+
+    /**
+     * Constructs the metrics of a run.
+     * @param input the input workbook path
+     * @param mode the processing mode
+     */
+    public PhaseMetrics(String input, String mode) {
+        this.input = input;
+        this.mode = mode;
+    }
+
+    /**
+     * Starts timing a phase on the current thread.
+     *
+     * @param name the phase name
+     * @return the running phase; call {@link Phase#end} when it is done
+     */
+    public Phase start(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Gets the finished phases.
+     * @return the phases, in the order they ended
+     */
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Gets the number of rows written to the output.
+     * @return the row count, or -1 if not set
+     */
+    public long getFilteredRows() {
+        return filteredRows;
+    }
+
+    /**
+     * Sets the number of rows written to the output.
+     * @param filteredRows the row count
+     */
+    public void setFilteredRows(long filteredRows) {
+        this.filteredRows = filteredRows;
+    }
+
+    /**
+     * Formats the run as a JSON object: totals first, then one object per phase.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        long wallNanos = 0;
+        long bytesRead = 0;
+        long bytesWritten = 0;
+        long allocated = 0;
+        for (Phase phase : phases) {
+            wallNanos += phase.wallNanos;
+            bytesRead += phase.bytesRead;
+            bytesWritten += phase.bytesWritten;
+            allocated = allocated < 0 || phase.allocated < 0 ? -1 : allocated + phase.allocated;
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"input\":").append(quote(input))
+                .append(",\"mode\":").append(quote(mode))
+                .append(",\"filteredRows\":").append(filteredRows)
+                .append(",\"wallMillis\":").append(wallNanos / 1e6)
+                .append(",\"bytesRead\":").append(bytesRead)
+                .append(",\"bytesWritten\":").append(bytesWritten)
+                .append(",\"allocatedBytes\":").append(allocated)
+                .append(",\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"phase\":").append(quote(phase.name))
+                    .append(",\"wallMillis\":").append(phase.wallNanos / 1e6)
+                    .append(",\"rows\":").append(phase.rows)
+                    .append(",\"rowsPerSecond\":").append(phase.getRowsPerSecond())
+                    .append(",\"cells\":").append(phase.cells)
+                    .append(",\"bytesRead\":").append(phase.bytesRead)
+                    .append(",\"bytesWritten\":").append(phase.bytesWritten)
+                    .append(",\"allocatedBytes\":").append(phase.allocated)
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Writes the JSON summary of the run to a file, replacing it.
+     *
+     * @param path the file path
+     * @throws IOException if the file can't be written
+     */
+    public void writeJson(String path) throws IOException {
+        Files.write(Paths.get(path), (toJson() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     * @param text the string, or null
+     * @return the literal, or null
+     */
+    private static String quote(String text) {
+        if (text == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Gets the heap allocated so far by the current thread.
+     * @return the allocated bytes, or -1 if the JVM doesn't support allocation counters
+     */
+    private static long allocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * A single phase: running until {@link #end} is called, then recorded.
+     */
+    public class Phase {
+
+        /**
+         * The phase name.
+         */
+        private final String name;
+
+        /**
+         * The Flight Recorder event of the phase.
+         */
+        private final PhaseEvent event = new PhaseEvent();
+
+        /**
+         * The value of System.nanoTime() when the phase started.
+         */
+        private final long startNanos;
+
+        /**
+         * The thread's allocation counter when the phase started, or -1.
+         */
+        private final long startAllocated;
+
+        /**
+         * The wall time of the phase, in nanoseconds.
+         */
+        private long wallNanos;
+
+        /**
+         * The number of rows the phase handled.
+         */
+        private long rows;
+
+        /**
+         * The number of cells the phase read or wrote.
+         */
+        private long cells;
+
+        /**
+         * The number of bytes read from files.
+         */
+        private long bytesRead;
+
+        /**
+         * The number of bytes written to files.
+         */
+        private long bytesWritten;
+
+        /**
+         * The heap allocated during the phase, or -1 if unknown.
+         */
+        private long allocated;
+
+        /**
+         * Starts a phase.
+         * @param name the phase name
+         */
+        private Phase(String name) {
+            this.name = name;
+            event.begin();
+            startAllocated = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Ends the phase, records it and commits its event.
+         *
+         * @param rows the number of rows the phase handled
+         * @param cells the number of cells the phase read or wrote
+         * @param bytesRead the number of bytes read from files
+         * @param bytesWritten the number of bytes written to files
+         */
+        public void end(long rows, long cells, long bytesRead, long bytesWritten) {
+            wallNanos = System.nanoTime() - startNanos;
+            long endAllocated = allocatedBytes();
+            this.rows = rows;
+            this.cells = cells;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.allocated = startAllocated < 0 || endAllocated < 0 ? -1 : endAllocated - startAllocated;
+            phases.add(this);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.input = input;
+                event.mode = mode;
+                event.phase = name;
+                event.rows = rows;
+                event.rowsPerSecond = getRowsPerSecond();
+                event.cells = cells;
+                event.bytesRead = bytesRead;
+                event.bytesWritten = bytesWritten;
+                event.allocated = allocated;
+                event.commit();
+            }
+        }
+
+        /**
+         * Gets the phase name.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the wall time of the phase.
+         * @return the time in nanoseconds
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * Gets the number of rows the phase handled.
+         * @return the row count
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Gets the rows handled per second of wall time.
+         * @return the throughput, or 0 for an instantaneous phase
+         */
+        public double getRowsPerSecond() {
+            return wallNanos == 0 ? 0 : rows * 1e9 / wallNanos;
+        }
+
+        /**
+         * Gets the number of cells the phase read or wrote.
+         * @return the cell count
+         */
+        public long getCells() {
+            return cells;
+        }
+
+        /**
+         * Gets the number of bytes read from files.
+         * @return the byte count
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * Gets the number of bytes written to files.
+         * @return the byte count
+         */
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        /**
+         * Gets the heap allocated by the thread during the phase.
+         * @return the allocated bytes, or -1 if unknown
+         */
+        public long getAllocated() {
+            return allocated;
+        }
+    }
+}
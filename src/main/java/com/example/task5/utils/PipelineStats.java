@@ -0,0 +1,152 @@
+package com.example.task5.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput counters of a pipelined run, one set per stage (parse, filter, write).
+ * A stage that is busy most of the time while the others wait is the bottleneck.
+ * All counters are thread-safe.
+ */
+public class PipelineStats {
+
+    /**
+     * The parser stage: reads rows from the input and emits batches.
+     */
+    private final Stage parse = new Stage("parse");
+
+    /**
+     * The filter stage: tests and aggregates the rows of each batch on the worker threads.
+     */
+    private final Stage filter = new Stage("filter");
+
+    /**
+     * The writer stage: copies the matching rows to the output in input order.
+     */
+    private final Stage write = new Stage("write");
+
+    /**
+     * Gets the parser stage counters.
+     * @return the parse stage
+     */
+    public Stage getParse() {
+        return parse;
+    }
+
+    /**
+     * Gets the filter stage counters (summed over all workers).
+     * @return the filter stage
+     */
+    public Stage getFilter() {
+        return filter;
+    }
+
+    /**
+     * Gets the writer stage counters.
+     * @return the write stage
+     */
+    public Stage getWrite() {
+        return write;
+    }
+
+    @Override
+    public String toString() {
+        return parse + "\n" + filter + "\n" + write;
+    }
+
+    /**
+     * The counters of a single stage.
+     */
+    public static class Stage {
+
+        /**
+         * The stage name.
+         */
+        private final String name;
+
+        /**
+         * The number of rows the stage processed.
+         */
+        private final AtomicLong rows = new AtomicLong();
+
+        /**
+         * The time spent working, in nanoseconds.
+         */
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        /**
+         * The time spent waiting on a queue (for input, or for room downstream), in nanoseconds.
+         */
+        private final AtomicLong waitNanos = new AtomicLong();
+
+        /**
+         * Constructs a Stage.
+         * @param name the stage name
+         */
+        Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds processed rows.
+         * @param count the number of rows
+         */
+        public void addRows(long count) {
+            rows.addAndGet(count);
+        }
+
+        /**
+         * Adds working time.
+         * @param nanos the time in nanoseconds
+         */
+        public void addBusyNanos(long nanos) {
+            busyNanos.addAndGet(nanos);
+        }
+
+        /**
+         * Adds waiting time.
+         * @param nanos the time in nanoseconds
+         */
+        public void addWaitNanos(long nanos) {
+            waitNanos.addAndGet(nanos);
+        }
+
+        /**
+         * Gets the number of processed rows.
+         * @return the row count
+         */
+        public long getRows() {
+            return rows.get();
+        }
+
+        /**
+         * Gets the time spent working.
+         * @return the busy time in nanoseconds
+         */
+        public long getBusyNanos() {
+            return busyNanos.get();
+        }
+
+        /**
+         * Gets the time spent waiting on queues.
+         * @return the wait time in nanoseconds
+         */
+        public long getWaitNanos() {
+            return waitNanos.get();
+        }
+
+        /**
+         * Gets the throughput while working.
+         * @return rows per second of busy time, 0 if the stage never worked
+         */
+        public double getRowsPerSecond() {
+            long busy = busyNanos.get();
+            return busy == 0 ? 0 : rows.get() * 1e9 / busy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-6s %,d rows, busy %,d ms (%,.0f rows/s), waiting %,d ms",
+                    name, getRows(), getBusyNanos() / 1_000_000, getRowsPerSecond(), getWaitNanos() / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.task5.utils;
+
+import com.example.task5.columnar.SheetCache;
+import com.example.task5.join.HashJoinIndex;
+
+/**
+ * Options controlling how ExcelProcessor reads and writes workbooks.
+ * The defaults reproduce the original in-memory behaviour.
+ */
+public class ProcessingOptions {
+
+    /**
+     * Whether the input sheet is streamed with the SAX event API instead of loaded as a DOM.
+     */
+    private boolean streamingInput;
+
+    /**
+     * Whether the output is written through an SXSSFWorkbook that flushes rows to temp files.
+     */
+    private boolean streamingOutput;
+
+    /**
+     * How many output rows SXSSF keeps in memory before flushing them to disk.
+     */
+    private int rowWindow = 100;
+
+    /**
+     * Whether SXSSF temp files are gzip-compressed.
+     */
+    private boolean compressTempFiles = true;
+
+    /**
+     * The columnar sheet cache to query instead of parsing the input, or null to always parse.
+     */
+    private SheetCache sheetCache;
+
+    /**
+     * The indexes of the numeric columns to aggregate, or null for no aggregate table.
+     */
+    private int[] aggregateColumns;
+
+    /**
+     * The index of the column to group the aggregates by, or -1 for no grouping.
+     */
+    private int groupByColumn = -1;
+
+    /**
+     * The number of threads used to load and filter the sheets, 1 for a sequential scan.
+     */
+    private int parallelism = 1;
+
+    /**
+     * The number of filter threads of the pipelined mode, or 0 to not use the pipeline.
+     */
+    private int pipelineWorkers;
+
+    /**
+     * The number of rows per batch passed between the pipeline stages.
+     */
+    private int pipelineBatchSize = 1024;
+
+    /**
+     * The ordering of the output rows, or null to keep the input order.
+     */
+    private SortSpec sortSpec;
+
+    /**
+     * The approximate number of bytes of rows a full sort buffers before spilling a run to disk.
+     */
+    private long sortMemoryBytes = 64L * 1024 * 1024;
+
+    /**
+     * The approximate number of bytes a reference workbook index may use before it is partitioned.
+     */
+    private long joinMemoryBytes = HashJoinIndex.DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * The file the JSON phase metrics of a run are written to, or null for none.
+     */
+    private String metricsPath;
+
+    /**
+     * Gets whether the input sheet is streamed.
+     * @return true if streaming input is enabled
+     */
+    public boolean isStreamingInput() {
+        return streamingInput;
+    }
+
+    /**
+     * Sets whether the input sheet is streamed.
+     * @param streamingInput true to stream the input sheet
+     */
+    public void setStreamingInput(boolean streamingInput) {
+        this.streamingInput = streamingInput;
+    }
+
+    /**
+     * Gets whether the output is streamed through SXSSF.
+     * @return true if streaming output is enabled
+     */
+    public boolean isStreamingOutput() {
+        return streamingOutput;
+    }
+
+    /**
+     * Sets whether the output is streamed through SXSSF.
+     * @param streamingOutput true to stream the output workbook
+     */
+    public void setStreamingOutput(boolean streamingOutput) {
+        this.streamingOutput = streamingOutput;
+    }
+
+    /**
+     * Gets the number of output rows kept in memory by SXSSF.
+     * @return the row window size
+     */
+    public int getRowWindow() {
+        return rowWindow;
+    }
+
+    /**
+     * Sets the number of output rows kept in memory by SXSSF.
+     * @param rowWindow the row window size, must be positive
+     */
+    public void setRowWindow(int rowWindow) {
+        if (rowWindow <= 0) {
+            throw new IllegalArgumentException("Row window must be positive: " + rowWindow);
+        }
+        this.rowWindow = rowWindow;
+    }
+
+    /**
+     * Gets whether SXSSF temp files are compressed.
+     * @return true if temp files are compressed
+     */
+    public boolean isCompressTempFiles() {
+        return compressTempFiles;
+    }
+
+    /**
+     * Sets whether SXSSF temp files are compressed.
+     * @param compressTempFiles true to gzip the temp files
+     */
+    public void setCompressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+    }
+
+    /**
+     * Gets the columnar sheet cache used for the input.
+     * @return the cache, or null if the input is always parsed
+     */
+    public SheetCache getSheetCache() {
+        return sheetCache;
+    }
+
+    /**
+     * Sets the columnar sheet cache used for the input. When set, it takes precedence over streaming input.
+     * @param sheetCache the cache, or null to always parse the input
+     */
+    public void setSheetCache(SheetCache sheetCache) {
+        this.sheetCache = sheetCache;
+    }
+
+    /**
+     * Gets the indexes of the columns to aggregate.
+     * @return the column indexes, or null if no aggregate table is written
+     */
+    public int[] getAggregateColumns() {
+        return aggregateColumns;
+    }
+
+    /**
+     * Sets the indexes of the numeric columns to aggregate (count, sum, min, max, mean,
+     * variance and percentiles) in a table below the average row.
+     * @param aggregateColumns the column indexes, or null for no aggregate table
+     */
+    public void setAggregateColumns(int... aggregateColumns) {
+        this.aggregateColumns = aggregateColumns;
+    }
+
+    /**
+     * Gets the index of the group-by column.
+     * @return the column index, or -1 for no grouping
+     */
+    public int getGroupByColumn() {
+        return groupByColumn;
+    }
+
+    /**
+     * Sets the index of the column to group the aggregates by.
+     * @param groupByColumn the column index, or -1 for no grouping
+     */
+    public void setGroupByColumn(int groupByColumn) {
+        this.groupByColumn = groupByColumn;
+    }
+
+    /**
+     * Gets the degree of parallelism.
+     * @return the number of threads, 1 for sequential processing
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the degree of parallelism. Values above 1 switch to the parallel mode, which
+     * processes every sheet of the workbook with the columns of the first sheet (sheets laid out
+     * differently are skipped) and splits each sheet into partitions.
+     * @param parallelism the number of threads, must be positive
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the number of filter threads of the pipelined mode.
+     * @return the worker count, 0 if the pipeline is off
+     */
+    public int getPipelineWorkers() {
+        return pipelineWorkers;
+    }
+
+    /**
+     * Sets the number of filter threads of the pipelined mode. Values above 0 stream the input
+     * on a parser thread, filter batches of rows on the workers and write them in order on
+     * the calling thread, all at the same time. The filter must then be safe to call from several threads.
+     * @param pipelineWorkers the worker count, 0 to not use the pipeline
+     */
+    public void setPipelineWorkers(int pipelineWorkers) {
+        if (pipelineWorkers < 0) {
+            throw new IllegalArgumentException("Pipeline workers must not be negative: " + pipelineWorkers);
+        }
+        this.pipelineWorkers = pipelineWorkers;
+    }
+
+    /**
+     * Gets the number of rows per pipeline batch.
+     * @return the batch size
+     */
+    public int getPipelineBatchSize() {
+        return pipelineBatchSize;
+    }
+
+    /**
+     * Sets the number of rows per pipeline batch.
+     * @param pipelineBatchSize the batch size, must be positive
+     */
+    public void setPipelineBatchSize(int pipelineBatchSize) {
+        if (pipelineBatchSize <= 0) {
+            throw new IllegalArgumentException("Pipeline batch size must be positive: " + pipelineBatchSize);
+        }
+        this.pipelineBatchSize = pipelineBatchSize;
+    }
+
+    /**
+     * Gets the ordering of the output rows.
+     * @return the sort spec, or null if rows keep their input order
+     */
+    public SortSpec getSortSpec() {
+        return sortSpec;
+    }
+
+    /**
+     * Sets the ordering of the output rows. The average row and aggregates still cover
+     * every matching row, even when the spec limits the number of rows written.
+     * @param sortSpec the sort spec, or null to keep the input order
+     */
+    public void setSortSpec(SortSpec sortSpec) {
+        this.sortSpec = sortSpec;
+    }
+
+    /**
+     * Gets the memory budget of a full sort.
+     * @return the budget in bytes
+     */
+    public long getSortMemoryBytes() {
+        return sortMemoryBytes;
+    }
+
+    /**
+     * Sets the memory budget of a full sort. Rows beyond it are spilled to temp files in sorted runs.
+     * @param sortMemoryBytes the budget in bytes, must be positive
+     */
+    public void setSortMemoryBytes(long sortMemoryBytes) {
+        if (sortMemoryBytes <= 0) {
+            throw new IllegalArgumentException("Sort memory must be positive: " + sortMemoryBytes);
+        }
+        this.sortMemoryBytes = sortMemoryBytes;
+    }
+
+    /**
+     * Gets the memory budget of a reference workbook index.
+     * @return the budget in bytes
+     */
+    public long getJoinMemoryBytes() {
+        return joinMemoryBytes;
+    }
+
+    /**
+     * Sets the memory budget of a reference workbook index, used by lookups and batch filters.
+     * Larger references fall back to a grace hash join over temp file partitions.
+     * @param joinMemoryBytes the budget in bytes, must be positive
+     */
+    public void setJoinMemoryBytes(long joinMemoryBytes) {
+        if (joinMemoryBytes <= 0) {
+            throw new IllegalArgumentException("Join memory must be positive: " + joinMemoryBytes);
+        }
+        this.joinMemoryBytes = joinMemoryBytes;
+    }
+
+    /**
+     * Gets the file the JSON phase metrics of a run are written to.
+     * @return the file path, or null if no summary is written
+     */
+    public String getMetricsPath() {
+        return metricsPath;
+    }
+
+    /**
+     * Sets the file the JSON phase metrics of a run are written to, after the output is saved.
+     * Applies to every mode; phase events are emitted to Flight Recorder whether or not a file is set.
+     * @param metricsPath the file path, or null for none
+     */
+    public void setMetricsPath(String metricsPath) {
+        this.metricsPath = metricsPath;
+    }
+
+    /**
+     * Creates a new row sorter for these options.
+     * @return the sorter, or null if no sort spec is set
+     */
+    public RowSorter createRowSorter() {
+        return sortSpec == null ? null : new RowSorter(sortSpec, sortMemoryBytes);
+    }
+
+    /**
+     * Creates a new aggregator for these options.
+     * @return the aggregator, or null if no aggregate columns are set
+     */
+    public Aggregator createAggregator() {
+        return aggregateColumns == null ? null : new Aggregator(aggregateColumns, groupByColumn);
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.task5.utils;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable sketch for approximate quantiles with a bounded relative error
+ * (the DDSketch algorithm). Values are counted in logarithmically sized buckets,
+ * so any quantile is returned within the configured relative accuracy of the true value,
+ * and two sketches with the same accuracy can be merged by adding their bucket counts.
+ */
+public class QuantileSketch {
+
+    /**
+     * The default relative accuracy (1%).
+     */
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+    /**
+     * The relative accuracy guaranteed for every quantile.
+     */
+    private final double relativeAccuracy;
+
+    /**
+     * The bucket growth factor, (1 + accuracy) / (1 - accuracy).
+     */
+    private final double gamma;
+
+    /**
+     * 1 / ln(gamma), cached for the bucket index computation.
+     */
+    private final double inverseLogGamma;
+
+    /**
+     * Bucket counts for positive values.
+     */
+    private final BucketStore positives = new BucketStore();
+
+    /**
+     * Bucket counts for the magnitudes of negative values.
+     */
+    private final BucketStore negatives = new BucketStore();
+
+    /**
+     * The number of values too close to zero to be bucketed.
+     */
+    private long zeroCount;
+
+    /**
+     * The total number of values added.
+     */
+    private long count;
+
+    /**
+     * Constructs a sketch with the default relative accuracy.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    /**
+     * Constructs a sketch with the given relative accuracy.
+     * @param relativeAccuracy the relative error bound, between 0 and 1 (exclusive)
+     */
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.inverseLogGamma = 1 / Math.log(gamma);
+    }
+
+    /**
+     * Adds a value to the sketch. NaN values are ignored.
+     * @param value the value to add
+     */
+    public void add(double value) {
+        if (value > Double.MIN_NORMAL) {
+            positives.add(bucketIndex(value), 1);
+        } else if (value < -Double.MIN_NORMAL) {
+            negatives.add(bucketIndex(-value), 1);
+        } else if (value == value) {
+            zeroCount++;
+        } else {
+            return;
+        }
+        count++;
+    }
+
+    /**
+     * Adds all values of another sketch to this one.
+     * @param other a sketch with the same relative accuracy
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Can't merge sketches with different accuracies");
+        }
+        positives.merge(other.positives);
+        negatives.merge(other.negatives);
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    /**
+     * Gets an approximate quantile.
+     * @param quantile the quantile, between 0 and 1 (e.g. 0.99 for p99)
+     * @return the approximate value, or NaN if the sketch is empty
+     */
+    public double getQuantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+
+        // Negative values in ascending order are the magnitudes in descending bucket order.
+        for (int i = negatives.maxIndex(); i >= negatives.minIndex(); i--) {
+            seen += negatives.get(i);
+            if (seen > rank) {
+                return -bucketValue(i);
+            }
+        }
+
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+
+        for (int i = positives.minIndex(); i <= positives.maxIndex(); i++) {
+            seen += positives.get(i);
+            if (seen > rank) {
+                return bucketValue(i);
+            }
+        }
+        return bucketValue(positives.maxIndex());
+    }
+
+    /**
+     * Gets the number of values added.
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the relative accuracy of the sketch.
+     * @return the relative error bound
+     */
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * Maps a positive value to its logarithmic bucket.
+     * @param value a positive value
+     * @return the bucket index
+     */
+    private int bucketIndex(double value) {
+        return (int) Math.ceil(Math.log(value) * inverseLogGamma);
+    }
+
+    /**
+     * Gets the representative value of a bucket, which is within the relative accuracy
+     * of every value counted in it.
+     * @param index the bucket index
+     * @return the representative value
+     */
+    private double bucketValue(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /**
+     * A dense, growable array of bucket counts covering the range of used bucket indexes.
+     */
+    private static class BucketStore {
+
+        /**
+         * The counts, where counts[i] belongs to bucket offset + i.
+         */
+        private long[] counts = new long[0];
+
+        /**
+         * The bucket index of counts[0].
+         */
+        private int offset;
+
+        /**
+         * Adds to the count of a bucket, growing the array as needed.
+         * @param index the bucket index
+         * @param amount the amount to add
+         */
+        void add(int index, long amount) {
+            if (counts.length == 0) {
+                counts = new long[64];
+                offset = index - 32;
+            } else if (index < offset) {
+                int grow = Math.max(offset - index, counts.length / 2);
+                long[] grown = new long[counts.length + grow];
+                System.arraycopy(counts, 0, grown, grow, counts.length);
+                counts = grown;
+                offset -= grow;
+            } else if (index >= offset + counts.length) {
+                int needed = index - offset + 1;
+                counts = Arrays.copyOf(counts, Math.max(needed, counts.length + counts.length / 2));
+            }
+            counts[index - offset] += amount;
+        }
+
+        /**
+         * Adds all counts of another store.
+         * @param other the store to merge
+         */
+        void merge(BucketStore other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+
+        /**
+         * Gets the count of a bucket.
+         * @param index the bucket index
+         * @return the count, 0 outside the stored range
+         */
+        long get(int index) {
+            int i = index - offset;
+            return i >= 0 && i < counts.length ? counts[i] : 0;
+        }
+
+        /**
+         * Gets the lowest stored bucket index.
+         * @return the index
+         */
+        int minIndex() {
+            return offset;
+        }
+
+        /**
+         * Gets the highest stored bucket index.
+         * @return the index
+         */
+        int maxIndex() {
+            return offset + counts.length - 1;
+        }
+    }
+}
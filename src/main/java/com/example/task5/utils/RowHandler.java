@@ -0,0 +1,15 @@
+package com.example.task5.utils;
+
+/**
+ * Callback that receives rows one at a time from a streaming sheet reader.
+ */
+public interface RowHandler {
+
+    /**
+     * Handles a single row. The record must not be retained if memory should stay flat.
+     *
+     * @param record the row that was read
+     * @return true to keep reading, false to stop the scan early
+     */
+    boolean handleRow(RowRecord record);
+}
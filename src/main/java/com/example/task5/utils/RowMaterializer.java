@@ -0,0 +1,57 @@
+package com.example.task5.utils;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Turns RowRecords back into POI rows so existing Predicate&lt;Row&gt; filters
+ * can be applied to streamed data. Only one scratch row is alive at a time,
+ * the previous one is removed before the next is created.
+ * Instances are not thread-safe.
+ */
+public class RowMaterializer implements Closeable {
+
+    /**
+     * The scratch workbook holding the temporary rows (unlimited window, never flushed).
+     */
+    private final SXSSFWorkbook scratchWorkbook = new SXSSFWorkbook(-1);
+
+    /**
+     * The scratch sheet the rows are created in.
+     */
+    private final Sheet scratchSheet = scratchWorkbook.createSheet();
+
+    /**
+     * The currently materialized row, or null.
+     */
+    private Row current;
+
+    /**
+     * Replaces the current scratch row with the given record.
+     *
+     * @param record the row values to materialize
+     * @return a POI row valid until the next call
+     */
+    public Row materialize(RowRecord record) {
+        if (current != null) {
+            scratchSheet.removeRow(current);
+        }
+        current = scratchSheet.createRow(record.getRowNum());
+        record.materializeTo(current);
+        return current;
+    }
+
+    /**
+     * Releases the scratch workbook and its temporary files.
+     *
+     * @throws IOException if the workbook can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        scratchWorkbook.close();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.task5.utils;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * A lightweight, POI-independent snapshot of a single sheet row.
+ * Cell values are kept as String, Double or Boolean objects (or null for empty cells),
+ * indexed by their column position.
+ */
+public class RowRecord {
+
+    /**
+     * The zero-based row index in the source sheet.
+     */
+    private final int rowNum;
+
+    /**
+     * The cell values of the row, indexed by column.
+     */
+    private final Object[] values;
+
+    /**
+     * Constructs a RowRecord with the given row index and cell values.
+     * @param rowNum the zero-based row index
+     * @param values the cell values indexed by column
+     */
+    public RowRecord(int rowNum, Object[] values) {
+        this.rowNum = rowNum;
+        this.values = values;
+    }
+
+    /**
+     * Creates a snapshot of an existing POI row.
+     *
+     * @param row the row to copy
+     * @return a RowRecord holding the row's values
+     */
+    public static RowRecord of(Row row) {
+        int cellCount = Math.max(row.getLastCellNum(), 0);
+        Object[] values = new Object[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            Cell cell = row.getCell(i);
+            if (cell == null) {
+                continue;
+            }
+
+            switch (cell.getCellType()) {
+                case STRING:
+                    values[i] = cell.getStringCellValue();
+                    break;
+                case NUMERIC:
+                    values[i] = cell.getNumericCellValue();
+                    break;
+                case BOOLEAN:
+                    values[i] = cell.getBooleanCellValue();
+                    break;
+                case BLANK:
+                    break;
+                default:
+                    values[i] = cell.toString();
+                    break;
+            }
+        }
+        return new RowRecord(row.getRowNum(), values);
+    }
+
+    /**
+     * Gets the zero-based row index in the source sheet.
+     * @return the row index
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * Gets the number of cell slots in the row (last column index + 1).
+     * @return the cell count
+     */
+    public int getCellCount() {
+        return values.length;
+    }
+
+    /**
+     * Gets the raw value of a cell.
+     * @param colIndex the column index
+     * @return the value, or null if the cell is empty or out of range
+     */
+    public Object getValue(int colIndex) {
+        return colIndex >= 0 && colIndex < values.length ? values[colIndex] : null;
+    }
+
+    /**
+     * Checks whether a cell holds a numeric value.
+     * @param colIndex the column index
+     * @return true if the cell is numeric
+     */
+    public boolean isNumeric(int colIndex) {
+        return getValue(colIndex) instanceof Double;
+    }
+
+    /**
+     * Gets the numeric value of a cell. Callers should check {@link #isNumeric(int)} first.
+     * @param colIndex the column index
+     * @return the numeric value
+     */
+    public double getNumber(int colIndex) {
+        return (Double) values[colIndex];
+    }
+
+    /**
+     * Checks whether a cell holds a string value.
+     * @param colIndex the column index
+     * @return true if the cell is a string
+     */
+    public boolean isString(int colIndex) {
+        return getValue(colIndex) instanceof String;
+    }
+
+    /**
+     * Gets the string value of a cell. Callers should check {@link #isString(int)} first.
+     * @param colIndex the column index
+     * @return the string value
+     */
+    public String getString(int colIndex) {
+        return (String) values[colIndex];
+    }
+
+    /**
+     * Gets the text of a cell the way Cell.toString() renders it.
+     * @param colIndex the column index
+     * @return the cell text, or null if the cell is empty
+     */
+    public String getText(int colIndex) {
+        Object value = getValue(colIndex);
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        }
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Gets the text of every cell, e.g. to use a header row as labels.
+     * @return the cell texts indexed by column (null for empty cells)
+     */
+    public String[] getTexts() {
+        String[] texts = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            texts[i] = getText(i);
+        }
+        return texts;
+    }
+
+    /**
+     * Writes the values into a POI row the same way ExcelProcessor copies rows:
+     * strings, numbers and booleans keep their type, everything else is written as text.
+     *
+     * @param to the target row
+     */
+    public void copyTo(Row to) {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof String) {
+                to.createCell(i).setCellValue((String) value);
+            } else if (value instanceof Double) {
+                to.createCell(i).setCellValue((Double) value);
+            } else if (value instanceof Boolean) {
+                to.createCell(i).setCellValue((Boolean) value);
+            } else if (value != null) {
+                to.createCell(i).setCellValue(getText(i));
+            }
+        }
+    }
+
+    /**
+     * Writes the values into a POI row keeping their original cell types,
+     * so that predicates see the same cells as they would in the source sheet.
+     *
+     * @param to the target row
+     */
+    public void materializeTo(Row to) {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof String) {
+                to.createCell(i, CellType.STRING).setCellValue((String) value);
+            } else if (value instanceof Double) {
+                to.createCell(i, CellType.NUMERIC).setCellValue((Double) value);
+            } else if (value instanceof Boolean) {
+                to.createCell(i, CellType.BOOLEAN).setCellValue((Boolean) value);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.task5.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes RowRecords in a compact binary form, for temp files such as
+ * sort runs and join partitions.
+ */
+public class RowRecordIO {
+
+    /**
+     * Value tag of an empty cell.
+     */
+    private static final byte NULL = 0;
+
+    /**
+     * Value tag of a number.
+     */
+    private static final byte NUMBER = 1;
+
+    /**
+     * Value tag of a string.
+     */
+    private static final byte STRING = 2;
+
+    /**
+     * Value tag of a boolean.
+     */
+    private static final byte BOOLEAN = 3;
+
+    /**
+     * Writes a row.
+     *
+     * @param out the output
+     * @param record the row
+     * @throws IOException if writing fails
+     */
+    public static void write(DataOutputStream out, RowRecord record) throws IOException {
+        out.writeInt(record.getRowNum());
+        out.writeInt(record.getCellCount());
+        for (int i = 0; i < record.getCellCount(); i++) {
+            Object value = record.getValue(i);
+            if (value instanceof Double) {
+                out.writeByte(NUMBER);
+                out.writeDouble((Double) value);
+            } else if (value instanceof String) {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(STRING);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(NULL);
+            }
+        }
+    }
+
+    /**
+     * Reads a row written by {@link #write}.
+     *
+     * @param in the input
+     * @return the row
+     * @throws IOException if reading fails (EOFException at the end of the input)
+     */
+    public static RowRecord read(DataInputStream in) throws IOException {
+        int rowNum = in.readInt();
+        Object[] values = new Object[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte tag = in.readByte();
+            if (tag == NUMBER) {
+                values[i] = in.readDouble();
+            } else if (tag == STRING) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            } else if (tag == BOOLEAN) {
+                values[i] = in.readBoolean();
+            }
+        }
+        return new RowRecord(rowNum, values);
+    }
+
+    /**
+     * Roughly estimates the heap size of a row.
+     *
+     * @param record the row
+     * @return the approximate size in bytes
+     */
+    public static long estimateSize(RowRecord record) {
+        long size = 48 + 8L * record.getCellCount();
+        for (int i = 0; i < record.getCellCount(); i++) {
+            Object value = record.getValue(i);
+            if (value instanceof Double) {
+                size += 16;
+            } else if (value instanceof String) {
+                size += 40 + ((String) value).length();
+            }
+        }
+        return size;
+    }
+}
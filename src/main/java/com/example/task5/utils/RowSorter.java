@@ -0,0 +1,296 @@
+package com.example.task5.utils;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Orders the filtered rows by a {@link SortSpec} before they are written.
+ * With a limit, only the best N rows are kept in a bounded heap, so memory is O(N).
+ * Without one, rows are buffered up to a memory budget; every full buffer is sorted and
+ * spilled to a temp file as a run, and the runs are k-way merged while writing.
+ * Rows with equal sort keys keep their input order.
+ */
+public class RowSorter implements Closeable {
+
+    /**
+     * The ordering of the rows.
+     */
+    private final SortSpec spec;
+
+    /**
+     * The approximate number of bytes of buffered rows before a run is spilled.
+     */
+    private final long memoryBudget;
+
+    /**
+     * The best rows so far when a limit is set, worst row at the head; null otherwise.
+     */
+    private final PriorityQueue<Ranked> topRows;
+
+    /**
+     * The rows buffered for the current run when no limit is set.
+     */
+    private final List<RowRecord> buffer = new ArrayList<>();
+
+    /**
+     * The approximate size of the buffered rows in bytes.
+     */
+    private long bufferedBytes;
+
+    /**
+     * The spilled, sorted runs.
+     */
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * The number of rows added so far.
+     */
+    private long sequence;
+
+    /**
+     * Constructs a RowSorter.
+     * @param spec the ordering of the rows
+     * @param memoryBudget the approximate number of bytes of rows to buffer before spilling a run
+     */
+    public RowSorter(SortSpec spec, long memoryBudget) {
+        this.spec = spec;
+        this.memoryBudget = memoryBudget;
+        this.topRows = spec.hasLimit()
+                ? new PriorityQueue<>(Math.max(1, Math.min(spec.getLimit(), 1 << 16)), (a, b) -> -a.compareTo(b, spec))
+                : null;
+    }
+
+    /**
+     * Adds a filtered row.
+     *
+     * @param record the row
+     * @throws IOException if a run can't be spilled
+     */
+    public void add(RowRecord record) throws IOException {
+        long seq = sequence++;
+        if (topRows != null) {
+            if (spec.getLimit() == 0) {
+                return;
+            }
+            Ranked ranked = new Ranked(record, seq);
+            if (topRows.size() < spec.getLimit()) {
+                topRows.add(ranked);
+            } else if (ranked.compareTo(topRows.peek(), spec) < 0) {
+                topRows.poll();
+                topRows.add(ranked);
+            }
+            return;
+        }
+
+        buffer.add(record);
+        bufferedBytes += RowRecordIO.estimateSize(record);
+        if (bufferedBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * Writes the rows in sorted order to consecutive rows of a sheet.
+     *
+     * @param sheet the output sheet
+     * @param startRow the index of the first row to write
+     * @return the next row index after the written rows
+     * @throws IOException if a spilled run can't be read
+     */
+    public int writeTo(Sheet sheet, int startRow) throws IOException {
+        int rowIndex = startRow;
+        if (topRows != null) {
+            List<Ranked> best = new ArrayList<>(topRows);
+            best.sort((a, b) -> a.compareTo(b, spec));
+            for (Ranked ranked : best) {
+                ranked.record.copyTo(sheet.createRow(rowIndex++));
+            }
+            return rowIndex;
+        }
+
+        buffer.sort(spec);
+        if (runs.isEmpty()) {
+            for (RowRecord record : buffer) {
+                record.copyTo(sheet.createRow(rowIndex++));
+            }
+            return rowIndex;
+        }
+
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        PriorityQueue<Run> merge = new PriorityQueue<>((a, b) -> {
+            int result = spec.compare(a.current, b.current);
+            return result != 0 ? result : Integer.compare(a.index, b.index);
+        });
+        for (Run run : runs) {
+            if (run.advance()) {
+                merge.add(run);
+            }
+        }
+        while (!merge.isEmpty()) {
+            Run run = merge.poll();
+            run.current.copyTo(sheet.createRow(rowIndex++));
+            if (run.advance()) {
+                merge.add(run);
+            }
+        }
+        return rowIndex;
+    }
+
+    /**
+     * Gets the number of runs spilled to disk so far.
+     * @return the run count
+     */
+    public int getSpilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Deletes the temp files of all spilled runs.
+     * @throws IOException if a run file can't be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Run run : runs) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Sorts the buffered rows and writes them to a new run file.
+     * @throws IOException if the run can't be written
+     */
+    private void spill() throws IOException {
+        buffer.sort(spec);
+        Path file = Files.createTempFile("sort-run", ".bin");
+        Run run = new Run(runs.size(), file, buffer.size());
+        runs.add(run);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (RowRecord record : buffer) {
+                RowRecordIO.write(out, record);
+            }
+        }
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    /**
+     * A row with its input position, so equal keys can be ordered by arrival.
+     */
+    private static class Ranked {
+
+        /**
+         * The row.
+         */
+        final RowRecord record;
+
+        /**
+         * The position of the row in the input.
+         */
+        final long sequence;
+
+        Ranked(RowRecord record, long sequence) {
+            this.record = record;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Compares by sort key, then by input position.
+         * @param other the other row
+         * @param spec the ordering
+         * @return a negative number if this row comes first
+         */
+        int compareTo(Ranked other, SortSpec spec) {
+            int result = spec.compare(record, other.record);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * A spilled run and its read cursor during the merge.
+     */
+    private static class Run implements Closeable {
+
+        /**
+         * The position of the run; earlier runs hold earlier input rows.
+         */
+        final int index;
+
+        /**
+         * The temp file of the run.
+         */
+        final Path file;
+
+        /**
+         * The number of rows not read yet.
+         */
+        int remaining;
+
+        /**
+         * The open reader, or null before the merge.
+         */
+        DataInputStream in;
+
+        /**
+         * The row at the cursor.
+         */
+        RowRecord current;
+
+        Run(int index, Path file, int rowCount) {
+            this.index = index;
+            this.file = file;
+            this.remaining = rowCount;
+        }
+
+        /**
+         * Moves the cursor to the next row.
+         * @return false if the run is exhausted
+         * @throws IOException if the run can't be read
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            }
+            current = RowRecordIO.read(in);
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.task5.utils;
+
+/**
+ * Counters describing how much of a sheet a scan actually had to read.
+ */
+public class ScanStats {
+
+    /**
+     * The number of zone map blocks in the scanned sheet.
+     */
+    private int totalBlocks;
+
+    /**
+     * The number of blocks skipped because their min/max statistics ruled out any match.
+     */
+    private int prunedBlocks;
+
+    /**
+     * The number of data rows the scan visited.
+     */
+    private long scannedRows;
+
+    /**
+     * The number of cells in the visited rows.
+     */
+    private long scannedCells;
+
+    /**
+     * Gets the number of blocks in the scanned sheet.
+     * @return the total block count
+     */
+    public int getTotalBlocks() {
+        return totalBlocks;
+    }
+
+    /**
+     * Sets the number of blocks in the scanned sheet.
+     * @param totalBlocks the total block count
+     */
+    public void setTotalBlocks(int totalBlocks) {
+        this.totalBlocks = totalBlocks;
+    }
+
+    /**
+     * Gets the number of skipped blocks.
+     * @return the pruned block count
+     */
+    public int getPrunedBlocks() {
+        return prunedBlocks;
+    }
+
+    /**
+     * Sets the number of skipped blocks.
+     * @param prunedBlocks the pruned block count
+     */
+    public void setPrunedBlocks(int prunedBlocks) {
+        this.prunedBlocks = prunedBlocks;
+    }
+
+    /**
+     * Gets the number of data rows the scan visited.
+     * @return the row count
+     */
+    public long getScannedRows() {
+        return scannedRows;
+    }
+
+    /**
+     * Sets the number of data rows the scan visited.
+     * @param scannedRows the row count
+     */
+    public void setScannedRows(long scannedRows) {
+        this.scannedRows = scannedRows;
+    }
+
+    /**
+     * Gets the number of cells in the visited rows.
+     * @return the cell count
+     */
+    public long getScannedCells() {
+        return scannedCells;
+    }
+
+    /**
+     * Sets the number of cells in the visited rows.
+     * @param scannedCells the cell count
+     */
+    public void setScannedCells(long scannedCells) {
+        this.scannedCells = scannedCells;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.task5.utils;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The ordering of the filtered rows: a sort column, a direction and an optional row limit,
+ * as given by an "order by &lt;column&gt; [asc|desc] [limit N]" clause.
+ *
+ * Rows are compared by the value of the sort column: numbers first, then strings
+ * (case-insensitive), then booleans. Empty cells always come last, in both directions.
+ */
+public class SortSpec implements Comparator<RowRecord> {
+
+    /**
+     * Matches the start of an "order by" clause.
+     */
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)(?:^|\\s)order\\s+by\\s");
+
+    /**
+     * Matches a complete "order by" clause.
+     */
+    private static final Pattern CLAUSE = Pattern.compile(
+            "(?i)^\\s*order\\s+by\\s+(.+?)(?:\\s+(asc|desc))?(?:\\s+limit\\s+(\\d+))?\\s*$");
+
+    /**
+     * The index of the column to sort by.
+     */
+    private final int columnIndex;
+
+    /**
+     * Whether the rows are sorted in descending order.
+     */
+    private final boolean descending;
+
+    /**
+     * The maximum number of rows to keep, or -1 for all rows.
+     */
+    private final int limit;
+
+    /**
+     * Constructs a SortSpec.
+     * @param columnIndex the index of the column to sort by
+     * @param descending true to sort in descending order
+     * @param limit the maximum number of rows to keep, or -1 for all rows
+     */
+    public SortSpec(int columnIndex, boolean descending, int limit) {
+        if (limit < -1) {
+            throw new IllegalArgumentException("Limit must be -1 or non-negative: " + limit);
+        }
+        this.columnIndex = columnIndex;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    /**
+     * Finds where the "order by" clause of a filter expression starts.
+     * Occurrences inside quoted values are ignored.
+     *
+     * @param input the filter expression, e.g. "price &gt; 100 order by price desc limit 10"
+     * @return the index of the clause, or -1 if the expression has none
+     */
+    public static int findClause(String input) {
+        Matcher matcher = ORDER_BY.matcher(input);
+        int found = -1;
+        while (matcher.find()) {
+            if (!isQuoted(input, matcher.start())) {
+                found = matcher.start();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Parses an "order by &lt;column&gt; [asc|desc] [limit N]" clause.
+     *
+     * @param clause the clause text
+     * @param headerMap a map of column names to their index positions
+     * @return the sort spec, or null if the clause is invalid or the column doesn't exist
+     */
+    public static SortSpec parse(String clause, Map<String, Integer> headerMap) {
+        Matcher matcher = CLAUSE.matcher(clause);
+        if (!matcher.matches()) {
+            System.out.println("Invalid order by clause: " + clause.trim() + ". Rows are left in input order.");
+            return null;
+        }
+
+        String column = matcher.group(1).trim().toLowerCase();
+        if (column.length() > 1 && (column.charAt(0) == '"' || column.charAt(0) == '\'')
+                && column.charAt(column.length() - 1) == column.charAt(0)) {
+            column = column.substring(1, column.length() - 1).trim();
+        }
+        int colIndex = headerMap.getOrDefault(column, -1);
+        if (colIndex == -1) {
+            System.out.println("Column not found: " + column);
+            return null;
+        }
+
+        boolean descending = "desc".equalsIgnoreCase(matcher.group(2));
+        int limit = -1;
+        if (matcher.group(3) != null) {
+            try {
+                limit = Integer.parseInt(matcher.group(3));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid limit: " + matcher.group(3));
+                return null;
+            }
+        }
+        return new SortSpec(colIndex, descending, limit);
+    }
+
+    /**
+     * Checks whether a position lies inside a quoted value.
+     * @param input the expression
+     * @param index the position
+     * @return true if a quote opened before the position is still open
+     */
+    private static boolean isQuoted(String input, int index) {
+        char quote = 0;
+        for (int i = 0; i < index; i++) {
+            char c = input.charAt(i);
+            if (quote == 0 && (c == '"' || c == '\'')) {
+                quote = c;
+            } else if (c == quote) {
+                quote = 0;
+            }
+        }
+        return quote != 0;
+    }
+
+    @Override
+    public int compare(RowRecord a, RowRecord b) {
+        Object x = a.getValue(columnIndex);
+        Object y = b.getValue(columnIndex);
+        if (x == null || y == null) {
+            return x == null ? (y == null ? 0 : 1) : -1;
+        }
+
+        int result;
+        int rankX = rank(x);
+        int rankY = rank(y);
+        if (rankX != rankY) {
+            result = Integer.compare(rankX, rankY);
+        } else if (x instanceof Double) {
+            result = Double.compare((Double) x, (Double) y);
+        } else if (x instanceof String) {
+            result = String.CASE_INSENSITIVE_ORDER.compare((String) x, (String) y);
+            if (result == 0) {
+                result = ((String) x).compareTo((String) y);
+            }
+        } else {
+            result = ((Boolean) x).compareTo((Boolean) y);
+        }
+        return descending ? -result : result;
+    }
+
+    /**
+     * Gets the position of a value type in the sort order.
+     * @param value a non-null cell value
+     * @return 0 for numbers, 1 for strings, 2 for anything else
+     */
+    private static int rank(Object value) {
+        if (value instanceof Double) {
+            return 0;
+        }
+        return value instanceof String ? 1 : 2;
+    }
+
+    /**
+     * Gets the index of the sort column.
+     * @return the column index
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Gets whether the rows are sorted in descending order.
+     * @return true for descending order
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Gets the maximum number of rows to keep.
+     * @return the limit, or -1 for all rows
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks whether the number of rows is limited.
+     * @return true if a limit is set
+     */
+    public boolean hasLimit() {
+        return limit >= 0;
+    }
+}